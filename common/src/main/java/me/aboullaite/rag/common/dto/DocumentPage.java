@@ -0,0 +1,14 @@
+package me.aboullaite.rag.common.dto;
+
+import java.util.List;
+
+/**
+ * One page of the document catalog, ordered by docId. {@code nextCursor} is the docId to pass as
+ * {@code cursor} for the following page, or {@code null} on the last one.
+ */
+public record DocumentPage(List<DocumentMetadata> documents, String nextCursor) {
+
+    public DocumentPage {
+        documents = documents == null ? List.of() : List.copyOf(documents);
+    }
+}
@@ -6,6 +6,9 @@ import java.util.Objects;
 
 public record RetrievedDoc(String id, String chunk, double score, Map<String, String> meta) {
 
+    /** Meta key listing the retrieval sources that returned the document, e.g. {@code vector,lexical}. */
+    public static final String RETRIEVAL_META_KEY = "retrieval";
+
     public RetrievedDoc {
         Objects.requireNonNull(id, "id must not be null");
         Objects.requireNonNull(chunk, "chunk must not be null");
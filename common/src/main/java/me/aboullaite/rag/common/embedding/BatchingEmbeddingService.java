@@ -0,0 +1,122 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Micro-batcher in front of an {@link EmbeddingModel}. Concurrent requests are queued; each worker
+ * takes the oldest one, waits up to {@code maxWait} for more (never beyond {@code maxBatchSize})
+ * and embeds them in a single model call, which amortises per-call inference overhead.
+ */
+public class BatchingEmbeddingService implements EmbeddingService, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingEmbeddingService.class);
+
+    private final EmbeddingModel model;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private volatile boolean running = true;
+
+    public BatchingEmbeddingService(EmbeddingModel model, int maxBatchSize, Duration maxWait, int workerCount) {
+        this.model = model;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    @Override
+    public CompletableFuture<float[]> embedAsync(String text) {
+        CompletableFuture<float[]> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new RejectedExecutionException("Embedding service is closed"));
+            return future;
+        }
+        queue.add(new Pending(text, future));
+        return future;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdownNow();
+        List<Pending> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.future()
+                .completeExceptionally(new RejectedExecutionException("Embedding service is closed")));
+        if (model instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                log.warn("Unable to close embedding model: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                run(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void run(List<Pending> batch) {
+        try {
+            List<String> texts = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                texts.add(pending.text());
+            }
+            float[][] vectors = model.embed(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(vectors[i]);
+            }
+        } catch (RuntimeException | Error ex) {
+            log.warn("Embedding batch of {} failed: {}", batch.size(), ex.getMessage());
+            batch.forEach(pending -> pending.future().completeExceptionally(ex));
+        }
+    }
+
+    private record Pending(String text, CompletableFuture<float[]> future) {
+    }
+}
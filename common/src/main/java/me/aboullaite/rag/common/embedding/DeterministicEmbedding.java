@@ -13,7 +13,7 @@ public final class DeterministicEmbedding {
     private DeterministicEmbedding() {
     }
 
-    public static double[] embed(String text) {
+    public static float[] embed(String text) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(text.toLowerCase().trim().getBytes(StandardCharsets.UTF_8));
@@ -23,24 +23,22 @@ public final class DeterministicEmbedding {
                 int value = buffer.getInt();
                 vector[i] = value / (double) Integer.MAX_VALUE;
             }
-            normalize(vector);
-            return vector;
+            return normalize(vector);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("Unable to compute embedding", e);
         }
     }
 
-    private static void normalize(double[] vector) {
+    private static float[] normalize(double[] vector) {
         double norm = 0d;
         for (double v : vector) {
             norm += v * v;
         }
         norm = Math.sqrt(norm);
-        if (norm == 0) {
-            return;
-        }
+        float[] normalized = new float[vector.length];
         for (int i = 0; i < vector.length; i++) {
-            vector[i] = vector[i] / norm;
+            normalized[i] = norm == 0 ? 0f : (float) (vector[i] / norm);
         }
+        return normalized;
     }
 }
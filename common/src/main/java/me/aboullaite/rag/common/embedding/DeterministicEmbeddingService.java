@@ -0,0 +1,17 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.util.concurrent.CompletableFuture;
+
+/** SHA-256 based vectors; no model needed, but only identical texts are similar. */
+public class DeterministicEmbeddingService implements EmbeddingService {
+
+    @Override
+    public CompletableFuture<float[]> embedAsync(String text) {
+        return CompletableFuture.completedFuture(embed(text));
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return DeterministicEmbedding.embed(text);
+    }
+}
@@ -0,0 +1,40 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Shared {@link EmbeddingService} bean; imported by every service that embeds text so they all
+ * produce vectors from the same provider.
+ */
+@Configuration
+@EnableConfigurationProperties(EmbeddingProperties.class)
+public class EmbeddingConfiguration {
+
+    @Bean
+    EmbeddingService embeddingService(EmbeddingProperties properties) {
+        return create(properties);
+    }
+
+    public static EmbeddingService create(EmbeddingProperties properties) {
+        if (properties.getProvider() == EmbeddingProperties.Provider.DETERMINISTIC) {
+            return new DeterministicEmbeddingService();
+        }
+        if (!StringUtils.hasText(properties.getModelDir())) {
+            throw new IllegalStateException("embedding.model-dir is required for the onnx provider");
+        }
+        OnnxEmbeddingModel model = new OnnxEmbeddingModel(
+                Path.of(properties.getModelDir()),
+                properties.getMaxSequenceLength(),
+                properties.getIntraOpThreads());
+        return new BatchingEmbeddingService(
+                model,
+                properties.getMaxBatchSize(),
+                Duration.ofMillis(properties.getMaxWaitMs()),
+                properties.getWorkers());
+    }
+}
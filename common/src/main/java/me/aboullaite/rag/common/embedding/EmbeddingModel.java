@@ -0,0 +1,12 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.util.List;
+
+/**
+ * A batch inference backend: one call embeds every text, returning unit-length vectors in input
+ * order. Implementations must be safe to call from several threads.
+ */
+public interface EmbeddingModel {
+
+    float[][] embed(List<String> texts);
+}
@@ -0,0 +1,104 @@
+package me.aboullaite.rag.common.embedding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "embedding")
+public class EmbeddingProperties {
+
+    /**
+     * deterministic: SHA-256 hash vectors (no model); onnx: sentence-embedding model on the CPU.
+     * The orchestrator, retriever and ingestion must use the same provider and model.
+     */
+    private Provider provider = Provider.DETERMINISTIC;
+
+    /**
+     * Directory containing model.onnx and vocab.txt, required for the onnx provider.
+     */
+    private String modelDir;
+
+    /**
+     * Tokens per text, including [CLS] and [SEP]; longer texts are truncated.
+     */
+    private int maxSequenceLength = 256;
+
+    /**
+     * Maximum number of texts embedded in one model call.
+     */
+    private int maxBatchSize = 32;
+
+    /**
+     * How long the first request of a batch waits for others to join it.
+     */
+    private long maxWaitMs = 2;
+
+    /**
+     * Number of batches run concurrently.
+     */
+    private int workers = 1;
+
+    /**
+     * ONNX Runtime intra-op threads per model call; 0 lets the runtime use all physical cores.
+     */
+    private int intraOpThreads = 0;
+
+    public Provider getProvider() {
+        return provider;
+    }
+
+    public void setProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+    public String getModelDir() {
+        return modelDir;
+    }
+
+    public void setModelDir(String modelDir) {
+        this.modelDir = modelDir;
+    }
+
+    public int getMaxSequenceLength() {
+        return maxSequenceLength;
+    }
+
+    public void setMaxSequenceLength(int maxSequenceLength) {
+        this.maxSequenceLength = maxSequenceLength;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getIntraOpThreads() {
+        return intraOpThreads;
+    }
+
+    public void setIntraOpThreads(int intraOpThreads) {
+        this.intraOpThreads = intraOpThreads;
+    }
+
+    public enum Provider {
+        DETERMINISTIC,
+        ONNX
+    }
+}
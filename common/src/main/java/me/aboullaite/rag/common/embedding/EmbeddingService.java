@@ -0,0 +1,16 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns text into an embedding vector. Reactive callers should use {@link #embedAsync} so that
+ * model inference (and micro-batching) never blocks an event-loop thread.
+ */
+public interface EmbeddingService {
+
+    CompletableFuture<float[]> embedAsync(String text);
+
+    default float[] embed(String text) {
+        return embedAsync(text).join();
+    }
+}
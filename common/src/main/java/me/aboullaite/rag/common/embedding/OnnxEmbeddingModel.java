@@ -0,0 +1,158 @@
+package me.aboullaite.rag.common.embedding;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sentence-embedding model (e.g. all-MiniLM-L6-v2 exported to ONNX) running on the CPU through ONNX
+ * Runtime. The session and tokenizer are created once and shared by all threads; token embeddings
+ * are mean-pooled over the attention mask and L2-normalised.
+ *
+ * <p>The model directory holds {@code model.onnx} and the BERT {@code vocab.txt}.
+ */
+public class OnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final WordPieceTokenizer tokenizer;
+    private final int maxSequenceLength;
+    private final boolean acceptsAttentionMask;
+    private final boolean acceptsTokenTypeIds;
+    private final String outputName;
+
+    public OnnxEmbeddingModel(Path modelDir, int maxSequenceLength, int intraOpThreads) {
+        Path modelFile = modelDir.resolve("model.onnx");
+        Path vocabFile = modelDir.resolve("vocab.txt");
+        if (!Files.isRegularFile(modelFile) || !Files.isRegularFile(vocabFile)) {
+            throw new IllegalArgumentException("Expected model.onnx and vocab.txt in " + modelDir);
+        }
+        this.environment = OrtEnvironment.getEnvironment();
+        this.tokenizer = WordPieceTokenizer.fromVocabulary(vocabFile);
+        this.maxSequenceLength = maxSequenceLength;
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            if (intraOpThreads > 0) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            this.session = environment.createSession(modelFile.toString(), options);
+            this.acceptsAttentionMask = session.getInputNames().contains(ATTENTION_MASK);
+            this.acceptsTokenTypeIds = session.getInputNames().contains(TOKEN_TYPE_IDS);
+            Map<String, NodeInfo> outputs = session.getOutputInfo();
+            this.outputName = outputs.containsKey("last_hidden_state")
+                    ? "last_hidden_state"
+                    : outputs.keySet().iterator().next();
+        } catch (OrtException ex) {
+            throw new IllegalStateException("Unable to load ONNX model " + modelFile, ex);
+        }
+    }
+
+    @Override
+    public float[][] embed(List<String> texts) {
+        int batch = texts.size();
+        long[][] encoded = new long[batch][];
+        int sequenceLength = 0;
+        for (int i = 0; i < batch; i++) {
+            encoded[i] = tokenizer.encode(texts.get(i), maxSequenceLength);
+            sequenceLength = Math.max(sequenceLength, encoded[i].length);
+        }
+        long[] ids = new long[batch * sequenceLength];
+        long[] mask = new long[batch * sequenceLength];
+        for (int i = 0; i < batch; i++) {
+            System.arraycopy(encoded[i], 0, ids, i * sequenceLength, encoded[i].length);
+            for (int j = 0; j < encoded[i].length; j++) {
+                mask[i * sequenceLength + j] = 1;
+            }
+        }
+        long[] shape = {batch, sequenceLength};
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, LongBuffer.wrap(ids), shape));
+            if (acceptsAttentionMask) {
+                inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, LongBuffer.wrap(mask), shape));
+            }
+            if (acceptsTokenTypeIds) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(
+                        environment, LongBuffer.wrap(new long[batch * sequenceLength]), shape));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                OnnxTensor output = (OnnxTensor) result.get(outputName)
+                        .orElseThrow(() -> new IllegalStateException("Model produced no " + outputName));
+                long[] outputShape = ((TensorInfo) output.getInfo()).getShape();
+                FloatBuffer values = output.getFloatBuffer();
+                return outputShape.length == 3
+                        ? meanPool(values, mask, batch, sequenceLength, (int) outputShape[2])
+                        : pooled(values, batch, (int) outputShape[1]);
+            }
+        } catch (OrtException ex) {
+            throw new IllegalStateException("ONNX inference failed", ex);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+    }
+
+    private static float[][] meanPool(FloatBuffer hidden, long[] mask, int batch, int sequenceLength, int dimensions) {
+        float[][] vectors = new float[batch][dimensions];
+        for (int i = 0; i < batch; i++) {
+            float[] vector = vectors[i];
+            int tokens = 0;
+            for (int t = 0; t < sequenceLength; t++) {
+                if (mask[i * sequenceLength + t] == 0) {
+                    continue;
+                }
+                tokens++;
+                int offset = (i * sequenceLength + t) * dimensions;
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] += hidden.get(offset + d);
+                }
+            }
+            for (int d = 0; d < dimensions; d++) {
+                vector[d] /= Math.max(1, tokens);
+            }
+            normalize(vector);
+        }
+        return vectors;
+    }
+
+    private static float[][] pooled(FloatBuffer values, int batch, int dimensions) {
+        float[][] vectors = new float[batch][dimensions];
+        for (int i = 0; i < batch; i++) {
+            values.get(i * dimensions, vectors[i]);
+            normalize(vectors[i]);
+        }
+        return vectors;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BERT uncased tokenizer (basic tokenization + greedy longest-match WordPiece) over a
+ * {@code vocab.txt}, as used by MiniLM/BGE-style sentence-embedding models. Immutable and
+ * thread-safe, so one instance is shared by every inference thread.
+ */
+public class WordPieceTokenizer {
+
+    private static final String CLS = "[CLS]";
+    private static final String SEP = "[SEP]";
+    private static final String UNK = "[UNK]";
+    private static final int MAX_WORD_LENGTH = 100;
+
+    private final Map<String, Integer> vocabulary;
+    private final int clsId;
+    private final int sepId;
+    private final int unkId;
+
+    public WordPieceTokenizer(List<String> vocabulary) {
+        this.vocabulary = new HashMap<>(vocabulary.size() * 2);
+        for (int i = 0; i < vocabulary.size(); i++) {
+            this.vocabulary.putIfAbsent(vocabulary.get(i), i);
+        }
+        this.clsId = requireToken(CLS);
+        this.sepId = requireToken(SEP);
+        this.unkId = requireToken(UNK);
+    }
+
+    public static WordPieceTokenizer fromVocabulary(Path vocabFile) {
+        try {
+            return new WordPieceTokenizer(Files.readAllLines(vocabFile, StandardCharsets.UTF_8).stream()
+                    .map(String::strip)
+                    .toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read vocabulary " + vocabFile, ex);
+        }
+    }
+
+    /** Token ids for {@code [CLS] text [SEP]}, truncated to {@code maxLength} tokens. */
+    public long[] encode(String text, int maxLength) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(clsId);
+        for (String word : basicTokenize(text)) {
+            if (ids.size() >= maxLength - 1) {
+                break;
+            }
+            wordPiece(word, ids);
+        }
+        int length = Math.min(ids.size(), maxLength - 1);
+        long[] encoded = new long[length + 1];
+        for (int i = 0; i < length; i++) {
+            encoded[i] = ids.get(i);
+        }
+        encoded[length] = sepId;
+        return encoded;
+    }
+
+    private void wordPiece(String word, List<Integer> ids) {
+        if (word.length() > MAX_WORD_LENGTH) {
+            ids.add(unkId);
+            return;
+        }
+        int sizeBefore = ids.size();
+        int start = 0;
+        while (start < word.length()) {
+            int end = word.length();
+            Integer match = null;
+            while (start < end) {
+                String piece = start == 0 ? word.substring(start, end) : "##" + word.substring(start, end);
+                match = vocabulary.get(piece);
+                if (match != null) {
+                    break;
+                }
+                end--;
+            }
+            if (match == null) {
+                // The whole word becomes [UNK], not just the unmatched tail.
+                ids.subList(sizeBefore, ids.size()).clear();
+                ids.add(unkId);
+                return;
+            }
+            ids.add(match);
+            start = end;
+        }
+    }
+
+    private static List<String> basicTokenize(String text) {
+        String normalized = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        List<String> words = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || c == 0 || c == 0xFFFD || isControl(c)) {
+                continue;
+            }
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                flush(current, words);
+            } else if (isPunctuation(c) || isCjk(c)) {
+                flush(current, words);
+                words.add(String.valueOf(c));
+            } else {
+                current.append(c);
+            }
+        }
+        flush(current, words);
+        return words;
+    }
+
+    private static void flush(StringBuilder current, List<String> words) {
+        if (!current.isEmpty()) {
+            words.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isControl(char c) {
+        if (c == '\t' || c == '\n' || c == '\r') {
+            return false;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONTROL || type == Character.FORMAT;
+    }
+
+    private static boolean isPunctuation(char c) {
+        if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONNECTOR_PUNCTUATION
+                || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION
+                || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION
+                || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3400 && c <= 0x4DBF) || (c >= 0xF900 && c <= 0xFAFF);
+    }
+
+    private int requireToken(String token) {
+        Integer id = vocabulary.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("Vocabulary is missing " + token);
+        }
+        return id;
+    }
+}
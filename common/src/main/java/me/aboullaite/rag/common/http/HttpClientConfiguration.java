@@ -0,0 +1,19 @@
+package me.aboullaite.rag.common.http;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Shared {@link HttpClientFactory}; imported by every service that builds outbound WebClients so
+ * their pools are sized and instrumented the same way.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfiguration {
+
+    @Bean
+    HttpClientFactory httpClientFactory(HttpClientProperties properties) {
+        return new HttpClientFactory(properties);
+    }
+}
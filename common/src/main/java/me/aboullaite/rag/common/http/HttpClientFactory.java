@@ -0,0 +1,62 @@
+package me.aboullaite.rag.common.http;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Builds Reactor Netty clients from {@code http.clients.<name>}. Each client gets its own
+ * connection pool named after it, with pool metrics published to Micrometer's global registry as
+ * {@code reactor.netty.connection.provider.*{name=<name>}} (active, idle and pending connections).
+ */
+public class HttpClientFactory {
+
+    private final HttpClientProperties properties;
+    private final List<ConnectionProvider> providers = new CopyOnWriteArrayList<>();
+
+    public HttpClientFactory(HttpClientProperties properties) {
+        this.properties = properties;
+    }
+
+    public ReactorClientHttpConnector connector(String name) {
+        return new ReactorClientHttpConnector(create(name));
+    }
+
+    public HttpClient create(String name) {
+        HttpClientProperties.Client settings = properties.client(name);
+        ConnectionProvider.Builder pool = ConnectionProvider.builder(name)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(settings.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(settings.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(settings.getMaxLifeTimeMs()))
+                .metrics(true);
+        if (settings.getEvictInBackgroundMs() > 0) {
+            pool.evictInBackground(Duration.ofMillis(settings.getEvictInBackgroundMs()));
+        }
+        ConnectionProvider provider = pool.build();
+        providers.add(provider);
+
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(settings.getConnectTimeoutMs()))
+                .compress(settings.isCompression())
+                .protocol(settings.getProtocol() == HttpClientProperties.Protocol.H2C
+                        ? HttpProtocol.H2C
+                        : HttpProtocol.HTTP11);
+        if (settings.getResponseTimeoutMs() > 0) {
+            client = client.responseTimeout(Duration.ofMillis(settings.getResponseTimeoutMs()));
+        }
+        return client;
+    }
+
+    @PreDestroy
+    public void close() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,165 @@
+package me.aboullaite.rag.common.http;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "http")
+public class HttpClientProperties {
+
+    /**
+     * Settings per outbound client, keyed by client name (llm, retriever, weaviate, ...). A client
+     * without an entry gets the defaults of {@link Client}.
+     */
+    private Map<String, Client> clients = new HashMap<>();
+
+    public Map<String, Client> getClients() {
+        return clients;
+    }
+
+    public void setClients(Map<String, Client> clients) {
+        this.clients = clients;
+    }
+
+    public Client client(String name) {
+        return clients.getOrDefault(name, new Client());
+    }
+
+    public static class Client {
+
+        /**
+         * Pooled connections per remote address.
+         */
+        private int maxConnections = 100;
+
+        /**
+         * Requests allowed to queue for a connection when the pool is exhausted; more fail at once.
+         */
+        private int pendingAcquireMaxCount = 1000;
+
+        /**
+         * How long a queued request waits for a connection before failing.
+         */
+        private long pendingAcquireTimeoutMs = 2000;
+
+        /**
+         * Idle connections are closed after this, before a proxy or the server drops them silently.
+         */
+        private long maxIdleTimeMs = 30_000;
+
+        /**
+         * Connections are closed after this age so new replicas behind a Service receive traffic.
+         */
+        private long maxLifeTimeMs = 300_000;
+
+        /**
+         * Interval of the background sweep for idle and expired connections; 0 checks only on acquire.
+         */
+        private long evictInBackgroundMs = 30_000;
+
+        /**
+         * TCP connect timeout.
+         */
+        private long connectTimeoutMs = 1000;
+
+        /**
+         * Maximum gap between response reads; 0 disables it and leaves timeouts to the caller.
+         */
+        private long responseTimeoutMs = 0;
+
+        /**
+         * Send Accept-Encoding: gzip and decompress responses.
+         */
+        private boolean compression = true;
+
+        /**
+         * http11, or h2c for HTTP/2 over cleartext with prior knowledge (the server must accept it).
+         */
+        private Protocol protocol = Protocol.HTTP11;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public long getPendingAcquireTimeoutMs() {
+            return pendingAcquireTimeoutMs;
+        }
+
+        public void setPendingAcquireTimeoutMs(long pendingAcquireTimeoutMs) {
+            this.pendingAcquireTimeoutMs = pendingAcquireTimeoutMs;
+        }
+
+        public long getMaxIdleTimeMs() {
+            return maxIdleTimeMs;
+        }
+
+        public void setMaxIdleTimeMs(long maxIdleTimeMs) {
+            this.maxIdleTimeMs = maxIdleTimeMs;
+        }
+
+        public long getMaxLifeTimeMs() {
+            return maxLifeTimeMs;
+        }
+
+        public void setMaxLifeTimeMs(long maxLifeTimeMs) {
+            this.maxLifeTimeMs = maxLifeTimeMs;
+        }
+
+        public long getEvictInBackgroundMs() {
+            return evictInBackgroundMs;
+        }
+
+        public void setEvictInBackgroundMs(long evictInBackgroundMs) {
+            this.evictInBackgroundMs = evictInBackgroundMs;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getResponseTimeoutMs() {
+            return responseTimeoutMs;
+        }
+
+        public void setResponseTimeoutMs(long responseTimeoutMs) {
+            this.responseTimeoutMs = responseTimeoutMs;
+        }
+
+        public boolean isCompression() {
+            return compression;
+        }
+
+        public void setCompression(boolean compression) {
+            this.compression = compression;
+        }
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        public void setProtocol(Protocol protocol) {
+            this.protocol = protocol;
+        }
+    }
+
+    public enum Protocol {
+        HTTP11,
+        H2C
+    }
+}
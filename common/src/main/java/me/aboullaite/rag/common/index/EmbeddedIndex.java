@@ -0,0 +1,379 @@
+package me.aboullaite.rag.common.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only vector index over one memory-mapped file written by {@link EmbeddedIndexWriter}.
+ * Opening maps the file and reads the header and the filter dictionary; vectors, graph and chunk
+ * text are read in place by the searches that touch them, so startup does not grow with the corpus
+ * and the page cache is shared with every process mapping the same file.
+ *
+ * <p>Search walks the stored HNSW graph. Metadata filters are stored posting lists ANDed into a bitset: matching nodes are the
+ * only ones admitted as results while the walk still crosses the others, and a filter (or an index)
+ * small enough is answered by an exact scan of the matching vectors instead. Instances are safe for
+ * concurrent searches.
+ */
+public final class EmbeddedIndex {
+
+    /** {@code RIDX} in little-endian byte order. */
+    static final int MAGIC = 0x58444952;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 64;
+
+    private static final int EF_SEARCH = 64;
+    /** Below this many candidate nodes an exact scan reads fewer vectors than an HNSW walk would. */
+    private static final int EXACT_SCAN_MAX = 2048;
+    /** Filters matching less than 1/20 of the index are scanned exactly; the walk would mostly cross non-matches. */
+    private static final int SELECTIVE_FILTER_RATIO = 20;
+
+    private final ByteBuffer buffer;
+    private final FloatBuffer vectors;
+    private final int count;
+    private final int dimensions;
+    private final int maxLevel;
+    private final int entryPoint;
+    private final int graphOffset;
+    private final int chunksOffset;
+    private final int words;
+    private final Map<String, Map<String, Integer>> filters;
+    private final ThreadLocal<VisitedSet> visited;
+
+    private EmbeddedIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an embedded index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported embedded index version " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+        this.dimensions = buffer.getInt(12);
+        this.maxLevel = buffer.getInt(20);
+        this.entryPoint = buffer.getInt(24);
+        int vectorsOffset = (int) buffer.getLong(32);
+        this.graphOffset = (int) buffer.getLong(40);
+        this.chunksOffset = (int) buffer.getLong(48);
+        int filtersOffset = (int) buffer.getLong(56);
+        this.vectors = buffer.slice(vectorsOffset, count * dimensions * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        this.words = (count + 63) / 64;
+        this.filters = readFilters(filtersOffset);
+        this.visited = ThreadLocal.withInitial(() -> new VisitedSet(count));
+    }
+
+    public static EmbeddedIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Embedded index " + path + " is larger than 2 GiB");
+            }
+            // The mapping outlives the channel.
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new EmbeddedIndex(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * The {@code k} chunks most similar to {@code query} (cosine) whose metadata equals every
+     * entry of {@code filters}. A filter on an unknown field or value matches nothing.
+     */
+    public List<Match> search(float[] query, Map<String, String> filters, int k) {
+        if (count == 0 || k <= 0) {
+            return List.of();
+        }
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Query has " + query.length + " dimensions, index has " + dimensions);
+        }
+        float[] normalized = normalize(query);
+        long[] allowed = null;
+        int candidates = count;
+        if (filters != null && !filters.isEmpty()) {
+            allowed = allowed(filters);
+            if (allowed == null) {
+                return List.of();
+            }
+            candidates = 0;
+            for (long word : allowed) {
+                candidates += Long.bitCount(word);
+            }
+            if (candidates == 0) {
+                return List.of();
+            }
+        }
+        PriorityQueue<Candidate> found = candidates <= EXACT_SCAN_MAX || (long) candidates * SELECTIVE_FILTER_RATIO < count
+                ? exactScan(normalized, allowed, k)
+                : walk(normalized, allowed, Math.max(EF_SEARCH, k));
+        List<Candidate> ordered = new ArrayList<>(found);
+        ordered.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        List<Match> matches = new ArrayList<>(Math.min(k, ordered.size()));
+        for (Candidate candidate : ordered.subList(0, Math.min(k, ordered.size()))) {
+            matches.add(chunk(candidate.id(), candidate.score()));
+        }
+        return matches;
+    }
+
+    /**
+     * Every value of {@code field}, ordered, with the number of chunks carrying it and the first of
+     * them. Read from the filter postings; vectors and graph are not touched.
+     */
+    public List<Group> groups(String field) {
+        Map<String, Integer> values = filters.getOrDefault(field, Map.of());
+        List<Group> groups = new ArrayList<>(values.size());
+        values.forEach((value, offset) -> groups.add(
+                new Group(value, buffer.getInt(offset), chunk(buffer.getInt(offset + Integer.BYTES), 0))));
+        groups.sort(Comparator.comparing(Group::value));
+        return groups;
+    }
+
+    private long[] allowed(Map<String, String> filters) {
+        long[] allowed = null;
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            Integer offset = this.filters.getOrDefault(filter.getKey(), Map.of()).get(filter.getValue());
+            if (offset == null) {
+                return null;
+            }
+            long[] bits = new long[words];
+            int size = buffer.getInt(offset);
+            for (int i = 1; i <= size; i++) {
+                int node = buffer.getInt(offset + i * Integer.BYTES);
+                bits[node >>> 6] |= 1L << node;
+            }
+            if (allowed == null) {
+                allowed = bits;
+            } else {
+                for (int i = 0; i < words; i++) {
+                    allowed[i] &= bits[i];
+                }
+            }
+        }
+        return allowed;
+    }
+
+    private PriorityQueue<Candidate> exactScan(float[] query, long[] allowed, int k) {
+        float[] scratch = new float[dimensions];
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        for (int node = 0; node < count; node++) {
+            if (allowed != null && !isSet(allowed, node)) {
+                continue;
+            }
+            double score = score(query, scratch, node);
+            if (results.size() < k || score > results.peek().score()) {
+                results.add(new Candidate(node, score));
+                if (results.size() > k) {
+                    results.poll();
+                }
+            }
+        }
+        return results;
+    }
+
+    private PriorityQueue<Candidate> walk(float[] query, long[] allowed, int ef) {
+        float[] scratch = new float[dimensions];
+        int current = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            current = greedyClosest(query, scratch, current, level);
+        }
+        VisitedSet seen = visited.get();
+        seen.reset();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        Candidate first = new Candidate(current, score(query, scratch, current));
+        seen.mark(current);
+        candidates.add(first);
+        if (allowed == null || isSet(allowed, current)) {
+            results.add(first);
+        }
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int position = neighbours(candidate.id(), 0);
+            int degree = buffer.getInt(position);
+            for (int i = 0; i < degree; i++) {
+                int neighbour = buffer.getInt(position + Integer.BYTES * (i + 1));
+                if (!seen.mark(neighbour)) {
+                    continue;
+                }
+                double score = score(query, scratch, neighbour);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate next = new Candidate(neighbour, score);
+                    candidates.add(next);
+                    if (allowed == null || isSet(allowed, neighbour)) {
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int greedyClosest(float[] query, float[] scratch, int start, int level) {
+        int current = start;
+        double best = score(query, scratch, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int position = neighbours(current, level);
+            int degree = buffer.getInt(position);
+            for (int i = 0; i < degree; i++) {
+                int neighbour = buffer.getInt(position + Integer.BYTES * (i + 1));
+                double score = score(query, scratch, neighbour);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Byte offset of the degree that precedes {@code node}'s neighbour list on {@code level}. */
+    private int neighbours(int node, int level) {
+        int position = buffer.getInt(graphOffset + node * Integer.BYTES) + Integer.BYTES;
+        for (int l = 0; l < level; l++) {
+            position += Integer.BYTES * (1 + buffer.getInt(position));
+        }
+        return position;
+    }
+
+    /** Copies the node's vector into {@code scratch} in one bulk read, then takes the dot product. */
+    private double score(float[] query, float[] scratch, int node) {
+        vectors.get(node * dimensions, scratch);
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            s0 += query[i] * scratch[i];
+            s1 += query[i + 1] * scratch[i + 1];
+            s2 += query[i + 2] * scratch[i + 2];
+            s3 += query[i + 3] * scratch[i + 3];
+        }
+        for (; i < dimensions; i++) {
+            s0 += query[i] * scratch[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private Match chunk(int node, double score) {
+        int[] position = {buffer.getInt(chunksOffset + node * Integer.BYTES)};
+        int metaCount = buffer.getInt(position[0]);
+        position[0] += Integer.BYTES;
+        String id = readString(position);
+        String text = readString(position);
+        Map<String, String> meta = new LinkedHashMap<>(metaCount * 2);
+        for (int i = 0; i < metaCount; i++) {
+            meta.put(readString(position), readString(position));
+        }
+        return new Match(id, text, meta, score);
+    }
+
+    private Map<String, Map<String, Integer>> readFilters(int offset) {
+        int[] position = {offset};
+        int fieldCount = buffer.getInt(position[0]);
+        position[0] += Integer.BYTES;
+        Map<String, Map<String, Integer>> fields = new HashMap<>();
+        for (int f = 0; f < fieldCount; f++) {
+            String field = readString(position);
+            int valueCount = buffer.getInt(position[0]);
+            position[0] += Integer.BYTES;
+            Map<String, Integer> values = new HashMap<>();
+            for (int v = 0; v < valueCount; v++) {
+                values.put(readString(position), position[0]);
+                position[0] += (1 + buffer.getInt(position[0])) * Integer.BYTES;
+            }
+            fields.put(field, values);
+        }
+        return fields;
+    }
+
+    /** Reads a length-prefixed UTF-8 string at {@code position[0]} and advances past it. */
+    private String readString(int[] position) {
+        int length = buffer.getInt(position[0]);
+        byte[] bytes = new byte[length];
+        buffer.get(position[0] + Integer.BYTES, bytes);
+        position[0] += Integer.BYTES + length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isSet(long[] bits, int node) {
+        return (bits[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0f : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    public record Match(String id, String text, Map<String, String> meta, double similarity) {
+    }
+
+    public record Group(String value, int count, Match first) {
+    }
+
+    private record Candidate(int id, double score) {
+    }
+
+    private static final class VisitedSet {
+
+        private final int[] stamps;
+        private int epoch;
+
+        private VisitedSet(int capacity) {
+            this.stamps = new int[capacity];
+        }
+
+        private void reset() {
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        private boolean mark(int id) {
+            if (stamps[id] == epoch) {
+                return false;
+            }
+            stamps[id] = epoch;
+            return true;
+        }
+    }
+}
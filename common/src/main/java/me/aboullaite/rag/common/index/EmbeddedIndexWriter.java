@@ -0,0 +1,461 @@
+package me.aboullaite.rag.common.index;
+
+import static me.aboullaite.rag.common.index.EmbeddedIndex.HEADER_BYTES;
+import static me.aboullaite.rag.common.index.EmbeddedIndex.MAGIC;
+import static me.aboullaite.rag.common.index.EmbeddedIndex.VERSION;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Writes the file an {@link EmbeddedIndex} maps: normalised vectors, an HNSW graph built over them,
+ * the chunks and, per metadata value, the ascending positions of the chunks carrying it. The file is written next to {@code path} and moved
+ * into place, so a process still mapping the previous version keeps reading it undisturbed.
+ */
+public final class EmbeddedIndexWriter {
+
+    private static final int M = 16;
+    private static final int MAX_M0 = M * 2;
+    private static final int EF_CONSTRUCTION = 100;
+
+    private EmbeddedIndexWriter() {
+    }
+
+    public static void write(Path path, List<IndexedChunk> chunks) throws IOException {
+        int count = chunks.size();
+        int dimensions = count == 0 ? 0 : chunks.getFirst().vector().length;
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            float[] vector = chunks.get(i).vector();
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Chunk " + chunks.get(i).id() + " has " + vector.length
+                        + " dimensions, expected " + dimensions);
+            }
+            vectors[i] = normalize(vector);
+        }
+        Graph graph = Graph.build(vectors);
+
+        byte[][][] strings = new byte[count][][];
+        TreeMap<String, TreeMap<String, Postings>> filters = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            IndexedChunk chunk = chunks.get(i);
+            Map<String, String> meta = new TreeMap<>(chunk.meta());
+            byte[][] encoded = new byte[2 + meta.size() * 2][];
+            encoded[0] = utf8(chunk.id());
+            encoded[1] = utf8(chunk.text());
+            int slot = 2;
+            for (Map.Entry<String, String> entry : meta.entrySet()) {
+                encoded[slot++] = utf8(entry.getKey());
+                encoded[slot++] = utf8(entry.getValue());
+                filters.computeIfAbsent(entry.getKey(), key -> new TreeMap<>())
+                        .computeIfAbsent(entry.getValue(), value -> new Postings())
+                        .add(i);
+            }
+            strings[i] = encoded;
+        }
+
+        long vectorsOffset = HEADER_BYTES;
+        long graphOffset = vectorsOffset + (long) count * dimensions * Float.BYTES;
+        long chunksOffset = graphOffset + (long) count * Integer.BYTES + graph.bytes();
+        long chunkBytes = (long) count * Integer.BYTES;
+        for (byte[][] encoded : strings) {
+            chunkBytes += Integer.BYTES;
+            for (byte[] string : encoded) {
+                chunkBytes += Integer.BYTES + string.length;
+            }
+        }
+        long filtersOffset = chunksOffset + chunkBytes;
+
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dimensions)
+                    .putInt(M).putInt(graph.maxLevel).putInt(graph.entryPoint).putInt(0)
+                    .putLong(vectorsOffset).putLong(graphOffset).putLong(chunksOffset).putLong(filtersOffset);
+            while (out.position < HEADER_BYTES) {
+                out.putInt(0);
+            }
+            for (float[] vector : vectors) {
+                for (float value : vector) {
+                    out.putFloat(value);
+                }
+            }
+
+            long nodeOffset = graphOffset + (long) count * Integer.BYTES;
+            for (int node = 0; node < count; node++) {
+                out.putInt(checkedOffset(nodeOffset));
+                nodeOffset += graph.nodeBytes(node);
+            }
+            for (int node = 0; node < count; node++) {
+                out.putInt(graph.levels[node]);
+                for (int level = 0; level <= graph.levels[node]; level++) {
+                    int degree = graph.counts[node][level];
+                    out.putInt(degree);
+                    for (int i = 0; i < degree; i++) {
+                        out.putInt(graph.links[node][level][i]);
+                    }
+                }
+            }
+
+            long chunkOffset = chunksOffset + (long) count * Integer.BYTES;
+            for (byte[][] encoded : strings) {
+                out.putInt(checkedOffset(chunkOffset));
+                chunkOffset += Integer.BYTES;
+                for (byte[] string : encoded) {
+                    chunkOffset += Integer.BYTES + string.length;
+                }
+            }
+            for (byte[][] encoded : strings) {
+                out.putInt((encoded.length - 2) / 2);
+                for (byte[] string : encoded) {
+                    out.putString(string);
+                }
+            }
+
+            out.putInt(filters.size());
+            for (Map.Entry<String, TreeMap<String, Postings>> field : filters.entrySet()) {
+                out.putString(utf8(field.getKey()));
+                out.putInt(field.getValue().size());
+                for (Map.Entry<String, Postings> value : field.getValue().entrySet()) {
+                    Postings postings = value.getValue();
+                    out.putString(utf8(value.getKey()));
+                    out.putInt(postings.size);
+                    for (int i = 0; i < postings.size; i++) {
+                        out.putInt(postings.nodes[i]);
+                    }
+                }
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int checkedOffset(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Embedded index would exceed 2 GiB; shard the corpus");
+        }
+        return (int) offset;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0f : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Positions of the chunks carrying one metadata value, in insertion (so ascending) order. A
+     * dense bitset per value would grow with values x chunks; ids like docId have one per document.
+     */
+    private static final class Postings {
+
+        private int[] nodes = new int[4];
+        private int size;
+
+        private void add(int node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+        }
+    }
+
+    /** Little-endian writes through one reusable buffer. */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        Output putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            position += Integer.BYTES;
+            return this;
+        }
+
+        Output putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+            position += Long.BYTES;
+            return this;
+        }
+
+        Output putFloat(float value) throws IOException {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+            position += Float.BYTES;
+            return this;
+        }
+
+        void putString(byte[] value) throws IOException {
+            putInt(value.length);
+            int written = 0;
+            while (written < value.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), value.length - written);
+                buffer.put(value, written, length);
+                written += length;
+            }
+            position += value.length;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /** HNSW construction over the normalised vectors; the same algorithm the index searches with. */
+    private static final class Graph {
+
+        private final float[][] vectors;
+        private final int[] levels;
+        private final int[][][] links;
+        private final int[][] counts;
+        private final int[] stamps;
+        private int epoch;
+        private int entryPoint = -1;
+        private int maxLevel = -1;
+
+        private Graph(float[][] vectors) {
+            this.vectors = vectors;
+            this.levels = new int[vectors.length];
+            this.links = new int[vectors.length][][];
+            this.counts = new int[vectors.length][];
+            this.stamps = new int[vectors.length];
+        }
+
+        static Graph build(float[][] vectors) {
+            Graph graph = new Graph(vectors);
+            SplittableRandom random = new SplittableRandom(42);
+            double levelMultiplier = 1 / Math.log(M);
+            for (int id = 0; id < vectors.length; id++) {
+                graph.insert(id, (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier));
+            }
+            return graph;
+        }
+
+        long bytes() {
+            long total = 0;
+            for (int node = 0; node < levels.length; node++) {
+                total += nodeBytes(node);
+            }
+            return total;
+        }
+
+        long nodeBytes(int node) {
+            long bytes = Integer.BYTES;
+            for (int level = 0; level <= levels[node]; level++) {
+                bytes += Integer.BYTES + (long) counts[node][level] * Integer.BYTES;
+            }
+            return bytes;
+        }
+
+        private void insert(int id, int level) {
+            levels[id] = level;
+            links[id] = new int[level + 1][];
+            counts[id] = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[id][l] = new int[l == 0 ? MAX_M0 : M];
+            }
+            if (entryPoint < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                return;
+            }
+            float[] vector = vectors[id];
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                PriorityQueue<Candidate> found = searchLayer(vector, current, EF_CONSTRUCTION, l);
+                List<Candidate> neighbours = diverse(closest(found, found.size()), M);
+                for (Candidate neighbour : neighbours) {
+                    links[id][l][counts[id][l]++] = neighbour.id();
+                    connect(neighbour.id(), id, l, l == 0 ? MAX_M0 : M);
+                }
+                current = found.isEmpty() ? current : closest(found, 1).getFirst().id();
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = id;
+            }
+        }
+
+        private void connect(int from, int to, int level, int maxLinks) {
+            if (counts[from][level] < maxLinks) {
+                links[from][level][counts[from][level]++] = to;
+                return;
+            }
+            // Neighbour list is full: re-select maxLinks among the existing links plus the new one.
+            PriorityQueue<Candidate> pool = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+            pool.add(new Candidate(to, dot(vectors[from], vectors[to])));
+            for (int i = 0; i < counts[from][level]; i++) {
+                int link = links[from][level][i];
+                pool.add(new Candidate(link, dot(vectors[from], vectors[link])));
+            }
+            counts[from][level] = 0;
+            for (Candidate candidate : diverse(closest(pool, pool.size()), maxLinks)) {
+                links[from][level][counts[from][level]++] = candidate.id();
+            }
+        }
+
+        private int greedyClosest(float[] query, int start, int level) {
+            int current = start;
+            double best = dot(query, vectors[current]);
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int i = 0; i < counts[current][level]; i++) {
+                    int link = links[current][level][i];
+                    double score = dot(query, vectors[link]);
+                    if (score > best) {
+                        best = score;
+                        current = link;
+                        improved = true;
+                    }
+                }
+            }
+            return current;
+        }
+
+        private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+            PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+            Candidate first = new Candidate(start, dot(query, vectors[start]));
+            stamps[start] = epoch;
+            candidates.add(first);
+            results.add(first);
+            while (!candidates.isEmpty()) {
+                Candidate candidate = candidates.poll();
+                if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                    break;
+                }
+                int node = candidate.id();
+                if (level > levels[node]) {
+                    continue;
+                }
+                for (int i = 0; i < counts[node][level]; i++) {
+                    int neighbour = links[node][level][i];
+                    if (stamps[neighbour] == epoch) {
+                        continue;
+                    }
+                    stamps[neighbour] = epoch;
+                    double score = dot(query, vectors[neighbour]);
+                    if (results.size() < ef || score > results.peek().score()) {
+                        Candidate next = new Candidate(neighbour, score);
+                        candidates.add(next);
+                        results.add(next);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+
+        /**
+         * The HNSW neighbour heuristic: walking candidates from the closest, keep one only if it is
+         * closer to the base node than to every neighbour kept so far, so links point in different
+         * directions instead of all into the nearest cluster; then top up with the closest skipped.
+         */
+        private List<Candidate> diverse(List<Candidate> sorted, int limit) {
+            List<Candidate> kept = new ArrayList<>(limit);
+            List<Candidate> skipped = new ArrayList<>();
+            for (Candidate candidate : sorted) {
+                if (kept.size() == limit) {
+                    break;
+                }
+                boolean diverse = true;
+                for (Candidate neighbour : kept) {
+                    if (dot(vectors[candidate.id()], vectors[neighbour.id()]) > candidate.score()) {
+                        diverse = false;
+                        break;
+                    }
+                }
+                (diverse ? kept : skipped).add(candidate);
+            }
+            for (int i = 0; i < skipped.size() && kept.size() < limit; i++) {
+                kept.add(skipped.get(i));
+            }
+            return kept;
+        }
+
+        private static List<Candidate> closest(PriorityQueue<Candidate> candidates, int limit) {
+            List<Candidate> sorted = new ArrayList<>(candidates);
+            sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+        }
+    }
+
+    private record Candidate(int id, double score) {
+    }
+}
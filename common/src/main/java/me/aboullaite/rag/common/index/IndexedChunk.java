@@ -0,0 +1,16 @@
+package me.aboullaite.rag.common.index;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/** One chunk as stored in an {@link EmbeddedIndex}: id, embedding, text and filterable metadata. */
+public record IndexedChunk(String id, float[] vector, String text, Map<String, String> meta) {
+
+    public IndexedChunk {
+        Objects.requireNonNull(id, "id must not be null");
+        Objects.requireNonNull(vector, "vector must not be null");
+        Objects.requireNonNull(text, "text must not be null");
+        meta = meta == null ? Map.of() : Collections.unmodifiableMap(meta);
+    }
+}
@@ -0,0 +1,101 @@
+package me.aboullaite.rag.common.ingest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a document into chunks exactly as the original Python ingest script did: paragraphs on
+ * blank lines, packed up to {@value #MAX_CHUNK_CHARS} characters, the first paragraph's first 80
+ * characters as the section. Chunk ids are the same name-based UUIDs, so re-ingesting overwrites
+ * the chunks it wrote and a chunk has the same id in Weaviate, OpenSearch, the embedded index and
+ * the answer cache's document index.
+ */
+public final class DocumentChunker {
+
+    private static final int MAX_CHUNK_CHARS = 900;
+    private static final int SECTION_CHARS = 80;
+
+    private DocumentChunker() {
+    }
+
+    public static List<Chunk> chunk(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String docId = dot > 0 ? name.substring(0, dot) : name;
+        return chunk(docId, name, Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    public static List<Chunk> chunk(String docId, String source, String content) {
+        List<String> paragraphs = new ArrayList<>();
+        for (String paragraph : content.split("\n\n", -1)) {
+            String stripped = paragraph.strip();
+            if (!stripped.isEmpty()) {
+                paragraphs.add(stripped);
+            }
+        }
+        String section = paragraphs.isEmpty() ? docId : prefix(paragraphs.getFirst(), SECTION_CHARS);
+
+        List<Chunk> chunks = new ArrayList<>();
+        List<String> buffer = new ArrayList<>();
+        int bufferLength = 0;
+        for (String paragraph : paragraphs) {
+            int length = paragraph.codePointCount(0, paragraph.length());
+            // Like the script, a first paragraph longer than the limit flushes an empty chunk; ids depend on it.
+            if (bufferLength + length > MAX_CHUNK_CHARS) {
+                chunks.add(newChunk(docId, source, section, buffer, chunks.size()));
+                buffer = new ArrayList<>();
+                bufferLength = 0;
+            }
+            buffer.add(paragraph);
+            bufferLength += length;
+        }
+        if (!buffer.isEmpty()) {
+            chunks.add(newChunk(docId, source, section, buffer, chunks.size()));
+        }
+        return chunks;
+    }
+
+    /** {@code str(uuid.UUID(md5(f"{docId}:{index}").hexdigest()))}; no version bits are set. */
+    public static String chunkId(String docId, int index) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest((docId + ":" + index).getBytes(StandardCharsets.UTF_8));
+            String hex = HexFormat.of().formatHex(digest);
+            return hex.substring(0, 8) + "-" + hex.substring(8, 12) + "-" + hex.substring(12, 16) + "-"
+                    + hex.substring(16, 20) + "-" + hex.substring(20);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 unavailable", e);
+        }
+    }
+
+    private static Chunk newChunk(String docId, String source, String section, List<String> paragraphs, int index) {
+        return new Chunk(chunkId(docId, index), docId, source, section, String.join("\n\n", paragraphs));
+    }
+
+    private static String prefix(String text, int codePoints) {
+        if (text.codePointCount(0, text.length()) <= codePoints) {
+            return text;
+        }
+        return text.substring(0, text.offsetByCodePoints(0, codePoints));
+    }
+
+    public record Chunk(String id, String docId, String source, String section, String text) {
+
+        /** The properties stored next to the chunk text, keyed as in the Weaviate {@code Doc} class. */
+        public Map<String, String> meta() {
+            Map<String, String> meta = new LinkedHashMap<>(4);
+            meta.put("docId", docId);
+            meta.put("source", source);
+            meta.put("section", section);
+            return meta;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package me.aboullaite.rag.common.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BatchingEmbeddingServiceTest {
+
+    @Test
+    void concurrentRequestsShareOneModelCall() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        EmbeddingModel model = texts -> {
+            batchSizes.add(texts.size());
+            return texts.stream().map(text -> new float[] {text.length()}).toArray(float[][]::new);
+        };
+
+        try (BatchingEmbeddingService service = new BatchingEmbeddingService(model, 8, Duration.ofMillis(200), 1)) {
+            List<CompletableFuture<float[]>> futures = IntStream.range(0, 5)
+                    .mapToObj(i -> service.embedAsync("x".repeat(i + 1)))
+                    .toList();
+
+            assertThat(futures).extracting(future -> future.join()[0]).containsExactly(1f, 2f, 3f, 4f, 5f);
+            assertThat(batchSizes).containsExactly(5);
+        }
+    }
+
+    @Test
+    void splitsAtMaxBatchSize() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        EmbeddingModel model = texts -> {
+            batchSizes.add(texts.size());
+            return new float[texts.size()][1];
+        };
+
+        try (BatchingEmbeddingService service = new BatchingEmbeddingService(model, 2, Duration.ofMillis(200), 1)) {
+            CompletableFuture.allOf(IntStream.range(0, 5)
+                    .mapToObj(i -> service.embedAsync("text " + i))
+                    .toArray(CompletableFuture[]::new)).join();
+
+            assertThat(batchSizes).containsExactly(2, 2, 1);
+        }
+    }
+
+    @Test
+    void failsEveryRequestOfAFailedBatch() {
+        EmbeddingModel model = texts -> {
+            throw new IllegalStateException("inference failed");
+        };
+
+        try (BatchingEmbeddingService service = new BatchingEmbeddingService(model, 4, Duration.ofMillis(1), 1)) {
+            assertThatThrownBy(() -> service.embed("prompt"))
+                    .isInstanceOf(CompletionException.class)
+                    .hasRootCauseMessage("inference failed");
+        }
+    }
+}
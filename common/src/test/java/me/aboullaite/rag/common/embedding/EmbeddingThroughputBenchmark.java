@@ -0,0 +1,75 @@
+package me.aboullaite.rag.common.embedding;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Embeddings per second through {@link BatchingEmbeddingService} backed by the ONNX model, with 32
+ * concurrent callers. Requires {@code -Dembedding.model-dir} pointing at a directory containing
+ * {@code model.onnx} and {@code vocab.txt}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+public class EmbeddingThroughputBenchmark {
+
+    private static final String[] QUERIES = {
+            "How do I configure the semantic cache similarity threshold?",
+            "What happens when the LLM call times out?",
+            "Which metrics does the retriever export for Weaviate latency?",
+            "How is the hybrid retrieval result fused?",
+            "Explain how KEDA scales the orchestrator deployment.",
+            "Where are the sample documents ingested from?",
+            "What is the default top-k for retrieval?",
+            "How do I deploy the model server on GKE with a GPU?"
+    };
+
+    @Param({"1", "2", "4", "8"})
+    private int intraOpThreads;
+
+    @Param({"1", "32"})
+    private int maxBatchSize;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private BatchingEmbeddingService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String modelDir = System.getProperty("embedding.model-dir");
+        if (modelDir == null) {
+            throw new IllegalStateException("Run with -Dembedding.model-dir=<dir with model.onnx and vocab.txt>");
+        }
+        OnnxEmbeddingModel model = new OnnxEmbeddingModel(Path.of(modelDir), 256, intraOpThreads);
+        service = new BatchingEmbeddingService(model, maxBatchSize, Duration.ofMillis(2), 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public float[] embed() {
+        return service.embed(QUERIES[Math.floorMod(next.getAndIncrement(), QUERIES.length)]);
+    }
+}
@@ -0,0 +1,131 @@
+package me.aboullaite.rag.common.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OnnxEmbeddingModelTest {
+
+    private static final List<String> VOCAB = List.of("[PAD]", "[UNK]", "[CLS]", "[SEP]", "cache", "hit", "miss");
+    private static final int DIMENSIONS = 4;
+
+    @TempDir
+    Path modelDir;
+
+    @Test
+    void meanPoolsTokenEmbeddingsOverTheAttentionMask() throws Exception {
+        // Token i embeds to row i of the table: [i, 1, 0, 0].
+        float[] table = new float[VOCAB.size() * DIMENSIONS];
+        for (int i = 0; i < VOCAB.size(); i++) {
+            table[i * DIMENSIONS] = i;
+            table[i * DIMENSIONS + 1] = 1;
+        }
+        Files.write(modelDir.resolve("model.onnx"), gatherModel(table, VOCAB.size(), DIMENSIONS));
+        Files.write(modelDir.resolve("vocab.txt"), VOCAB);
+
+        try (OnnxEmbeddingModel model = new OnnxEmbeddingModel(modelDir, 16, 1)) {
+            float[][] vectors = model.embed(List.of("cache", "cache hit miss"));
+
+            // [CLS]=2 cache=4 [SEP]=3 -> mean [3, 1, 0, 0]; padding of the shorter text is ignored.
+            assertThat(vectors[0]).containsExactly(
+                    new float[] {(float) (3 / Math.sqrt(10)), (float) (1 / Math.sqrt(10)), 0, 0}, within(1e-6f));
+            // [CLS] cache hit miss [SEP] = 2,4,5,6,3 -> mean [4, 1, 0, 0]
+            assertThat(vectors[1]).containsExactly(
+                    new float[] {(float) (4 / Math.sqrt(17)), (float) (1 / Math.sqrt(17)), 0, 0}, within(1e-6f));
+            assertThat(model.embed(List.of("cache"))[0]).containsExactly(vectors[0], within(1e-6f));
+        }
+    }
+
+    /**
+     * ONNX graph {@code last_hidden_state = Gather(table, input_ids)} with an unused
+     * {@code attention_mask} input, encoded by hand as protobuf.
+     */
+    private static byte[] gatherModel(float[] table, int vocabSize, int dimensions) {
+        ByteBuffer raw = ByteBuffer.allocate(table.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : table) {
+            raw.putFloat(value);
+        }
+        Proto initializer = new Proto()
+                .varint(1, vocabSize)
+                .varint(1, dimensions)
+                .varint(2, 1)
+                .string(8, "table")
+                .bytes(9, raw.array());
+        Proto node = new Proto()
+                .string(1, "table")
+                .string(1, "input_ids")
+                .string(2, "last_hidden_state")
+                .string(3, "gather")
+                .string(4, "Gather");
+        Proto graph = new Proto()
+                .message(1, node)
+                .string(2, "tiny-embedding")
+                .message(5, initializer)
+                .message(11, valueInfo("input_ids", 7, "batch", "sequence"))
+                .message(11, valueInfo("attention_mask", 7, "batch", "sequence"))
+                .message(12, valueInfo("last_hidden_state", 1, "batch", "sequence", String.valueOf(dimensions)));
+        return new Proto()
+                .varint(1, 8)
+                .message(7, graph)
+                .message(8, new Proto().string(1, "").varint(2, 13))
+                .toByteArray();
+    }
+
+    private static Proto valueInfo(String name, int elementType, String... dims) {
+        Proto shape = new Proto();
+        for (String dim : dims) {
+            shape.message(1, dim.chars().allMatch(Character::isDigit)
+                    ? new Proto().varint(1, Long.parseLong(dim))
+                    : new Proto().string(2, dim));
+        }
+        Proto tensorType = new Proto().varint(1, elementType).message(2, shape);
+        return new Proto().string(1, name).message(2, new Proto().message(1, tensorType));
+    }
+
+    private static final class Proto {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Proto varint(int field, long value) {
+            writeVarint((long) field << 3);
+            writeVarint(value);
+            return this;
+        }
+
+        Proto string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Proto message(int field, Proto message) {
+            return bytes(field, message.toByteArray());
+        }
+
+        Proto bytes(int field, byte[] value) {
+            writeVarint(((long) field << 3) | 2);
+            writeVarint(value.length);
+            out.writeBytes(value);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
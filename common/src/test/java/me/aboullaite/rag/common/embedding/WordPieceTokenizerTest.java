@@ -0,0 +1,28 @@
+package me.aboullaite.rag.common.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class WordPieceTokenizerTest {
+
+    private final WordPieceTokenizer tokenizer = new WordPieceTokenizer(List.of(
+            "[PAD]", "[UNK]", "[CLS]", "[SEP]", "the", "cache", "semantic", "embed", "##ding", "##s", "!", "cafe"));
+
+    @Test
+    void splitsPunctuationAndWordPieces() {
+        assertThat(tokenizer.encode("The semantic Embeddings!", 32))
+                .containsExactly(2, 4, 6, 7, 8, 9, 10, 3);
+    }
+
+    @Test
+    void lowercasesStripsAccentsAndMapsUnknownWords() {
+        assertThat(tokenizer.encode("Café  retriever", 32)).containsExactly(2, 11, 1, 3);
+    }
+
+    @Test
+    void truncatesToMaxLengthKeepingSeparator() {
+        assertThat(tokenizer.encode("the cache the cache the cache", 4)).containsExactly(2, 4, 5, 3);
+    }
+}
@@ -0,0 +1,97 @@
+package me.aboullaite.rag.common.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+class HttpClientFactoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private DisposableServer server;
+    private HttpClientFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(registry);
+        // Echoes the protocol the request arrived over; /slow answers after half a second.
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(routes -> routes
+                        .get("/protocol", (request, response) -> response.sendString(Mono.just(request.protocol())))
+                        .get("/slow", (request, response) -> response.sendString(
+                                Mono.just("late").delayElement(Duration.ofMillis(500)))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (factory != null) {
+            factory.close();
+        }
+        server.disposeNow();
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    void h2cClientSpeaksHttp2AndReportsItsPool() {
+        HttpClientProperties.Client settings = new HttpClientProperties.Client();
+        settings.setProtocol(HttpClientProperties.Protocol.H2C);
+        factory = new HttpClientFactory(properties("retriever", settings));
+
+        String protocol = get("retriever", "/protocol");
+
+        assertThat(protocol).isEqualTo("HTTP/2.0");
+        assertThat(registry.find("reactor.netty.connection.provider.total.connections").tag("name", "retriever").gauges())
+                .isNotEmpty();
+    }
+
+    @Test
+    void unconfiguredClientsUseHttp11Defaults() {
+        factory = new HttpClientFactory(new HttpClientProperties());
+
+        assertThat(get("llm", "/protocol")).isEqualTo("HTTP/1.1");
+        assertThat(registry.find("reactor.netty.connection.provider.max.connections").tag("name", "llm").gauge().value())
+                .isEqualTo(100);
+    }
+
+    @Test
+    void responseTimeoutAppliesPerClient() {
+        HttpClientProperties.Client settings = new HttpClientProperties.Client();
+        settings.setResponseTimeoutMs(50);
+        factory = new HttpClientFactory(properties("weaviate", settings));
+
+        assertThatThrownBy(() -> get("weaviate", "/slow"))
+                .isInstanceOf(ReadTimeoutException.class);
+        assertThat(get("llm", "/slow")).isEqualTo("late");
+    }
+
+    private String get(String client, String path) {
+        return factory.create(client)
+                .baseUrl("http://localhost:" + server.port())
+                .get()
+                .uri(path)
+                .responseContent()
+                .aggregate()
+                .asString()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static HttpClientProperties properties(String name, HttpClientProperties.Client settings) {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setClients(Map.of(name, settings));
+        return properties;
+    }
+}
@@ -0,0 +1,182 @@
+package me.aboullaite.rag.common.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Top-10 search over an {@link EmbeddedIndex} against an exact scan of the same vectors on the
+ * heap, unfiltered and with a metadata filter matching half or 1% of the chunks. Vectors are drawn
+ * around {@value #TOPICS} random centroids, since sentence embeddings cluster by topic; uniform
+ * noise is a worst case no HNSW index handles well. Setup prints the build and open time and the
+ * recall@10 of the index search against the exact scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class EmbeddedIndexBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 256;
+    private static final int TOPICS = 256;
+
+    @Param({"10000", "50000"})
+    public int size;
+
+    @Param({"384"})
+    public int dimensions;
+
+    @Param({"none", "half", "rare"})
+    public String filter;
+
+    private float[][] vectors;
+    private float[][] centroids;
+    private String[] buckets;
+    private float[][] queries;
+    private Map<String, String> filters;
+    private Path file;
+    private EmbeddedIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        centroids = new float[TOPICS][];
+        for (int i = 0; i < TOPICS; i++) {
+            centroids[i] = normalize(gaussian(random, 1));
+        }
+        vectors = new float[size][];
+        buckets = new String[size];
+        List<IndexedChunk> chunks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            vectors[i] = normalize(randomVector(random));
+            buckets[i] = String.valueOf(i % 100);
+            chunks.add(new IndexedChunk("chunk-" + i, vectors[i], "text " + i,
+                    Map.of("half", String.valueOf(i % 2), "rare", buckets[i])));
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = normalize(randomVector(random));
+        }
+        filters = switch (filter) {
+            case "half" -> Map.of("half", "0");
+            case "rare" -> Map.of("rare", "0");
+            default -> Map.of();
+        };
+
+        file = Files.createTempFile("embedded-index", ".bin");
+        long start = System.nanoTime();
+        EmbeddedIndexWriter.write(file, chunks);
+        long built = System.nanoTime();
+        index = EmbeddedIndex.open(file);
+        long opened = System.nanoTime();
+
+        int found = 0;
+        for (float[] query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (int id : exact(query)) {
+                expected.add("chunk-" + id);
+            }
+            for (EmbeddedIndex.Match match : index.search(query, filters, K)) {
+                if (expected.contains(match.id())) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%n%d x %d, filter=%s: built in %d ms, %d MiB, opened in %.2f ms, recall@%d %.3f%n",
+                size, dimensions, filter, (built - start) / 1_000_000, Files.size(file) >> 20,
+                (opened - built) / 1e6, K, found / (double) (QUERIES * K));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<EmbeddedIndex.Match> index() {
+        return index.search(queries[next++ & (QUERIES - 1)], filters, K);
+    }
+
+    @Benchmark
+    public int[] exactScan() {
+        return exact(queries[next++ & (QUERIES - 1)]);
+    }
+
+    private int[] exact(float[] query) {
+        String bucket = filters.isEmpty() ? null : filters.values().iterator().next();
+        boolean byHalf = filters.containsKey("half");
+        PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < vectors.length; i++) {
+            if (bucket != null && !(byHalf ? String.valueOf(i % 2).equals(bucket) : buckets[i].equals(bucket))) {
+                continue;
+            }
+            double score = 0;
+            float[] vector = vectors[i];
+            for (int d = 0; d < vector.length; d++) {
+                score += query[d] * vector[d];
+            }
+            if (best.size() < K || score > best.peek()[0]) {
+                best.add(new double[] {score, i});
+                if (best.size() > K) {
+                    best.poll();
+                }
+            }
+        }
+        return best.stream().mapToInt(entry -> (int) entry[1]).toArray();
+    }
+
+    /** A centroid plus noise of about 0.6 of its length. */
+    private float[] randomVector(SplittableRandom random) {
+        float[] centroid = centroids[random.nextInt(TOPICS)];
+        float[] vector = gaussian(random, 0.6 / Math.sqrt(dimensions));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] += centroid[i];
+        }
+        return vector;
+    }
+
+    private float[] gaussian(SplittableRandom random, double sigma) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextGaussian() * sigma);
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,147 @@
+package me.aboullaite.rag.common.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddedIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void returnsChunksWithTheirMetadataFromTheMappedFile() throws IOException {
+        Path file = dir.resolve("index.bin");
+        EmbeddedIndexWriter.write(file, List.of(
+                new IndexedChunk("a", new float[] {1, 0, 0}, "Alpha", Map.of("docId", "doc-1", "source", "a.md")),
+                new IndexedChunk("b", new float[] {0, 2, 0}, "Beta é", Map.of("docId", "doc-2", "source", "b.md")),
+                new IndexedChunk("c", new float[] {0.9f, 0.1f, 0}, "Gamma", Map.of("docId", "doc-1", "source", "c.md"))));
+
+        EmbeddedIndex index = EmbeddedIndex.open(file);
+        List<EmbeddedIndex.Match> matches = index.search(new float[] {0, 5, 0}, Map.of(), 2);
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(matches).extracting(EmbeddedIndex.Match::id).containsExactly("b", "c");
+        assertThat(matches.getFirst().text()).isEqualTo("Beta é");
+        assertThat(matches.getFirst().meta()).containsEntry("docId", "doc-2").containsEntry("source", "b.md");
+        assertThat(matches.getFirst().similarity()).isCloseTo(1.0, offset(1e-6));
+    }
+
+    @Test
+    void filtersAreAndedAndUnknownValuesMatchNothing() throws IOException {
+        Path file = dir.resolve("index.bin");
+        EmbeddedIndexWriter.write(file, List.of(
+                new IndexedChunk("a", new float[] {1, 0}, "Alpha", Map.of("docId", "doc-1", "source", "a.md")),
+                new IndexedChunk("b", new float[] {1, 0.1f}, "Beta", Map.of("docId", "doc-1", "source", "b.md")),
+                new IndexedChunk("c", new float[] {0, 1}, "Gamma", Map.of("docId", "doc-2", "source", "b.md"))));
+        EmbeddedIndex index = EmbeddedIndex.open(file);
+
+        assertThat(index.search(new float[] {1, 0}, Map.of("source", "b.md"), 5))
+                .extracting(EmbeddedIndex.Match::id).containsExactly("b", "c");
+        assertThat(index.search(new float[] {1, 0}, Map.of("source", "b.md", "docId", "doc-2"), 5))
+                .extracting(EmbeddedIndex.Match::id).containsExactly("c");
+        assertThat(index.search(new float[] {1, 0}, Map.of("source", "z.md"), 5)).isEmpty();
+        assertThat(index.search(new float[] {1, 0}, Map.of("lang", "en"), 5)).isEmpty();
+    }
+
+    @Test
+    void groupsCountTheChunksOfEachValue() throws IOException {
+        Path file = dir.resolve("index.bin");
+        EmbeddedIndexWriter.write(file, List.of(
+                new IndexedChunk("a", new float[] {1, 0}, "Alpha", Map.of("docId", "doc-2", "source", "b.md")),
+                new IndexedChunk("b", new float[] {1, 0.1f}, "Beta", Map.of("docId", "doc-1", "source", "a.md")),
+                new IndexedChunk("c", new float[] {0, 1}, "Gamma", Map.of("docId", "doc-2", "source", "b.md"))));
+        EmbeddedIndex index = EmbeddedIndex.open(file);
+
+        List<EmbeddedIndex.Group> groups = index.groups("docId");
+
+        assertThat(groups).extracting(EmbeddedIndex.Group::value, EmbeddedIndex.Group::count)
+                .containsExactly(tuple("doc-1", 1), tuple("doc-2", 2));
+        assertThat(groups.get(1).first().id()).isEqualTo("a");
+        assertThat(groups.get(1).first().meta()).containsEntry("source", "b.md");
+        assertThat(index.groups("lang")).isEmpty();
+    }
+
+    @Test
+    void graphSearchFindsNearlyAllExactNeighbours() throws IOException {
+        int count = 6000;
+        int dimensions = 32;
+        SplittableRandom random = new SplittableRandom(7);
+        List<IndexedChunk> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add(new IndexedChunk("chunk-" + i, randomVector(random, dimensions), "text " + i,
+                    Map.of("shard", String.valueOf(i % 2))));
+        }
+        Path file = dir.resolve("index.bin");
+        EmbeddedIndexWriter.write(file, chunks);
+        EmbeddedIndex index = EmbeddedIndex.open(file);
+
+        int found = 0;
+        int foundFiltered = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random, dimensions);
+            found += overlap(index.search(query, Map.of(), 10), exact(chunks, query, null));
+            foundFiltered += overlap(index.search(query, Map.of("shard", "1"), 10), exact(chunks, query, "1"));
+        }
+
+        assertThat(found / (queries * 10.0)).isGreaterThan(0.9);
+        assertThat(foundFiltered / (queries * 10.0)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAnIndex() throws IOException {
+        Path file = Files.write(dir.resolve("other.bin"), new byte[128]);
+
+        assertThatThrownBy(() -> EmbeddedIndex.open(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int overlap(List<EmbeddedIndex.Match> matches, Set<String> expected) {
+        return (int) matches.stream().map(EmbeddedIndex.Match::id).filter(expected::contains).count();
+    }
+
+    private static Set<String> exact(List<IndexedChunk> chunks, float[] query, String shard) {
+        return new HashSet<>(IntStream.range(0, chunks.size())
+                .filter(i -> shard == null || shard.equals(chunks.get(i).meta().get("shard")))
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> cosine(query, chunks.get(i).vector())).reversed())
+                .limit(10)
+                .map(i -> chunks.get(i).id())
+                .toList());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(SplittableRandom random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
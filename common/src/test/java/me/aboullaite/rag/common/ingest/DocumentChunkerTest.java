@@ -0,0 +1,31 @@
+package me.aboullaite.rag.common.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DocumentChunkerTest {
+
+    @Test
+    void chunkIdsMatchTheIngestScript() {
+        // str(uuid.UUID(hashlib.md5(b"doc-01-overview:0").hexdigest()))
+        assertThat(DocumentChunker.chunkId("doc-01-overview", 0)).isEqualTo("6e838db7-d0ec-e1e0-0e3d-30a5f8a90da6");
+    }
+
+    @Test
+    void packsParagraphsUpToTheLimitAndKeepsTheFirstAsSection() {
+        String first = "# Title";
+        String long1 = "a".repeat(500);
+        String long2 = "b".repeat(500);
+        List<DocumentChunker.Chunk> chunks = DocumentChunker.chunk("doc", "doc.md", first + "\n\n  " + long1 + "\n\n\n\n" + long2 + "\n");
+
+        assertThat(chunks).extracting(DocumentChunker.Chunk::text)
+                .containsExactly(first + "\n\n" + long1, long2);
+        assertThat(chunks).extracting(DocumentChunker.Chunk::id)
+                .containsExactly(DocumentChunker.chunkId("doc", 0), DocumentChunker.chunkId("doc", 1));
+        assertThat(chunks.getFirst().meta()).containsEntry("docId", "doc")
+                .containsEntry("source", "doc.md")
+                .containsEntry("section", first);
+    }
+}
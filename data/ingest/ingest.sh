@@ -2,14 +2,13 @@
 set -euo pipefail
 
 SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
-
-if ! command -v python3 >/dev/null 2>&1; then
-  echo "python3 is required to run the ingestion script" >&2
-  exit 1
-fi
+ROOT_DIR="$SCRIPT_DIR/../.."
 
 export WEAVIATE_URL="${WEAVIATE_URL:-http://localhost:8080}"
-export DOCS_PATH="${DOCS_PATH:-$SCRIPT_DIR/../docs}"
+export DOCS_PATH="${DOCS_PATH:-$ROOT_DIR/data/docs}"
 
 echo "Using Weaviate endpoint: ${WEAVIATE_URL}"
-python3 "$SCRIPT_DIR/ingest.py"
+cd "$ROOT_DIR"
+./mvnw -q -pl ingest -am -DskipTests install
+./mvnw -q -pl ingest exec:exec -Dexec.executable=java \
+  -Dexec.args="-cp %classpath me.aboullaite.rag.ingest.IngestApplication"
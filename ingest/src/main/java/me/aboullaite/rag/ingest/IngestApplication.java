@@ -0,0 +1,13 @@
+package me.aboullaite.rag.ingest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class IngestApplication {
+
+    public static void main(String[] args) {
+        // A batch job: exit once the runner is done, with a non-zero code if it failed.
+        System.exit(SpringApplication.exit(SpringApplication.run(IngestApplication.class, args)));
+    }
+}
@@ -0,0 +1,84 @@
+package me.aboullaite.rag.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.embedding.EmbeddingProperties;
+import me.aboullaite.rag.ingest.config.IngestProperties;
+import me.aboullaite.rag.ingest.pipeline.IngestManifest;
+import me.aboullaite.rag.ingest.pipeline.IngestPipeline;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+@Component
+public class IngestRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestRunner.class);
+
+    private final IngestPipeline pipeline;
+    private final IngestProperties properties;
+    private final EmbeddingProperties embeddingProperties;
+    private final ObjectMapper mapper;
+
+    public IngestRunner(IngestPipeline pipeline, IngestProperties properties, EmbeddingProperties embeddingProperties,
+                        ObjectMapper mapper) {
+        this.pipeline = pipeline;
+        this.properties = properties;
+        this.embeddingProperties = embeddingProperties;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path manifestPath = manifestPath();
+        String embedding = embedding();
+        IngestManifest previous = manifestPath == null
+                ? IngestManifest.empty(embedding)
+                : IngestManifest.read(manifestPath, mapper, embedding);
+        if (properties.isFull()) {
+            previous = previous.withoutHashes();
+        }
+
+        IngestPipeline.Report report = pipeline.run(Path.of(properties.getDocsPath()), previous).block();
+        if (manifestPath != null) {
+            report.manifest().write(manifestPath, mapper);
+        }
+        if (StringUtils.hasText(properties.getChangedDocsOutput())) {
+            Path output = Path.of(properties.getChangedDocsOutput());
+            Path parent = output.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Files.write(output, report.changedDocs());
+        }
+        log.info("Ingestion complete. Files: {}, chunks written: {}, unchanged: {}, deleted: {}, changed docs: {}, "
+                        + "{} ms, {} docs/s, {} chunks/s",
+                report.files(), report.chunks(), report.unchanged(), report.deleted(), report.changedDocs().size(),
+                report.elapsed().toMillis(), String.format("%.1f", report.docsPerSecond()),
+                String.format("%.1f", report.chunksPerSecond()));
+    }
+
+    private Path manifestPath() {
+        if (!StringUtils.hasText(properties.getManifestPath())) {
+            return null;
+        }
+        if (!properties.isDryRun()) {
+            return Path.of(properties.getManifestPath());
+        }
+        // An embedded index is rebuilt from every chunk, so it has nothing to diff against.
+        return properties.getDryRunFormat() == IngestProperties.DryRunFormat.EMBEDDED_INDEX
+                ? null
+                : Path.of(properties.getDryRunOutput() + ".manifest.json");
+    }
+
+    /** Identifies the vectors in the stores; a manifest written with other vectors is not trusted. */
+    private String embedding() {
+        String provider = embeddingProperties.getProvider().name().toLowerCase();
+        return embeddingProperties.getProvider() == EmbeddingProperties.Provider.ONNX
+                ? provider + ":" + embeddingProperties.getModelDir() + ":" + embeddingProperties.getMaxSequenceLength()
+                : provider;
+    }
+}
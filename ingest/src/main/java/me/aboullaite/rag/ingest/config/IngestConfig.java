@@ -0,0 +1,60 @@
+package me.aboullaite.rag.ingest.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.embedding.EmbeddingConfiguration;
+import me.aboullaite.rag.common.embedding.EmbeddingService;
+import me.aboullaite.rag.common.http.HttpClientConfiguration;
+import me.aboullaite.rag.common.http.HttpClientFactory;
+import me.aboullaite.rag.ingest.pipeline.ChunkSink;
+import me.aboullaite.rag.ingest.pipeline.EmbeddedIndexSink;
+import me.aboullaite.rag.ingest.pipeline.IngestPipeline;
+import me.aboullaite.rag.ingest.pipeline.JsonlSink;
+import me.aboullaite.rag.ingest.pipeline.RemoteSink;
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+@EnableConfigurationProperties(IngestProperties.class)
+@Import({EmbeddingConfiguration.class, HttpClientConfiguration.class})
+public class IngestConfig {
+
+    @Bean
+    IngestPipeline ingestPipeline(EmbeddingService embeddingService, ChunkSink sink, IngestProperties properties) {
+        return new IngestPipeline(embeddingService, sink, properties.getReadConcurrency(),
+                properties.getEmbedConcurrency(), properties.getBatchSize(), properties.getMaxInFlightBatches());
+    }
+
+    /** The pipeline closes the sink when the run ends; Spring must not close it a second time. */
+    @Bean(destroyMethod = "")
+    ChunkSink chunkSink(WebClient.Builder builder, HttpClientFactory httpClients, ObjectMapper mapper,
+                        IngestProperties properties) {
+        if (properties.isDryRun()) {
+            Path output = Path.of(properties.getDryRunOutput());
+            return properties.getDryRunFormat() == IngestProperties.DryRunFormat.EMBEDDED_INDEX
+                    ? new EmbeddedIndexSink(output)
+                    : new JsonlSink(output, mapper);
+        }
+        return new RemoteSink(
+                client(builder, httpClients, "weaviate", properties.getWeaviateUrl()),
+                client(builder, httpClients, "opensearch", properties.getOpensearchUrl()),
+                client(builder, httpClients, "orchestrator", properties.getOrchestratorUrl()),
+                mapper,
+                properties.getWeaviateClassName(),
+                properties.getOpensearchIndex());
+    }
+
+    private static WebClient client(WebClient.Builder builder, HttpClientFactory httpClients, String name, String url) {
+        if (!StringUtils.hasText(url)) {
+            return null;
+        }
+        return builder.clone()
+                .baseUrl(url)
+                .clientConnector(httpClients.connector(name))
+                .build();
+    }
+}
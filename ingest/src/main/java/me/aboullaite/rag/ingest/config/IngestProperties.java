@@ -0,0 +1,224 @@
+package me.aboullaite.rag.ingest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ingest")
+public class IngestProperties {
+
+    /**
+     * Directory whose files are ingested, one document per file.
+     */
+    private String docsPath = "data/docs";
+
+    /**
+     * Base URL for Weaviate, e.g. http://weaviate:8080.
+     */
+    private String weaviateUrl = "http://localhost:8080";
+
+    /**
+     * Weaviate class the chunks are written to; must match weaviate.class-name in the retriever.
+     */
+    private String weaviateClassName = "Doc";
+
+    /**
+     * Optional OpenSearch URL; when set, every batch is also bulk-indexed for lexical search.
+     */
+    private String opensearchUrl;
+
+    /**
+     * OpenSearch index searched by the retriever.
+     */
+    private String opensearchIndex = "rag-docs";
+
+    /**
+     * Optional orchestrator URL; when set, cached answers citing re-ingested chunks are evicted.
+     */
+    private String orchestratorUrl;
+
+    /**
+     * Files read and chunked concurrently, each on its own virtual thread.
+     */
+    private int readConcurrency = 16;
+
+    /**
+     * Chunks being embedded at once; enough to let a batching embedding service fill its batches.
+     */
+    private int embedConcurrency = 256;
+
+    /**
+     * Chunks per Weaviate batch and OpenSearch bulk request.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Batches being written at once; embedding pauses when all of them are waiting on the stores.
+     */
+    private int maxInFlightBatches = 4;
+
+    /**
+     * Chunk hashes of the last successful run; chunks whose hash did not change are skipped and
+     * chunks that disappeared are deleted. Blank writes every chunk. A dry run keeps its manifest
+     * next to dryRunOutput instead, so it never marks chunks as written to the stores.
+     */
+    private String manifestPath = "data/ingest-manifest.json";
+
+    /**
+     * Write every chunk even if the manifest has it, e.g. after the stores were wiped; removed
+     * chunks are still deleted.
+     */
+    private boolean full = false;
+
+    /**
+     * Optional file receiving the docIds whose chunks were written or deleted, one per line.
+     */
+    private String changedDocsOutput;
+
+    /**
+     * Write to dryRunOutput instead of Weaviate and OpenSearch, to measure throughput offline.
+     */
+    private boolean dryRun = false;
+
+    /**
+     * File written in dry-run mode.
+     */
+    private String dryRunOutput = "data/ingest-dry-run.jsonl";
+
+    /**
+     * jsonl: one object per written or deleted chunk; embedded-index: a file the retriever can
+     * open with retriever.vector-store=embedded, always built from every chunk.
+     */
+    private DryRunFormat dryRunFormat = DryRunFormat.JSONL;
+
+    public String getDocsPath() {
+        return docsPath;
+    }
+
+    public void setDocsPath(String docsPath) {
+        this.docsPath = docsPath;
+    }
+
+    public String getWeaviateUrl() {
+        return weaviateUrl;
+    }
+
+    public void setWeaviateUrl(String weaviateUrl) {
+        this.weaviateUrl = weaviateUrl;
+    }
+
+    public String getWeaviateClassName() {
+        return weaviateClassName;
+    }
+
+    public void setWeaviateClassName(String weaviateClassName) {
+        this.weaviateClassName = weaviateClassName;
+    }
+
+    public String getOpensearchUrl() {
+        return opensearchUrl;
+    }
+
+    public void setOpensearchUrl(String opensearchUrl) {
+        this.opensearchUrl = opensearchUrl;
+    }
+
+    public String getOpensearchIndex() {
+        return opensearchIndex;
+    }
+
+    public void setOpensearchIndex(String opensearchIndex) {
+        this.opensearchIndex = opensearchIndex;
+    }
+
+    public String getOrchestratorUrl() {
+        return orchestratorUrl;
+    }
+
+    public void setOrchestratorUrl(String orchestratorUrl) {
+        this.orchestratorUrl = orchestratorUrl;
+    }
+
+    public int getReadConcurrency() {
+        return readConcurrency;
+    }
+
+    public void setReadConcurrency(int readConcurrency) {
+        this.readConcurrency = readConcurrency;
+    }
+
+    public int getEmbedConcurrency() {
+        return embedConcurrency;
+    }
+
+    public void setEmbedConcurrency(int embedConcurrency) {
+        this.embedConcurrency = embedConcurrency;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
+    public String getManifestPath() {
+        return manifestPath;
+    }
+
+    public void setManifestPath(String manifestPath) {
+        this.manifestPath = manifestPath;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public String getChangedDocsOutput() {
+        return changedDocsOutput;
+    }
+
+    public void setChangedDocsOutput(String changedDocsOutput) {
+        this.changedDocsOutput = changedDocsOutput;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getDryRunOutput() {
+        return dryRunOutput;
+    }
+
+    public void setDryRunOutput(String dryRunOutput) {
+        this.dryRunOutput = dryRunOutput;
+    }
+
+    public DryRunFormat getDryRunFormat() {
+        return dryRunFormat;
+    }
+
+    public void setDryRunFormat(DryRunFormat dryRunFormat) {
+        this.dryRunFormat = dryRunFormat;
+    }
+
+    public enum DryRunFormat {
+        JSONL,
+        EMBEDDED_INDEX
+    }
+}
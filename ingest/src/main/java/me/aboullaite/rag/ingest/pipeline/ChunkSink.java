@@ -0,0 +1,27 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import me.aboullaite.rag.common.index.IndexedChunk;
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/**
+ * Where embedded chunks end up. {@link #write} may be called with several batches in flight at
+ * once; the pipeline stops embedding until one of them completes.
+ */
+public interface ChunkSink {
+
+    default Mono<Void> open() {
+        return Mono.empty();
+    }
+
+    Mono<Void> write(List<IndexedChunk> batch);
+
+    /** Removes chunks an earlier run wrote; only called when the pipeline diffs against a manifest. */
+    default Mono<Void> delete(List<String> ids) {
+        return Mono.error(new UnsupportedOperationException(getClass().getSimpleName() + " cannot delete chunks"));
+    }
+
+    default Mono<Void> close() {
+        return Mono.empty();
+    }
+}
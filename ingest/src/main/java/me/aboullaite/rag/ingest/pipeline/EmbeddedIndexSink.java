@@ -0,0 +1,45 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import me.aboullaite.rag.common.index.EmbeddedIndexWriter;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import reactor.core.publisher.Mono;
+
+/**
+ * Dry-run sink that builds an {@link me.aboullaite.rag.common.index.EmbeddedIndex} file. The
+ * graph needs every vector, so chunks are collected and the file is written on close; they are
+ * sorted by id first so the same documents always produce the same file.
+ */
+public class EmbeddedIndexSink implements ChunkSink {
+
+    private final Path output;
+    private final ConcurrentLinkedQueue<IndexedChunk> chunks = new ConcurrentLinkedQueue<>();
+
+    public EmbeddedIndexSink(Path output) {
+        this.output = output;
+    }
+
+    @Override
+    public Mono<Void> write(List<IndexedChunk> batch) {
+        return Mono.fromRunnable(() -> chunks.addAll(batch));
+    }
+
+    @Override
+    public Mono<Void> close() {
+        return Mono.fromCallable(() -> {
+            List<IndexedChunk> sorted = new ArrayList<>(chunks);
+            sorted.sort(Comparator.comparing(IndexedChunk::id));
+            Path parent = output.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            EmbeddedIndexWriter.write(output, sorted);
+            return output;
+        }).then();
+    }
+}
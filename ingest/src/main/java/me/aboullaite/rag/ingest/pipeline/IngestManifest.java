@@ -0,0 +1,108 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * What the stores hold after the last successful run: for each docId, the content hash of each
+ * of its chunk ids. A run diffs the documents it reads against it and only embeds and writes the
+ * chunks whose hash changed, then deletes the ids that are gone. Vectors are only comparable
+ * within one embedding model, so a manifest written with another one keeps its ids (removed
+ * chunks are still deleted) but none of its hashes, and every chunk is written again.
+ */
+public final class IngestManifest {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestManifest.class);
+    private static final int VERSION = 1;
+
+    private final String embedding;
+    private final Map<String, Map<String, String>> documents;
+
+    public IngestManifest(String embedding, Map<String, Map<String, String>> documents) {
+        this.embedding = embedding;
+        this.documents = documents;
+    }
+
+    public static IngestManifest empty(String embedding) {
+        return new IngestManifest(embedding, Map.of());
+    }
+
+    public static IngestManifest read(Path path, ObjectMapper mapper, String embedding) throws IOException {
+        if (Files.notExists(path)) {
+            return empty(embedding);
+        }
+        Stored stored = mapper.readValue(path.toFile(), Stored.class);
+        if (stored.version() == VERSION && embedding.equals(stored.embedding())) {
+            return new IngestManifest(embedding, stored.documents());
+        }
+        log.info("Manifest {} was written with embedding {}, not {}; every chunk is written again",
+                path, stored.embedding(), embedding);
+        return new IngestManifest(embedding, stored.documents()).withoutHashes();
+    }
+
+    /** The same chunk ids with no hashes: every chunk is written again, removed ones still deleted. */
+    public IngestManifest withoutHashes() {
+        Map<String, Map<String, String>> idsOnly = new HashMap<>();
+        documents.forEach((docId, chunks) -> {
+            Map<String, String> ids = new HashMap<>();
+            chunks.keySet().forEach(id -> ids.put(id, ""));
+            idsOnly.put(docId, ids);
+        });
+        return new IngestManifest(embedding, idsOnly);
+    }
+
+    /** Written next to {@code path} and moved into place, so a failed run leaves the previous one. */
+    public void write(Path path, ObjectMapper mapper) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            mapper.writeValue(tmp.toFile(), new Stored(VERSION, embedding, new TreeMap<>(documents)));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public String embedding() {
+        return embedding;
+    }
+
+    /** Chunk id to content hash, per docId. */
+    public Map<String, Map<String, String>> documents() {
+        return documents;
+    }
+
+    /**
+     * SHA-256 of everything a chunk is stored with. Unlike the {@code DeterministicEmbedding}
+     * digest it keeps case and covers source and section, which are stored too.
+     */
+    public static String hash(DocumentChunker.Chunk chunk) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(chunk.source().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(chunk.section().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(chunk.text().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private record Stored(int version, String embedding, Map<String, Map<String, String>> documents) {
+    }
+}
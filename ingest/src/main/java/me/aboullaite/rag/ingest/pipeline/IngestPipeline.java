@@ -0,0 +1,191 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import me.aboullaite.rag.common.embedding.EmbeddingService;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Streams a directory of documents through chunking, embedding and a {@link ChunkSink}. Files are
+ * read and chunked on virtual threads, chunks are embedded concurrently so a batching embedding
+ * service can fill its batches, and embedded chunks are grouped into batches for the sink. Every
+ * stage is bounded and demand-driven: when all sink batches are in flight, embedding and reading
+ * stop until one completes, so a slow store slows the pipeline down instead of filling the heap.
+ *
+ * <p>Given the {@link IngestManifest} of the previous run, only chunks whose content hash changed
+ * are embedded and written, and chunks that disappeared (or whose document did) are deleted once
+ * every write has succeeded. The report carries the manifest to keep for the next run.
+ */
+public class IngestPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private final EmbeddingService embeddingService;
+    private final ChunkSink sink;
+    private final int readConcurrency;
+    private final int embedConcurrency;
+    private final int batchSize;
+    private final int maxInFlightBatches;
+
+    public IngestPipeline(EmbeddingService embeddingService, ChunkSink sink, int readConcurrency,
+                          int embedConcurrency, int batchSize, int maxInFlightBatches) {
+        this.embeddingService = embeddingService;
+        this.sink = sink;
+        this.readConcurrency = Math.max(1, readConcurrency);
+        this.embedConcurrency = Math.max(1, embedConcurrency);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlightBatches = Math.max(1, maxInFlightBatches);
+    }
+
+    /** Writes every chunk. */
+    public Mono<Report> run(Path docs) {
+        return run(docs, IngestManifest.empty(""));
+    }
+
+    public Mono<Report> run(Path docs, IngestManifest previous) {
+        return Mono.usingWhen(
+                Mono.fromSupplier(() -> Schedulers.fromExecutorService(
+                        Executors.newVirtualThreadPerTaskExecutor(), "ingest-reader")),
+                readers -> ingest(docs, previous, readers),
+                readers -> Mono.fromRunnable(readers::dispose));
+    }
+
+    private Mono<Report> ingest(Path docs, IngestManifest previous, Scheduler readers) {
+        return Mono.defer(() -> {
+            Run run = new Run(previous);
+            return sink.open()
+                    .thenMany(Flux.defer(() -> Flux.fromIterable(list(docs))))
+                    .flatMap(file -> Mono.fromCallable(() -> run.diff(file)).subscribeOn(readers), readConcurrency)
+                    .flatMapIterable(changed -> changed)
+                    .flatMap(chunk -> Mono.fromFuture(() -> embeddingService.embedAsync(chunk.text()))
+                            .map(vector -> new IndexedChunk(chunk.id(), vector, chunk.text(), chunk.meta())),
+                            embedConcurrency)
+                    .buffer(batchSize)
+                    .flatMap(batch -> sink.write(batch).thenReturn(batch.size()), maxInFlightBatches)
+                    .doOnNext(written -> {
+                        int total = run.written.addAndGet(written);
+                        log.debug("Wrote {} chunks from {} files", total, run.files.get());
+                    })
+                    .thenMany(Flux.defer(() -> Flux.fromIterable(run.removed())))
+                    .buffer(batchSize)
+                    .flatMap(ids -> sink.delete(ids).thenReturn(ids.size()), maxInFlightBatches)
+                    .doOnNext(run.deleted::addAndGet)
+                    .then(Mono.defer(sink::close))
+                    .then(Mono.fromSupplier(run::report));
+        });
+    }
+
+    private static List<Path> list(Path docs) {
+        try (Stream<Path> listing = Files.list(docs)) {
+            return listing.filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to list " + docs, ex);
+        }
+    }
+
+    /**
+     * @param chunks chunks written, including those rewritten because their content changed
+     * @param changedDocs documents with a chunk written or deleted, for downstream caches
+     */
+    public record Report(int files, int chunks, int unchanged, int deleted, SortedSet<String> changedDocs,
+                         Duration elapsed, IngestManifest manifest) {
+
+        public double docsPerSecond() {
+            return files / seconds();
+        }
+
+        public double chunksPerSecond() {
+            return chunks / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(elapsed.toNanos(), 1) / 1e9;
+        }
+    }
+
+    /** State of one run; documents are diffed concurrently on the reader threads. */
+    private static final class Run {
+
+        private final long start = System.nanoTime();
+        private final IngestManifest previous;
+        private final Map<String, Map<String, String>> current = new ConcurrentHashMap<>();
+        private final Set<String> changedDocs = ConcurrentHashMap.newKeySet();
+        private final Queue<String> removed = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger files = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger written = new AtomicInteger();
+        private final AtomicInteger deleted = new AtomicInteger();
+
+        private Run(IngestManifest previous) {
+            this.previous = previous;
+        }
+
+        /** Chunks the file and returns those the stores do not hold yet; queues the ids it no longer has. */
+        private List<DocumentChunker.Chunk> diff(Path file) throws IOException {
+            List<DocumentChunker.Chunk> chunks = DocumentChunker.chunk(file);
+            files.incrementAndGet();
+            if (chunks.isEmpty()) {
+                return chunks;
+            }
+            String docId = chunks.getFirst().docId();
+            Map<String, String> before = previous.documents().getOrDefault(docId, Map.of());
+            Map<String, String> hashes = new HashMap<>();
+            List<DocumentChunker.Chunk> changed = new ArrayList<>();
+            for (DocumentChunker.Chunk chunk : chunks) {
+                String hash = IngestManifest.hash(chunk);
+                hashes.put(chunk.id(), hash);
+                if (hash.equals(before.get(chunk.id()))) {
+                    unchanged.incrementAndGet();
+                } else {
+                    changed.add(chunk);
+                }
+            }
+            current.put(docId, hashes);
+            List<String> gone = before.keySet().stream().filter(id -> !hashes.containsKey(id)).toList();
+            removed.addAll(gone);
+            if (!changed.isEmpty() || !gone.isEmpty()) {
+                changedDocs.add(docId);
+            }
+            return changed;
+        }
+
+        /** Ids queued by {@link #diff} plus every chunk of the documents no file was found for. */
+        private Queue<String> removed() {
+            previous.documents().forEach((docId, chunks) -> {
+                if (!current.containsKey(docId)) {
+                    removed.addAll(chunks.keySet());
+                    changedDocs.add(docId);
+                }
+            });
+            return removed;
+        }
+
+        private Report report() {
+            return new Report(files.get(), written.get(), unchanged.get(), deleted.get(), new TreeSet<>(changedDocs),
+                    Duration.ofNanos(System.nanoTime() - start), new IngestManifest(previous.embedding(), current));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/**
+ * Dry-run sink: one JSON object per chunk, with its properties and vector, per line. Chunks a
+ * manifest diff removed are written as {@code {"id": ..., "deleted": true}}.
+ */
+public class JsonlSink implements ChunkSink {
+
+    private final Path output;
+    private final ObjectMapper mapper;
+    private BufferedWriter writer;
+
+    public JsonlSink(Path output, ObjectMapper mapper) {
+        this.output = output;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Mono<Void> open() {
+        return Mono.fromCallable(() -> {
+            Path parent = output.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+            return writer;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> write(List<IndexedChunk> batch) {
+        return Mono.fromCallable(() -> {
+            StringBuilder lines = new StringBuilder();
+            for (IndexedChunk chunk : batch) {
+                ObjectNode node = mapper.createObjectNode();
+                node.put("id", chunk.id());
+                chunk.meta().forEach(node::put);
+                node.put("chunk", chunk.text());
+                ArrayNode vector = node.putArray("vector");
+                for (float value : chunk.vector()) {
+                    vector.add(value);
+                }
+                lines.append(mapper.writeValueAsString(node)).append('\n');
+            }
+            append(lines);
+            return batch;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> delete(List<String> ids) {
+        return Mono.fromCallable(() -> {
+            StringBuilder lines = new StringBuilder();
+            for (String id : ids) {
+                ObjectNode node = mapper.createObjectNode();
+                node.put("id", id);
+                node.put("deleted", true);
+                lines.append(mapper.writeValueAsString(node)).append('\n');
+            }
+            append(lines);
+            return ids;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> close() {
+        return Mono.fromCallable(() -> {
+            writer.close();
+            return output;
+        }).then();
+    }
+
+    private synchronized void append(CharSequence lines) throws IOException {
+        writer.append(lines);
+    }
+}
@@ -0,0 +1,225 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Writes each batch to Weaviate ({@code /v1/batch/objects}) and, when configured, OpenSearch
+ * ({@code _bulk}) at the same time; the batch completes when both stores have accepted it. A 429
+ * or 5xx is retried with backoff, which also holds the pipeline back while a store sheds load.
+ * Objects either store rejects fail the run. Deletes go to both stores the same way; an id
+ * already missing is not an error. Once written or deleted, the batch's chunk ids are sent to the
+ * orchestrator so cached answers citing them are evicted.
+ */
+public class RemoteSink implements ChunkSink {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteSink.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int READY_ATTEMPTS = 30;
+    private static final Duration READY_INTERVAL = Duration.ofSeconds(2);
+    private static final int DELETE_CONCURRENCY = 8;
+
+    private final WebClient weaviate;
+    private final WebClient opensearch;
+    private final WebClient orchestrator;
+    private final ObjectMapper mapper;
+    private final String className;
+    private final String index;
+
+    public RemoteSink(WebClient weaviate, WebClient opensearch, WebClient orchestrator, ObjectMapper mapper,
+                      String className, String index) {
+        this.weaviate = weaviate;
+        this.opensearch = opensearch;
+        this.orchestrator = orchestrator;
+        this.mapper = mapper;
+        this.className = className;
+        this.index = index;
+    }
+
+    @Override
+    public Mono<Void> open() {
+        return weaviate.get()
+                .uri("/v1/.well-known/ready")
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.fixedDelay(READY_ATTEMPTS, READY_INTERVAL))
+                .onErrorMap(ex -> new IllegalStateException("Weaviate did not become ready in time", ex))
+                .then(weaviate.get()
+                        .uri("/v1/schema/{className}", className)
+                        .exchangeToMono(response -> response.releaseBody()
+                                .thenReturn(response.statusCode().is2xxSuccessful())))
+                .filter(exists -> !exists)
+                .flatMap(missing -> weaviate.post()
+                        .uri("/v1/schema")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(schema())
+                        .retrieve()
+                        .toBodilessEntity()
+                        .doOnSuccess(created -> log.info("Created Weaviate class {}", className)))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> write(List<IndexedChunk> batch) {
+        return Mono.when(writeWeaviate(batch), bulk(() -> bulkBody(batch)))
+                .then(invalidate(batch.stream().map(IndexedChunk::id).toList()));
+    }
+
+    @Override
+    public Mono<Void> delete(List<String> ids) {
+        Mono<Void> weaviateDeletes = Flux.fromIterable(ids)
+                .flatMap(id -> weaviate.delete()
+                        .uri("/v1/objects/{className}/{id}", className, id)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .retryWhen(retryTransient())
+                        .onErrorResume(WebClientResponseException.NotFound.class, missing -> Mono.empty()),
+                        DELETE_CONCURRENCY)
+                .then();
+        return Mono.when(weaviateDeletes, bulk(() -> deleteBody(ids)))
+                .then(invalidate(ids));
+    }
+
+    private Mono<Void> writeWeaviate(List<IndexedChunk> batch) {
+        ObjectNode payload = mapper.createObjectNode();
+        ArrayNode objects = payload.putArray("objects");
+        for (IndexedChunk chunk : batch) {
+            ObjectNode object = objects.addObject();
+            object.put("class", className);
+            object.put("id", chunk.id());
+            object.set("properties", properties(chunk));
+            ArrayNode vector = object.putArray("vector");
+            for (float value : chunk.vector()) {
+                vector.add(value);
+            }
+        }
+        return weaviate.post()
+                .uri("/v1/batch/objects")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .retryWhen(retryTransient())
+                .flatMap(results -> {
+                    for (JsonNode result : results) {
+                        JsonNode errors = result.path("result").path("errors").path("error");
+                        if (!errors.isEmpty()) {
+                            return Mono.error(new IllegalStateException("Weaviate rejected chunk "
+                                    + result.path("id").asText() + ": " + errors.path(0).path("message").asText()));
+                        }
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> bulk(Callable<String> body) {
+        if (opensearch == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(body)
+                .flatMap(ndjson -> opensearch.post()
+                        .uri("/_bulk")
+                        .contentType(NDJSON)
+                        .bodyValue(ndjson)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .retryWhen(retryTransient()))
+                .flatMap(response -> {
+                    if (!response.path("errors").asBoolean(false)) {
+                        return Mono.empty();
+                    }
+                    for (JsonNode item : response.path("items")) {
+                        // Each item has a single field named after its action: index or delete.
+                        JsonNode result = item.elements().hasNext() ? item.elements().next() : item;
+                        if (result.has("error")) {
+                            return Mono.error(new IllegalStateException("OpenSearch rejected chunk "
+                                    + result.path("_id").asText() + ": " + result.path("error").path("reason").asText()));
+                        }
+                    }
+                    return Mono.error(new IllegalStateException("OpenSearch bulk request reported errors"));
+                });
+    }
+
+    private String bulkBody(List<IndexedChunk> batch) throws JsonProcessingException {
+        StringBuilder body = new StringBuilder();
+        for (IndexedChunk chunk : batch) {
+            ObjectNode action = mapper.createObjectNode();
+            action.set("index", mapper.createObjectNode().put("_index", index).put("_id", chunk.id()));
+            body.append(mapper.writeValueAsString(action)).append('\n')
+                    .append(mapper.writeValueAsString(properties(chunk))).append('\n');
+        }
+        return body.toString();
+    }
+
+    private String deleteBody(List<String> ids) throws JsonProcessingException {
+        StringBuilder body = new StringBuilder();
+        for (String id : ids) {
+            ObjectNode action = mapper.createObjectNode();
+            action.set("delete", mapper.createObjectNode().put("_index", index).put("_id", id));
+            body.append(mapper.writeValueAsString(action)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private Mono<Void> invalidate(List<String> ids) {
+        if (orchestrator == null) {
+            return Mono.empty();
+        }
+        return orchestrator.post()
+                .uri(builder -> builder.path("/v1/cache/invalidate").queryParam("docId", ids.toArray()).build())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(response -> log.debug("Invalidated {} cached answers", response.path("evicted").asLong()))
+                .then()
+                .onErrorResume(ex -> {
+                    log.warn("Cache invalidation failed, stale answers expire with their TTL: {}", ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private ObjectNode properties(IndexedChunk chunk) {
+        ObjectNode properties = mapper.createObjectNode();
+        properties.put("docId", chunk.meta().get("docId"));
+        properties.put("chunk", chunk.text());
+        properties.put("source", chunk.meta().get("source"));
+        properties.put("section", chunk.meta().get("section"));
+        return properties;
+    }
+
+    private ObjectNode schema() {
+        ObjectNode schema = mapper.createObjectNode();
+        schema.put("class", className);
+        schema.put("description", "Demo knowledge base documents");
+        schema.put("vectorizer", "none");
+        ArrayNode properties = schema.putArray("properties");
+        for (String name : List.of("docId", "chunk", "source", "section")) {
+            properties.addObject().put("name", name).putArray("dataType").add("text");
+        }
+        return schema;
+    }
+
+    private static Retry retryTransient() {
+        return Retry.backoff(3, Duration.ofMillis(500))
+                .filter(ex -> ex instanceof WebClientRequestException
+                        || ex instanceof WebClientResponseException response
+                        && (response.getStatusCode().is5xxServerError()
+                        || response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)));
+    }
+}
@@ -0,0 +1,203 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.embedding.DeterministicEmbedding;
+import me.aboullaite.rag.common.embedding.DeterministicEmbeddingService;
+import me.aboullaite.rag.common.index.EmbeddedIndex;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class IngestPipelineTest {
+
+    @TempDir
+    Path dir;
+
+    private Path docs;
+    private List<DocumentChunker.Chunk> expected;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        docs = Files.createDirectories(dir.resolve("docs"));
+        expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            StringBuilder content = new StringBuilder("# Document " + i);
+            for (int p = 0; p < i; p++) {
+                content.append("\n\n").append(("Paragraph " + p + " of document " + i + ". ").repeat(8));
+            }
+            Path file = Files.writeString(docs.resolve("doc-%02d.md".formatted(i)), content);
+            expected.addAll(DocumentChunker.chunk(file));
+        }
+    }
+
+    @Test
+    void embedsEveryChunkAndWritesItInBatches() {
+        ConcurrentLinkedQueue<List<IndexedChunk>> batches = new ConcurrentLinkedQueue<>();
+        AtomicInteger closed = new AtomicInteger();
+        ChunkSink sink = new ChunkSink() {
+            @Override
+            public Mono<Void> write(List<IndexedChunk> batch) {
+                return Mono.fromRunnable(() -> batches.add(batch));
+            }
+
+            @Override
+            public Mono<Void> close() {
+                return Mono.fromRunnable(closed::incrementAndGet);
+            }
+        };
+        IngestPipeline pipeline = new IngestPipeline(new DeterministicEmbeddingService(), sink, 4, 8, 5, 2);
+
+        StepVerifier.create(pipeline.run(docs))
+                .assertNext(report -> {
+                    assertThat(report.files()).isEqualTo(12);
+                    assertThat(report.chunks()).isEqualTo(expected.size());
+                    assertThat(report.docsPerSecond()).isPositive();
+                })
+                .verifyComplete();
+
+        List<IndexedChunk> written = batches.stream().flatMap(List::stream).toList();
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(5));
+        assertThat(written).extracting(IndexedChunk::id)
+                .containsExactlyInAnyOrderElementsOf(expected.stream().map(DocumentChunker.Chunk::id).toList());
+        assertThat(written).allSatisfy(chunk ->
+                assertThat(chunk.vector()).containsExactly(DeterministicEmbedding.embed(chunk.text())));
+        assertThat(closed).hasValue(1);
+    }
+
+    @Test
+    void neverHasMoreBatchesInFlightThanAllowed() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ChunkSink slowSink = batch -> Mono.delay(Duration.ofMillis(5))
+                .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doOnTerminate(inFlight::decrementAndGet)
+                .then();
+        IngestPipeline pipeline = new IngestPipeline(new DeterministicEmbeddingService(), slowSink, 8, 64, 1, 3);
+
+        StepVerifier.create(pipeline.run(docs))
+                .assertNext(report -> assertThat(report.chunks()).isEqualTo(expected.size()))
+                .verifyComplete();
+
+        assertThat(maxInFlight.get()).isBetween(1, 3);
+    }
+
+    @Test
+    void rerunWritesOnlyChangedChunksAndDeletesRemovedOnes() throws IOException {
+        RecordingSink sink = new RecordingSink();
+        IngestPipeline pipeline = new IngestPipeline(new DeterministicEmbeddingService(), sink, 4, 8, 5, 2);
+        IngestManifest first = pipeline.run(docs, IngestManifest.empty("deterministic")).block().manifest();
+        List<String> removedDoc = DocumentChunker.chunk(docs.resolve("doc-03.md")).stream()
+                .map(DocumentChunker.Chunk::id).toList();
+
+        Path edited = docs.resolve("doc-07.md");
+        Files.writeString(edited, Files.readString(edited) + " One more sentence.");
+        Files.delete(docs.resolve("doc-03.md"));
+        Files.writeString(docs.resolve("doc-12.md"), "# Document 12\n\nA new document.");
+        String editedChunk = DocumentChunker.chunk(edited).getLast().id();
+        sink.clear();
+
+        IngestPipeline.Report report = pipeline.run(docs, first).block();
+
+        assertThat(report.changedDocs()).containsExactly("doc-03", "doc-07", "doc-12");
+        assertThat(sink.written).extracting(IndexedChunk::id)
+                .containsExactlyInAnyOrder(editedChunk, DocumentChunker.chunkId("doc-12", 0));
+        assertThat(sink.deleted).containsExactlyInAnyOrderElementsOf(removedDoc);
+        assertThat(report.chunks()).isEqualTo(2);
+        assertThat(report.deleted()).isEqualTo(removedDoc.size());
+        assertThat(report.unchanged()).isEqualTo(expected.size() - removedDoc.size() - 1);
+        assertThat(report.manifest().documents()).doesNotContainKey("doc-03").containsKey("doc-12");
+
+        sink.clear();
+        IngestPipeline.Report unchanged = pipeline.run(docs, report.manifest()).block();
+
+        assertThat(unchanged.changedDocs()).isEmpty();
+        assertThat(sink.written).isEmpty();
+        assertThat(sink.deleted).isEmpty();
+    }
+
+    @Test
+    void manifestFromAnotherEmbeddingRewritesEveryChunk() throws IOException {
+        RecordingSink sink = new RecordingSink();
+        IngestPipeline pipeline = new IngestPipeline(new DeterministicEmbeddingService(), sink, 4, 8, 5, 2);
+        Path manifestFile = dir.resolve("state/manifest.json");
+        ObjectMapper mapper = new ObjectMapper();
+        pipeline.run(docs, IngestManifest.empty("onnx:/models/a")).block().manifest().write(manifestFile, mapper);
+        int removed = DocumentChunker.chunk(docs.resolve("doc-03.md")).size();
+        Files.delete(docs.resolve("doc-03.md"));
+        sink.clear();
+
+        IngestManifest sameModel = IngestManifest.read(manifestFile, mapper, "onnx:/models/a");
+        IngestManifest otherModel = IngestManifest.read(manifestFile, mapper, "deterministic");
+        IngestPipeline.Report report = pipeline.run(docs, otherModel).block();
+
+        assertThat(sameModel.documents()).hasSize(12);
+        assertThat(sameModel.documents().get("doc-05")).containsValue(IngestManifest.hash(
+                DocumentChunker.chunk(docs.resolve("doc-05.md")).getFirst()));
+        assertThat(report.chunks()).isEqualTo(expected.size() - removed);
+        assertThat(report.unchanged()).isZero();
+        assertThat(report.deleted()).isEqualTo(removed);
+        assertThat(report.manifest().embedding()).isEqualTo("deterministic");
+    }
+
+    @Test
+    void dryRunSinksWriteJsonLinesOrAnEmbeddedIndex() throws IOException {
+        Path jsonl = dir.resolve("out/chunks.jsonl");
+        Path indexFile = dir.resolve("out/index.bin");
+        ObjectMapper mapper = new ObjectMapper();
+
+        new IngestPipeline(new DeterministicEmbeddingService(), new JsonlSink(jsonl, mapper), 4, 8, 3, 2)
+                .run(docs).block();
+        new IngestPipeline(new DeterministicEmbeddingService(), new EmbeddedIndexSink(indexFile), 4, 8, 3, 2)
+                .run(docs).block();
+
+        List<String> lines = Files.readAllLines(jsonl);
+        assertThat(lines).hasSize(expected.size());
+        JsonNode first = mapper.readTree(lines.getFirst());
+        assertThat(first.path("docId").asText()).startsWith("doc-");
+        assertThat(first.path("vector")).hasSize(8);
+
+        EmbeddedIndex index = EmbeddedIndex.open(indexFile);
+        DocumentChunker.Chunk chunk = expected.getLast();
+        assertThat(index.size()).isEqualTo(expected.size());
+        assertThat(index.search(DeterministicEmbedding.embed(chunk.text()), Map.of("docId", chunk.docId()), 1))
+                .extracting(EmbeddedIndex.Match::id).containsExactly(chunk.id());
+    }
+
+    private static final class RecordingSink implements ChunkSink {
+
+        private final Queue<IndexedChunk> written = new ConcurrentLinkedQueue<>();
+        private final Queue<String> deleted = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public Mono<Void> write(List<IndexedChunk> batch) {
+            return Mono.fromRunnable(() -> written.addAll(batch));
+        }
+
+        @Override
+        public Mono<Void> delete(List<String> ids) {
+            return Mono.fromRunnable(() -> deleted.addAll(ids));
+        }
+
+        private void clear() {
+            written.clear();
+            deleted.clear();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package me.aboullaite.rag.ingest.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+class RemoteSinkTest {
+
+    private static final List<IndexedChunk> BATCH = List.of(
+            new IndexedChunk("id-1", new float[] {0.5f, 0.5f}, "First chunk",
+                    Map.of("docId", "doc-1", "source", "doc-1.md", "section", "Intro")),
+            new IndexedChunk("id-2", new float[] {1, 0}, "Second chunk",
+                    Map.of("docId", "doc-2", "source", "doc-2.md", "section", "Usage")));
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private MockWebServer weaviate;
+    private MockWebServer opensearch;
+    private MockWebServer orchestrator;
+    private RemoteSink sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        weaviate = new MockWebServer();
+        opensearch = new MockWebServer();
+        orchestrator = new MockWebServer();
+        weaviate.start();
+        opensearch.start();
+        orchestrator.start();
+        sink = new RemoteSink(client(weaviate), client(opensearch), client(orchestrator), mapper, "Doc", "rag-docs");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        weaviate.shutdown();
+        opensearch.shutdown();
+        orchestrator.shutdown();
+    }
+
+    @Test
+    void writesBatchToBothStoresThenInvalidatesItsChunks() throws Exception {
+        weaviate.enqueue(json("[{\"id\":\"id-1\",\"result\":{}},{\"id\":\"id-2\",\"result\":{}}]"));
+        opensearch.enqueue(json("{\"errors\":false,\"items\":[]}"));
+        orchestrator.enqueue(json("{\"evicted\":1}"));
+
+        StepVerifier.create(sink.write(BATCH)).verifyComplete();
+
+        RecordedRequest batch = weaviate.takeRequest();
+        assertThat(batch.getPath()).isEqualTo("/v1/batch/objects");
+        JsonNode objects = mapper.readTree(batch.getBody().readUtf8()).path("objects");
+        assertThat(objects).hasSize(2);
+        assertThat(objects.path(0).path("class").asText()).isEqualTo("Doc");
+        assertThat(objects.path(0).path("id").asText()).isEqualTo("id-1");
+        assertThat(objects.path(0).path("properties").path("chunk").asText()).isEqualTo("First chunk");
+        assertThat(objects.path(0).path("vector").path(1).floatValue()).isEqualTo(0.5f);
+
+        RecordedRequest bulk = opensearch.takeRequest();
+        assertThat(bulk.getPath()).isEqualTo("/_bulk");
+        List<String> lines = bulk.getBody().readUtf8().lines().toList();
+        assertThat(lines).hasSize(4);
+        assertThat(mapper.readTree(lines.get(2)).path("index").path("_id").asText()).isEqualTo("id-2");
+        assertThat(mapper.readTree(lines.get(3)).path("section").asText()).isEqualTo("Usage");
+
+        assertThat(orchestrator.takeRequest().getPath()).isEqualTo("/v1/cache/invalidate?docId=id-1&docId=id-2");
+    }
+
+    @Test
+    void failsWhenAStoreRejectsAnObject() {
+        weaviate.enqueue(json("[{\"id\":\"id-1\",\"result\":{}},"
+                + "{\"id\":\"id-2\",\"result\":{\"errors\":{\"error\":[{\"message\":\"vector length mismatch\"}]}}}]"));
+        opensearch.enqueue(json("{\"errors\":false,\"items\":[]}"));
+
+        StepVerifier.create(sink.write(BATCH))
+                .expectErrorMatches(ex -> ex.getMessage().equals("Weaviate rejected chunk id-2: vector length mismatch"))
+                .verify();
+        assertThat(orchestrator.getRequestCount()).isZero();
+    }
+
+    @Test
+    void retriesBulkRequestsTheStoreShedsWithTooManyRequests() throws Exception {
+        weaviate.enqueue(json("[]"));
+        opensearch.enqueue(new MockResponse().setResponseCode(429));
+        opensearch.enqueue(json("{\"errors\":false,\"items\":[]}"));
+        orchestrator.enqueue(json("{\"evicted\":0}"));
+
+        StepVerifier.create(sink.write(BATCH)).verifyComplete();
+
+        assertThat(opensearch.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void deletesFromBothStoresIgnoringIdsAlreadyGone() throws Exception {
+        weaviate.enqueue(new MockResponse().setResponseCode(204));
+        weaviate.enqueue(new MockResponse().setResponseCode(404));
+        opensearch.enqueue(json("{\"errors\":false,\"items\":[{\"delete\":{\"_id\":\"id-1\",\"status\":200}},"
+                + "{\"delete\":{\"_id\":\"id-2\",\"status\":404,\"result\":\"not_found\"}}]}"));
+        orchestrator.enqueue(json("{\"evicted\":0}"));
+
+        StepVerifier.create(sink.delete(List.of("id-1", "id-2"))).verifyComplete();
+
+        assertThat(List.of(weaviate.takeRequest(), weaviate.takeRequest()))
+                .extracting(RecordedRequest::getMethod, RecordedRequest::getPath)
+                .containsExactlyInAnyOrder(
+                        tuple("DELETE", "/v1/objects/Doc/id-1"),
+                        tuple("DELETE", "/v1/objects/Doc/id-2"));
+        List<String> lines = opensearch.takeRequest().getBody().readUtf8().lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(mapper.readTree(lines.get(1)).path("delete").path("_id").asText()).isEqualTo("id-2");
+        assertThat(orchestrator.takeRequest().getPath()).isEqualTo("/v1/cache/invalidate?docId=id-1&docId=id-2");
+    }
+
+    @Test
+    void openCreatesTheWeaviateClassWhenMissing() throws Exception {
+        weaviate.enqueue(new MockResponse().setResponseCode(200));
+        weaviate.enqueue(new MockResponse().setResponseCode(404));
+        weaviate.enqueue(json("{}"));
+
+        StepVerifier.create(sink.open()).verifyComplete();
+
+        assertThat(weaviate.takeRequest().getPath()).isEqualTo("/v1/.well-known/ready");
+        assertThat(weaviate.takeRequest().getPath()).isEqualTo("/v1/schema/Doc");
+        RecordedRequest create = weaviate.takeRequest();
+        assertThat(create.getPath()).isEqualTo("/v1/schema");
+        JsonNode schema = mapper.readTree(create.getBody().readUtf8());
+        assertThat(schema.path("vectorizer").asText()).isEqualTo("none");
+        assertThat(schema.path("properties")).hasSize(4);
+    }
+
+    private static WebClient client(MockWebServer server) {
+        return WebClient.builder().baseUrl(server.url("/").toString()).build();
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,252 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.AnswerCompression;
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
+import com.github.luben.zstd.Zstd;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary encoding of a {@link CacheEntry} as stored in Redis. All fixed-width fields are
+ * little-endian; strings are UTF-8 prefixed with an unsigned LEB128 varint length.
+ *
+ * <pre>
+ * u8  version            (1)
+ * u8  flags              bit 0: int8 vector, bit 1: zstd-compressed answer
+ * u16 dimensions
+ * vector                 float32: dimensions x f32 | int8: f32 scale, dimensions x i8
+ * i64 createdAtMillis
+ * str normalizedQuery
+ * answer                 varint length, bytes | compressed: varint raw length, varint length, bytes
+ * varint count, str...   citations
+ * varint count, str...   docIds
+ * </pre>
+ *
+ * The vector sits at a fixed offset right after the header, so {@link #vectorSectionLength} bytes
+ * read with GETRANGE are enough for {@link #decodeVector} without touching the answer.
+ */
+public final class CacheEntryCodec {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 4;
+    private static final int FLAG_INT8 = 1;
+    private static final int FLAG_ZSTD = 1 << 1;
+    /** Shorter answers rarely shrink enough to pay for the zstd frame header. */
+    private static final int MIN_COMPRESSED_BYTES = 256;
+    private static final int ZSTD_LEVEL = 3;
+
+    private final AnswerCompression compression;
+
+    public CacheEntryCodec(AnswerCompression compression) {
+        this.compression = compression;
+    }
+
+    public byte[] encode(CacheEntry entry) {
+        boolean int8 = entry.embedding() == null;
+        int dimensions = int8 ? entry.quantizedEmbedding().codes().length : entry.embedding().length;
+        if (dimensions > 0xFFFF) {
+            throw new IllegalArgumentException("Cannot encode a " + dimensions + "-dimensional vector");
+        }
+        byte[] query = utf8(entry.normalizedQuery());
+        byte[] answer = utf8(entry.answer());
+        byte[] storedAnswer = answer;
+        if (compression == AnswerCompression.ZSTD && answer.length >= MIN_COMPRESSED_BYTES) {
+            byte[] compressed = Zstd.compress(answer, ZSTD_LEVEL);
+            if (compressed.length < answer.length) {
+                storedAnswer = compressed;
+            }
+        }
+        boolean compressed = storedAnswer != answer;
+        List<byte[]> citations = utf8(entry.citations());
+        List<byte[]> docIds = utf8(entry.docIds());
+
+        int size = vectorSectionLength(dimensions, int8)
+                + Long.BYTES
+                + stringLength(query)
+                + (compressed ? varintLength(answer.length) : 0) + stringLength(storedAnswer)
+                + listLength(citations)
+                + listLength(docIds);
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.put(VERSION);
+        out.put((byte) ((int8 ? FLAG_INT8 : 0) | (compressed ? FLAG_ZSTD : 0)));
+        out.putShort((short) dimensions);
+        if (int8) {
+            out.putFloat(entry.quantizedEmbedding().scale());
+            out.put(entry.quantizedEmbedding().codes());
+        } else {
+            out.asFloatBuffer().put(entry.embedding());
+            out.position(out.position() + dimensions * Float.BYTES);
+        }
+        out.putLong(entry.createdAtMillis());
+        putString(out, query);
+        if (compressed) {
+            putVarint(out, answer.length);
+        }
+        putString(out, storedAnswer);
+        putList(out, citations);
+        putList(out, docIds);
+        return out.array();
+    }
+
+    /** Decodes a full value; returns {@code null} when it is not in a format this codec knows. */
+    public CacheEntry decode(byte[] bytes) {
+        if (!isSupported(bytes)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = in.get(1);
+        int dimensions = Short.toUnsignedInt(in.getShort(2));
+        in.position(HEADER_BYTES);
+        float[] embedding = null;
+        QuantizedVector quantized = null;
+        if ((flags & FLAG_INT8) != 0) {
+            float scale = in.getFloat();
+            byte[] codes = new byte[dimensions];
+            in.get(codes);
+            quantized = new QuantizedVector(codes, scale);
+        } else {
+            embedding = new float[dimensions];
+            in.asFloatBuffer().get(embedding);
+            in.position(in.position() + dimensions * Float.BYTES);
+        }
+        long createdAtMillis = in.getLong();
+        String query = getString(in);
+        String answer;
+        if ((flags & FLAG_ZSTD) != 0) {
+            int rawLength = getVarint(in);
+            byte[] stored = new byte[getVarint(in)];
+            in.get(stored);
+            answer = new String(Zstd.decompress(stored, rawLength), StandardCharsets.UTF_8);
+        } else {
+            answer = getString(in);
+        }
+        List<String> citations = getList(in);
+        List<String> docIds = getList(in);
+        return new CacheEntry(query, embedding, quantized, answer, citations, docIds, createdAtMillis);
+    }
+
+    /**
+     * Decodes only the vector from a value or a prefix of one; returns {@code null} when the prefix
+     * is too short to hold it or the format is unknown.
+     */
+    public float[] decodeVector(byte[] prefix) {
+        if (!isSupported(prefix)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(prefix).order(ByteOrder.LITTLE_ENDIAN);
+        boolean int8 = (in.get(1) & FLAG_INT8) != 0;
+        int dimensions = Short.toUnsignedInt(in.getShort(2));
+        if (prefix.length < vectorSectionLength(dimensions, int8)) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        if (int8) {
+            float scale = in.getFloat(HEADER_BYTES);
+            int offset = HEADER_BYTES + Float.BYTES;
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = prefix[offset + i] * scale;
+            }
+        } else {
+            in.position(HEADER_BYTES);
+            in.asFloatBuffer().get(vector);
+        }
+        return vector;
+    }
+
+    /** Bytes from the start of a value up to the end of its vector. */
+    public static int vectorSectionLength(int dimensions, boolean int8) {
+        return HEADER_BYTES + (int8 ? Float.BYTES + dimensions : dimensions * Float.BYTES);
+    }
+
+    private static boolean isSupported(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_BYTES && bytes[0] == VERSION;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<byte[]> utf8(List<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            encoded.add(utf8(value));
+        }
+        return encoded;
+    }
+
+    private static int stringLength(byte[] value) {
+        return varintLength(value.length) + value.length;
+    }
+
+    private static int listLength(List<byte[]> values) {
+        int length = varintLength(values.size());
+        for (byte[] value : values) {
+            length += stringLength(value);
+        }
+        return length;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        putVarint(out, value.length);
+        out.put(value);
+    }
+
+    private static void putList(ByteBuffer out, List<byte[]> values) {
+        putVarint(out, values.size());
+        for (byte[] value : values) {
+            putString(out, value);
+        }
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = getVarint(in);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static List<String> getList(ByteBuffer in) {
+        int count = getVarint(in);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(getString(in));
+        }
+        return List.copyOf(values);
+    }
+}
@@ -0,0 +1,433 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
+import me.aboullaite.rag.orchestrator.util.SimilarityUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW graph over cache entry embeddings, keyed by Redis cache key.
+ * Vectors are normalised on insert so similarity is a plain dot product.
+ * Removed keys stay in the graph as tombstones until the graph is compacted.
+ * A quantized index keeps only int8 codes per node and scores against them directly.
+ * The first vector added to an empty index fixes its dimensions; vectors of any other size, such
+ * as entries embedded by a previous model, are not added and never match.
+ */
+public class HnswIndex {
+
+    private static final int DEFAULT_M = 16;
+    private static final int DEFAULT_EF_CONSTRUCTION = 100;
+    private static final int DEFAULT_EF_SEARCH = 64;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final boolean quantized;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+
+    private List<Node> nodes = new ArrayList<>();
+    private Map<String, Integer> nodesByKey = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+    private int dimensions;
+
+    public HnswIndex() {
+        this(false);
+    }
+
+    public HnswIndex(boolean quantized) {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH, quantized);
+    }
+
+    public HnswIndex(int m, int efConstruction, int efSearch, boolean quantized) {
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.quantized = quantized;
+    }
+
+    /** Adds or replaces {@code key}; false if the vector is zero or not of the index's dimensions. */
+    public boolean add(String key, float[] vector) {
+        float[] normalized = SimilarityUtils.normalize(vector);
+        if (normalized == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodesByKey.isEmpty()) {
+                // Only tombstones left: start over, so a new embedding model can take the index.
+                clear();
+                dimensions = normalized.length;
+            } else if (normalized.length != dimensions) {
+                return false;
+            }
+            Integer existing = nodesByKey.remove(key);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(key, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer id = nodesByKey.remove(key);
+            if (id == null) {
+                return false;
+            }
+            markDeleted(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> keys() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(nodesByKey.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Match> search(float[] query, int k) {
+        float[] normalized = SimilarityUtils.normalize(query);
+        if (normalized == null || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || normalized.length != dimensions) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(normalized, current, level);
+            }
+            PriorityQueue<Candidate> found = searchLayer(normalized, current, Math.max(efSearch, k), 0);
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            List<Match> matches = new ArrayList<>(k);
+            for (Candidate candidate : ordered) {
+                Node node = nodes.get(candidate.id());
+                if (node.deleted) {
+                    continue;
+                }
+                matches.add(new Match(node.key, candidate.score()));
+                if (matches.size() == k) {
+                    break;
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** True once tombstones outnumber live keys, and there are more than a search visits. */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return deletedCount > efSearch && deletedCount > nodesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the graph without tombstones. The new graph is built from a snapshot of the live
+     * nodes without holding the lock, so searches and writes go on meanwhile; the write lock is
+     * only held to replay the adds and removes made since the snapshot and swap the graphs.
+     */
+    public void compact() {
+        Map<String, Node> snapshot = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            nodesByKey.forEach((key, id) -> snapshot.put(key, nodes.get(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        HnswIndex rebuilt = new HnswIndex(m, efConstruction, efSearch, quantized);
+        snapshot.forEach((key, node) -> rebuilt.insert(key, vector(node)));
+
+        lock.writeLock().lock();
+        try {
+            snapshot.forEach((key, node) -> {
+                Integer id = nodesByKey.get(key);
+                if (id == null || nodes.get(id) != node) {
+                    rebuilt.markDeleted(rebuilt.nodesByKey.remove(key));
+                }
+            });
+            nodesByKey.forEach((key, id) -> {
+                Node node = nodes.get(id);
+                if (snapshot.get(key) != node) {
+                    rebuilt.insert(key, vector(node));
+                }
+            });
+            nodes = rebuilt.nodes;
+            nodesByKey = rebuilt.nodesByKey;
+            entryPoint = rebuilt.entryPoint;
+            maxLevel = rebuilt.maxLevel;
+            deletedCount = rebuilt.deletedCount;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String key, float[] vector) {
+        int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int id = nodes.size();
+        Node node = quantized
+                ? new Node(key, null, QuantizedVector.quantize(vector), level, m, maxM0)
+                : new Node(key, vector, null, level, m, maxM0);
+        nodes.add(node);
+        nodesByKey.put(key, id);
+
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> candidates = searchLayer(vector, current, efConstruction, l);
+            int maxLinks = l == 0 ? maxM0 : m;
+            List<Candidate> neighbours = closest(candidates, m);
+            for (Candidate neighbour : neighbours) {
+                node.link(l, neighbour.id());
+                connect(neighbour.id(), id, l, maxLinks);
+            }
+            current = neighbours.isEmpty() ? current : neighbours.getFirst().id();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+    }
+
+    private void connect(int from, int to, int level, int maxLinks) {
+        Node node = nodes.get(from);
+        if (node.linkCount(level) < maxLinks) {
+            node.link(level, to);
+            return;
+        }
+        // Neighbour list is full: keep the closest maxLinks among existing links plus the new one.
+        PriorityQueue<Candidate> pool = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        pool.add(new Candidate(to, score(node, nodes.get(to))));
+        int[] links = node.links[level];
+        for (int i = 0; i < node.linkCount(level); i++) {
+            pool.add(new Candidate(links[i], score(node, nodes.get(links[i]))));
+        }
+        node.clearLinks(level);
+        for (Candidate candidate : closest(pool, maxLinks)) {
+            node.link(level, candidate.id());
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        double best = score(query, nodes.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCount(level); i++) {
+                double score = score(query, nodes.get(links[i]));
+                if (score > best) {
+                    best = score;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        VisitedSet seen = visited.get();
+        seen.reset(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+
+        Candidate first = new Candidate(start, score(query, nodes.get(start)));
+        seen.mark(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            Node node = nodes.get(candidate.id());
+            if (level > node.level) {
+                continue;
+            }
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCount(level); i++) {
+                int neighbour = links[i];
+                if (!seen.mark(neighbour)) {
+                    continue;
+                }
+                double score = score(query, nodes.get(neighbour));
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate next = new Candidate(neighbour, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<Candidate> closest(PriorityQueue<Candidate> candidates, int limit) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    private void markDeleted(int id) {
+        Node node = nodes.get(id);
+        if (!node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    private void clear() {
+        nodes.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        deletedCount = 0;
+    }
+
+    private static float[] vector(Node node) {
+        return node.vector != null ? node.vector : node.quantized.toFloatArray();
+    }
+
+    private static double score(float[] query, Node node) {
+        return node.vector != null
+                ? SimilarityUtils.dot(query, node.vector)
+                : SimilarityUtils.dot(query, node.quantized);
+    }
+
+    private static double score(Node a, Node b) {
+        return a.vector != null
+                ? SimilarityUtils.dot(a.vector, b.vector)
+                : SimilarityUtils.dot(a.quantized, b.quantized);
+    }
+
+    public record Match(String key, double similarity) {
+    }
+
+    private record Candidate(int id, double score) {
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private final float[] vector;
+        private final QuantizedVector quantized;
+        private final int level;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private volatile boolean deleted;
+
+        private Node(String key, float[] vector, QuantizedVector quantized, int level, int m, int maxM0) {
+            this.key = key;
+            this.vector = vector;
+            this.quantized = quantized;
+            this.level = level;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+
+        private int linkCount(int level) {
+            return level < linkCounts.length ? linkCounts[level] : 0;
+        }
+
+        private void link(int level, int target) {
+            links[level][linkCounts[level]++] = target;
+        }
+
+        private void clearLinks(int level) {
+            linkCounts[level] = 0;
+        }
+    }
+
+    private static final class VisitedSet {
+
+        private int[] stamps = new int[0];
+        private int epoch;
+
+        private void reset(int capacity) {
+            if (stamps.length < capacity) {
+                stamps = new int[Math.max(capacity, stamps.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        private boolean mark(int id) {
+            if (stamps[id] == epoch) {
+                return false;
+            }
+            stamps[id] = epoch;
+            return true;
+        }
+    }
+}
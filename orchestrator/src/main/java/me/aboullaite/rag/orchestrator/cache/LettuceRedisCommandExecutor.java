@@ -0,0 +1,87 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.reactive.BaseRedisReactiveCommands;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.NestedMultiOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link RedisCommandExecutor} on a dedicated byte-array connection opened, on first use, from the
+ * Lettuce client behind Spring's connection factory, so it shares its host, credentials and TLS
+ * settings.
+ */
+public class LettuceRedisCommandExecutor implements RedisCommandExecutor, AutoCloseable {
+
+    private final Mono<Connection> connection;
+    private volatile Connection opened;
+
+    public LettuceRedisCommandExecutor(LettuceConnectionFactory connectionFactory) {
+        this.connection = Mono.fromCallable(() -> opened = connect(connectionFactory.getRequiredNativeClient()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache(open -> Duration.ofMillis(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    @Override
+    public Mono<List<Object>> execute(String command, Object... args) {
+        CommandArgs<byte[], byte[]> commandArgs = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+        for (Object arg : args) {
+            switch (arg) {
+                case byte[] bytes -> commandArgs.add(bytes);
+                case Number number -> commandArgs.add(number.longValue());
+                default -> commandArgs.add(arg.toString());
+            }
+        }
+        return connection.flatMap(open -> open.commands()
+                .<List<Object>>dispatch(new Keyword(command), new NestedMultiOutput<>(ByteArrayCodec.INSTANCE), commandArgs)
+                .next());
+    }
+
+    @Override
+    public void close() {
+        Connection open = opened;
+        if (open != null) {
+            open.connection().close();
+        }
+    }
+
+    private static Connection connect(AbstractRedisClient client) {
+        return switch (client) {
+            case RedisClient standalone -> {
+                var connection = standalone.connect(ByteArrayCodec.INSTANCE);
+                yield new Connection(connection, connection.reactive());
+            }
+            case RedisClusterClient cluster -> {
+                var connection = cluster.connect(ByteArrayCodec.INSTANCE);
+                yield new Connection(connection, connection.reactive());
+            }
+            default -> throw new IllegalStateException("Unsupported Redis client " + client.getClass().getName());
+        };
+    }
+
+    private record Connection(StatefulConnection<byte[], byte[]> connection, BaseRedisReactiveCommands<byte[], byte[]> commands) {
+    }
+
+    private record Keyword(String name) implements ProtocolKeyword {
+
+        @Override
+        public byte[] getBytes() {
+            return name.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
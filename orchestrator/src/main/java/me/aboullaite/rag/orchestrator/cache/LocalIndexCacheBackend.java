@@ -0,0 +1,334 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.util.ByteUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Entries as plain Redis values in the {@link CacheEntryCodec} format, found through an in-process
+ * HNSW index over every cached vector. Each replica keeps its own copy of the index. Every sync
+ * expires keys locally, then reads only the {@value #CACHE_INDEX_KEY} members scored since the
+ * newest one it has seen; since the TTL is fixed, expiry order is write order. The whole set is
+ * reconciled only every {@value #FULL_SYNC_INTERVAL_MS} ms.
+ */
+public class LocalIndexCacheBackend implements SemanticCacheBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalIndexCacheBackend.class);
+    /** Sorted set of cache keys scored by expiry time (epoch millis); replaces the unbounded rag:cache:index set. */
+    private static final String CACHE_INDEX_KEY = "rag:cache:expiry-index";
+    private static final int INDEX_SYNC_CONCURRENCY = 64;
+    private static final long FULL_SYNC_INTERVAL_MS = 300_000;
+    /** How far below the newest score seen a sync re-reads, for writes committed late or from a skewed clock. */
+    private static final long SYNC_OVERLAP_MS = 30_000;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisTemplate<byte[], byte[]> binaryRedisTemplate;
+    private final OrchestratorProperties properties;
+    private final CacheEntryCodec codec;
+    private final HnswIndex index;
+    private final Counter evictions;
+    private final AtomicLong liveMembers = new AtomicLong();
+    private final AtomicLong deadMembers = new AtomicLong();
+    /** The score, i.e. expiry, of every key in the local index, so expired keys leave it without a Redis read. */
+    private final Map<String, Double> expiries = new ConcurrentHashMap<>();
+    private final NavigableSet<Expiry> expiryOrder = new ConcurrentSkipListSet<>();
+    private volatile int vectorDimensions;
+    private volatile double syncedThrough = Double.NEGATIVE_INFINITY;
+    private volatile long lastFullSync;
+
+    public LocalIndexCacheBackend(
+            ReactiveStringRedisTemplate redisTemplate,
+            ReactiveRedisTemplate<byte[], byte[]> binaryRedisTemplate,
+            OrchestratorProperties properties,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.binaryRedisTemplate = binaryRedisTemplate;
+        this.properties = properties;
+        this.codec = new CacheEntryCodec(properties.getCacheAnswerCompression());
+        this.index = new HnswIndex(quantized());
+        this.evictions = Counter.builder("rag_cache_evictions_total")
+                .description("Cache entries evicted because the index exceeded rag.cache-max-entries")
+                .register(meterRegistry);
+        indexMembersGauge(meterRegistry, "live", liveMembers);
+        indexMembersGauge(meterRegistry, "dead", deadMembers);
+    }
+
+    @Override
+    public Mono<Boolean> save(String key, CacheEntry entry, Duration ttl) {
+        byte[] value;
+        try {
+            value = codec.encode(entry);
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+        float[] vector = entry.vector();
+        vectorDimensions = vector.length;
+        return binaryRedisTemplate.opsForValue()
+                .set(utf8(key), value, ttl)
+                .flatMap(success -> {
+                    if (!success) {
+                        return Mono.just(false);
+                    }
+                    double expiresAt = System.currentTimeMillis() + ttl.toMillis();
+                    return redisTemplate.opsForZSet().add(CACHE_INDEX_KEY, key, expiresAt)
+                            .doOnNext(added -> add(key, vector, expiresAt))
+                            .thenReturn(true);
+                });
+    }
+
+    @Override
+    public Mono<CacheEntry> load(String key) {
+        return binaryRedisTemplate.opsForValue().get(utf8(key))
+                .flatMap(value -> {
+                    CacheEntry entry;
+                    try {
+                        entry = codec.decode(value);
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to decode cache entry {}: {}", key, e.getMessage());
+                        return Mono.empty();
+                    }
+                    if (entry == null) {
+                        log.debug("Ignoring cache entry {} in an unknown format", key);
+                        return Mono.empty();
+                    }
+                    vectorDimensions = entry.vector().length;
+                    return Mono.just(entry);
+                });
+    }
+
+    @Override
+    public Mono<Match> nearest(float[] embedding, double minSimilarity) {
+        List<HnswIndex.Match> matches = index.search(embedding, 1);
+        if (matches.isEmpty() || matches.getFirst().similarity() < minSimilarity) {
+            return Mono.empty();
+        }
+        HnswIndex.Match best = matches.getFirst();
+        return load(best.key())
+                .map(entry -> new Match(best.key(), entry, best.similarity()))
+                .switchIfEmpty(Mono.fromRunnable(() -> drop(best.key())));
+    }
+
+    @Override
+    public Mono<Long> delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(0L);
+        }
+        String[] members = keys.toArray(String[]::new);
+        keys.forEach(this::drop);
+        return redisTemplate.opsForZSet().remove(CACHE_INDEX_KEY, (Object[]) members)
+                .then(redisTemplate.unlink(members));
+    }
+
+    /**
+     * Drops locally expired keys, trims expired members (and the oldest ones beyond
+     * {@code cacheMaxEntries}) from the Redis index, then loads vectors for keys other replicas
+     * wrote since the last sync. Every {@value #FULL_SYNC_INTERVAL_MS} ms it reads the whole index
+     * instead, to also drop keys that left it some other way.
+     */
+    @Override
+    public Mono<Void> sync(Consumer<String> removed) {
+        return Mono.defer(() -> {
+            ReactiveZSetOperations<String, String> zSet = redisTemplate.opsForZSet();
+            long now = System.currentTimeMillis();
+            expireLocally(now, removed);
+            boolean full = now - lastFullSync >= FULL_SYNC_INTERVAL_MS;
+            return zSet.removeRangeByScore(CACHE_INDEX_KEY, Range.closed(Double.NEGATIVE_INFINITY, (double) now))
+                    .doOnNext(deadMembers::set)
+                    .then(zSet.size(CACHE_INDEX_KEY))
+                    .flatMap(size -> trimToMaxEntries(zSet, size, removed))
+                    .doOnNext(liveMembers::set)
+                    .then(full ? reconcile(zSet, now, removed) : catchUp(zSet, now))
+                    .then(compactIndex());
+        });
+    }
+
+    /** Reads every live member: drops local keys Redis no longer has and loads the ones it lacks. */
+    private Mono<Void> reconcile(ReactiveZSetOperations<String, String> zSet, long now, Consumer<String> removed) {
+        return zSet.rangeByScoreWithScores(CACHE_INDEX_KEY, Range.rightUnbounded(Range.Bound.exclusive((double) now)))
+                .collectList()
+                .flatMap(members -> {
+                    lastFullSync = now;
+                    liveMembers.set(members.size());
+                    Set<String> keys = members.stream().map(TypedTuple::getValue).collect(Collectors.toSet());
+                    index.keys().stream()
+                            .filter(key -> !keys.contains(key))
+                            .forEach(key -> {
+                                drop(key);
+                                removed.accept(key);
+                            });
+                    return addMissing(Flux.fromIterable(members));
+                });
+    }
+
+    /** Reads only the members scored since the newest one seen, less {@link #SYNC_OVERLAP_MS}. */
+    private Mono<Void> catchUp(ReactiveZSetOperations<String, String> zSet, long now) {
+        double from = Math.max(now, syncedThrough - SYNC_OVERLAP_MS);
+        return addMissing(zSet.rangeByScoreWithScores(CACHE_INDEX_KEY, Range.rightUnbounded(Range.Bound.exclusive(from))));
+    }
+
+    private Mono<Void> addMissing(Flux<TypedTuple<String>> members) {
+        return members
+                .doOnNext(member -> syncedThrough = Math.max(syncedThrough, member.getScore()))
+                .flatMap(member -> {
+                    String key = member.getValue();
+                    if (index.contains(key)) {
+                        track(key, member.getScore());
+                        return Mono.empty();
+                    }
+                    return loadVector(key).filter(vector -> !add(key, vector, member.getScore()));
+                }, INDEX_SYNC_CONCURRENCY)
+                .count()
+                .doOnNext(skipped -> {
+                    if (skipped > 0) {
+                        log.warn("Skipped {} cache entries whose vectors do not match the index dimensions", skipped);
+                    }
+                })
+                .then();
+    }
+
+    private boolean add(String key, float[] vector, double expiresAt) {
+        if (!index.add(key, vector)) {
+            return false;
+        }
+        track(key, expiresAt);
+        return true;
+    }
+
+    private void track(String key, double expiresAt) {
+        Double previous = expiries.put(key, expiresAt);
+        if (previous != null && previous != expiresAt) {
+            expiryOrder.remove(new Expiry(previous, key));
+        }
+        expiryOrder.add(new Expiry(expiresAt, key));
+    }
+
+    private void drop(String key) {
+        index.remove(key);
+        Double expiresAt = expiries.remove(key);
+        if (expiresAt != null) {
+            expiryOrder.remove(new Expiry(expiresAt, key));
+        }
+    }
+
+    private void expireLocally(long now, Consumer<String> removed) {
+        for (Expiry expiry : expiryOrder) {
+            if (expiry.at() > now) {
+                break;
+            }
+            expiryOrder.remove(expiry);
+            if (expiries.remove(expiry.key(), expiry.at())) {
+                index.remove(expiry.key());
+                removed.accept(expiry.key());
+            }
+        }
+    }
+
+    /** Rebuilds the index without its tombstones, off the event loop, once they outnumber live keys. */
+    private Mono<Void> compactIndex() {
+        return Mono.fromRunnable(() -> {
+                    if (index.needsCompaction()) {
+                        index.compact();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Evicts the soonest-expiring entries, index member and value, once the index exceeds its cap;
+     * emits the index size left.
+     */
+    private Mono<Long> trimToMaxEntries(ReactiveZSetOperations<String, String> zSet, long size, Consumer<String> removed) {
+        long maxEntries = properties.getCacheMaxEntries();
+        if (maxEntries <= 0 || size <= maxEntries) {
+            return Mono.just(size);
+        }
+        return zSet.popMin(CACHE_INDEX_KEY, size - maxEntries)
+                .map(TypedTuple::getValue)
+                .collectList()
+                .flatMap(keys -> {
+                    if (keys.isEmpty()) {
+                        return Mono.just(size);
+                    }
+                    evictions.increment(keys.size());
+                    keys.forEach(key -> {
+                        drop(key);
+                        removed.accept(key);
+                    });
+                    return redisTemplate.unlink(keys.toArray(String[]::new)).thenReturn(size - keys.size());
+                });
+    }
+
+    /**
+     * Reads only the leading vector section of an entry with GETRANGE, skipping the answer and
+     * document lists. Falls back to a full read until the vector size is known, or when the
+     * prefix turns out not to hold the whole vector (an entry written with another encoding).
+     */
+    private Mono<float[]> loadVector(String key) {
+        int dimensions = vectorDimensions;
+        if (dimensions == 0) {
+            return load(key).map(CacheEntry::vector);
+        }
+        long end = CacheEntryCodec.vectorSectionLength(dimensions, quantized()) - 1;
+        // ReactiveValueOperations#get(key, start, end) decodes the range as a String; go to the connection.
+        return binaryRedisTemplate.execute(connection -> connection.stringCommands().getRange(ByteBuffer.wrap(utf8(key)), 0, end))
+                .next()
+                .map(ByteUtils::getBytes)
+                .filter(prefix -> prefix.length > 0)
+                .flatMap(prefix -> {
+                    float[] vector = codec.decodeVector(prefix);
+                    return vector != null ? Mono.just(vector) : load(key).map(CacheEntry::vector);
+                });
+    }
+
+    private boolean quantized() {
+        return properties.getCacheVectorEncoding() == OrchestratorProperties.VectorEncoding.INT8;
+    }
+
+    private static void indexMembersGauge(MeterRegistry meterRegistry, String state, AtomicLong value) {
+        Gauge.builder("rag_cache_index_members", value, AtomicLong::get)
+                .description("Redis cache index members at the last sync; dead ones had expired and were trimmed")
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    private static byte[] utf8(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** A local index key and its expiry, ordered soonest first. */
+    private record Expiry(double at, String key) implements Comparable<Expiry> {
+
+        @Override
+        public int compareTo(Expiry other) {
+            int byTime = Double.compare(at, other.at);
+            return byTime != 0 ? byTime : key.compareTo(other.key);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Entries as Redis hashes with a FLOAT32 {@code VECTOR} field, indexed by RediSearch (Redis Stack)
+ * and looked up with {@code FT.SEARCH ... KNN 1}. The nearest-neighbour search runs inside Redis,
+ * so the orchestrator holds no vectors, lookup cost does not grow with the cache and every replica
+ * queries the same index. Entries expire with their hash; RediSearch drops them from the index.
+ * Keys are also scored by expiry in {@value #EXPIRY_INDEX_KEY}, so that {@code sync} can evict the
+ * soonest-expiring ones beyond {@code cacheMaxEntries}.
+ */
+public class RediSearchCacheBackend implements SemanticCacheBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(RediSearchCacheBackend.class);
+    private static final String INDEX_NAME = "rag:cache:vector-idx";
+    private static final String KEY_PREFIX = "rag:cache:";
+    private static final String VECTOR_FIELD = "vector";
+    private static final String ENTRY_FIELD = "entry";
+    private static final String DISTANCE_FIELD = "distance";
+    private static final String KNN_QUERY = "*=>[KNN 1 @" + VECTOR_FIELD + " $query AS " + DISTANCE_FIELD + "]";
+    /** Not a hash, so RediSearch ignores it despite the prefix; kept apart from the local backend's index. */
+    private static final String EXPIRY_INDEX_KEY = "rag:cache:vector-expiry";
+    /** Writes the hash and its TTL together, so no reader or crash sees an entry that never expires. */
+    static final String SAVE_SCRIPT = """
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4])
+            return redis.call('PEXPIRE', KEYS[1], ARGV[5])
+            """;
+
+    private final RedisCommandExecutor redis;
+    private final OrchestratorProperties properties;
+    private final CacheEntryCodec codec;
+    private final Counter evictions;
+    private volatile int indexDimensions;
+
+    public RediSearchCacheBackend(RedisCommandExecutor redis, OrchestratorProperties properties, MeterRegistry meterRegistry) {
+        this.redis = redis;
+        this.properties = properties;
+        this.codec = new CacheEntryCodec(properties.getCacheAnswerCompression());
+        this.evictions = Counter.builder("rag_cache_evictions_total")
+                .description("Cache entries evicted because the index exceeded rag.cache-max-entries")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Boolean> save(String key, CacheEntry entry, Duration ttl) {
+        byte[] value;
+        try {
+            value = codec.encode(entry);
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+        float[] vector = entry.vector();
+        return ensureIndex(vector.length)
+                .then(redis.execute("EVAL", SAVE_SCRIPT, 1, key, VECTOR_FIELD, float32(vector), ENTRY_FIELD, value, ttl.toMillis()))
+                .map(reply -> Long.valueOf(1).equals(reply.getFirst()))
+                // A separate command: in a cluster the expiry index and the entry live in different slots.
+                .flatMap(saved -> saved
+                        ? redis.execute("ZADD", EXPIRY_INDEX_KEY, System.currentTimeMillis() + ttl.toMillis(), key).thenReturn(true)
+                        : Mono.just(false));
+    }
+
+    @Override
+    public Mono<CacheEntry> load(String key) {
+        return redis.execute("HGET", key, ENTRY_FIELD)
+                .flatMap(reply -> Mono.justOrEmpty(reply.isEmpty() ? null : decode(key, reply.getFirst())))
+                .onErrorResume(ex -> {
+                    // e.g. WRONGTYPE for a value left behind by the local-index backend.
+                    log.debug("Unable to read cache entry {}: {}", key, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<Match> nearest(float[] embedding, double minSimilarity) {
+        return redis.execute("FT.SEARCH", INDEX_NAME, KNN_QUERY,
+                        "PARAMS", 2, "query", float32(embedding),
+                        "SORTBY", DISTANCE_FIELD,
+                        "RETURN", 2, ENTRY_FIELD, DISTANCE_FIELD,
+                        "DIALECT", 2)
+                .flatMap(reply -> Mono.justOrEmpty(firstResult(reply)))
+                .filter(match -> match.similarity() >= minSimilarity)
+                .onErrorResume(ex -> {
+                    log.warn("Cache vector search failed: {}", ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<Long> delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(0L);
+        }
+        // Dropping the hash drops it from the vector index as well.
+        return redis.execute("UNLINK", keys.toArray())
+                .map(reply -> reply.isEmpty() ? 0L : (Long) reply.getFirst())
+                .flatMap(deleted -> redis.execute("ZREM", prepend(EXPIRY_INDEX_KEY, keys)).thenReturn(deleted));
+    }
+
+    /**
+     * Trims expired members from the expiry index, then evicts the soonest-expiring entries once it
+     * holds more than {@code cacheMaxEntries}. Replicas trimming at once only unlink twice.
+     */
+    @Override
+    public Mono<Void> sync(Consumer<String> removed) {
+        long maxEntries = properties.getCacheMaxEntries();
+        return redis.execute("ZREMRANGEBYSCORE", EXPIRY_INDEX_KEY, "-inf", System.currentTimeMillis())
+                .then(redis.execute("ZCARD", EXPIRY_INDEX_KEY))
+                .map(reply -> (Long) reply.getFirst())
+                .filter(size -> maxEntries > 0 && size > maxEntries)
+                .flatMap(size -> redis.execute("ZRANGE", EXPIRY_INDEX_KEY, 0, size - maxEntries - 1))
+                .map(reply -> reply.stream().map(RediSearchCacheBackend::text).toList())
+                .filter(keys -> !keys.isEmpty())
+                .flatMap(keys -> redis.execute("ZREM", prepend(EXPIRY_INDEX_KEY, keys))
+                        .then(redis.execute("UNLINK", keys.toArray()))
+                        .doOnSuccess(reply -> {
+                            evictions.increment(keys.size());
+                            keys.forEach(removed);
+                        }))
+                .then();
+    }
+
+    /**
+     * Creates the index the first time an entry is written; replicas race harmlessly. An index that
+     * already exists must have the entries' dimensions: one left from another embedding model fails
+     * every write until it is dropped.
+     */
+    private Mono<Void> ensureIndex(int dimensions) {
+        int known = indexDimensions;
+        if (known == dimensions) {
+            return Mono.empty();
+        }
+        if (known != 0) {
+            return Mono.error(dimensionMismatch(known, dimensions));
+        }
+        return redis.execute("FT.CREATE", INDEX_NAME, "ON", "HASH", "PREFIX", 1, KEY_PREFIX,
+                        "SCHEMA", VECTOR_FIELD, "VECTOR", "HNSW", 6,
+                        "TYPE", "FLOAT32", "DIM", dimensions, "DISTANCE_METRIC", "COSINE")
+                .doOnSuccess(reply -> indexDimensions = dimensions)
+                .then()
+                .onErrorResume(ex -> ex.getMessage() != null && ex.getMessage().contains("already exists"),
+                        ex -> existingDimensions().flatMap(existing -> {
+                            indexDimensions = existing;
+                            if (existing == dimensions) {
+                                return Mono.<Void>empty();
+                            }
+                            log.error("Cache index {} holds {}-dimension vectors but entries have {}; "
+                                    + "drop it with FT.DROPINDEX to rebuild it", INDEX_NAME, existing, dimensions);
+                            return Mono.error(dimensionMismatch(existing, dimensions));
+                        }));
+    }
+
+    /** The {@code dim} of the vector field in the {@code FT.INFO} reply. */
+    private Mono<Integer> existingDimensions() {
+        return redis.execute("FT.INFO", INDEX_NAME)
+                .flatMap(reply -> Mono.justOrEmpty(vectorDimensions(field(reply, "attributes"))))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "Cache index " + INDEX_NAME + " exists but its vector dimensions could not be read")));
+    }
+
+    private static IllegalStateException dimensionMismatch(int indexed, int written) {
+        return new IllegalStateException("Cache index " + INDEX_NAME + " has " + indexed + " dimensions, not " + written);
+    }
+
+    /**
+     * Reads the single KNN hit from an {@code FT.SEARCH} reply: RESP2 is {@code [total, id, [field,
+     * value, ...]]}, RESP3 a map whose {@code results} hold {@code id} and {@code extra_attributes}.
+     */
+    private Match firstResult(List<Object> reply) {
+        if (reply.isEmpty()) {
+            return null;
+        }
+        String key;
+        List<?> fields;
+        if (reply.getFirst() instanceof Long) {
+            if (reply.size() < 3) {
+                return null;
+            }
+            key = text(reply.get(1));
+            fields = (List<?>) reply.get(2);
+        } else {
+            List<?> results = (List<?>) field(reply, "results");
+            if (results == null || results.isEmpty()) {
+                return null;
+            }
+            List<?> result = (List<?>) results.getFirst();
+            key = text(field(result, "id"));
+            fields = (List<?>) field(result, "extra_attributes");
+        }
+        Object distance = field(fields, DISTANCE_FIELD);
+        CacheEntry entry = decode(key, field(fields, ENTRY_FIELD));
+        if (entry == null || distance == null) {
+            return null;
+        }
+        // Cosine distance is 1 - cosine similarity.
+        double similarity = 1 - (distance instanceof Number number ? number.doubleValue() : Double.parseDouble(text(distance)));
+        return new Match(key, entry, similarity);
+    }
+
+    private CacheEntry decode(String key, Object value) {
+        if (!(value instanceof byte[] bytes)) {
+            return null;
+        }
+        try {
+            return codec.decode(bytes);
+        } catch (RuntimeException e) {
+            log.warn("Failed to decode cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Finds {@code dim} within the attribute named {@value #VECTOR_FIELD}, however deeply FT.INFO nests it. */
+    private static Integer vectorDimensions(Object attributes) {
+        if (!(attributes instanceof List<?> list)) {
+            return null;
+        }
+        for (Object attribute : list) {
+            if (attribute instanceof List<?> fields && VECTOR_FIELD.equals(text(field(fields, "identifier")))) {
+                return dim(fields);
+            }
+        }
+        return null;
+    }
+
+    private static Integer dim(List<?> fields) {
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = fields.get(i);
+            if (i + 1 < fields.size() && "dim".equalsIgnoreCase(text(value))) {
+                Object dim = fields.get(i + 1);
+                return dim instanceof Number number ? number.intValue() : Integer.valueOf(text(dim));
+            }
+            if (value instanceof List<?> nested) {
+                Integer found = dim(nested);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object[] prepend(String first, Collection<String> rest) {
+        Object[] args = new Object[rest.size() + 1];
+        args[0] = first;
+        int i = 1;
+        for (String value : rest) {
+            args[i++] = value;
+        }
+        return args;
+    }
+
+    private static Object field(List<?> pairs, String name) {
+        if (pairs == null) {
+            return null;
+        }
+        for (int i = 0; i + 1 < pairs.size(); i += 2) {
+            if (name.equals(text(pairs.get(i)))) {
+                return pairs.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String text(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static byte[] float32(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+}
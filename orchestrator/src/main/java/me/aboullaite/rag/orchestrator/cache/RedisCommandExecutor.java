@@ -0,0 +1,16 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends a raw Redis command that Spring Data Redis has no API for, such as the RediSearch
+ * {@code FT.*} family. Arguments are {@code String}, {@code byte[]} or integral numbers. The reply
+ * is flattened into a list: a scalar reply is its single element, bulk strings are {@code byte[]}
+ * and RESP3 maps become alternating keys and values.
+ */
+@FunctionalInterface
+public interface RedisCommandExecutor {
+
+    Mono<List<Object>> execute(String command, Object... args);
+}
@@ -0,0 +1,32 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Consumer;
+import reactor.core.publisher.Mono;
+
+/**
+ * The shared (L2) tier behind {@link SemanticCacheService}: where entries live in Redis and how the
+ * nearest one to a prompt embedding is found. Selected with {@code rag.cache-backend}.
+ */
+public interface SemanticCacheBackend {
+
+    Mono<Boolean> save(String key, CacheEntry entry, Duration ttl);
+
+    Mono<CacheEntry> load(String key);
+
+    /** The closest entry whose similarity is at least {@code minSimilarity}, or empty. */
+    Mono<Match> nearest(float[] embedding, double minSimilarity);
+
+    /** Removes the given entries; returns how many of them still existed. */
+    Mono<Long> delete(Collection<String> keys);
+
+    /** Periodic maintenance; {@code removed} is told about every key the backend dropped. */
+    default Mono<Void> sync(Consumer<String> removed) {
+        return Mono.empty();
+    }
+
+    record Match(String key, CacheEntry entry, double similarity) {
+    }
+}
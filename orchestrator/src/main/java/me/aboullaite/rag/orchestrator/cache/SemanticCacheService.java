@@ -3,94 +3,290 @@ package me.aboullaite.rag.orchestrator.cache;
 import me.aboullaite.rag.common.dto.GenerationResponse;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import me.aboullaite.rag.orchestrator.util.PromptUtils;
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
 import me.aboullaite.rag.orchestrator.util.SimilarityUtils;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+/**
+ * Two-tier semantic cache. L1 is a bounded on-heap Caffeine (W-TinyLFU) cache of recently used
+ * entries, checked by exact prompt key and then by nearest neighbour over its resident vectors.
+ * L2 is Redis, searched through the configured {@link SemanticCacheBackend}. Replicas evict each
+ * other's L1 copies through the {@value #INVALIDATION_CHANNEL} pub/sub channel. Each entry is also
+ * listed under the documents it was built from, so re-ingesting a document evicts exactly the
+ * answers that cite it.
+ */
 @Component
 public class SemanticCacheService {
 
     private static final Logger log = LoggerFactory.getLogger(SemanticCacheService.class);
     private static final String CACHE_KEY_PREFIX = "rag:cache:";
-    private static final String CACHE_INDEX_KEY = "rag:cache:index";
+    private static final String INVALIDATION_CHANNEL = "rag:cache:invalidate";
+    /** Per-document set of the cache keys whose answers were built from that document. */
+    private static final String DOC_INDEX_PREFIX = "rag:cache:doc:";
 
     private final ReactiveStringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final SemanticCacheBackend backend;
     private final OrchestratorProperties properties;
+    private final Cache<String, LocalEntry> local;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final Counter exactHits;
+    private final Counter semanticHits;
+    private final Counter invalidated;
+    private Disposable indexSync;
+    private Disposable invalidations;
 
     public SemanticCacheService(
             ReactiveStringRedisTemplate redisTemplate,
-            ObjectMapper objectMapper,
-            OrchestratorProperties properties) {
+            SemanticCacheBackend backend,
+            OrchestratorProperties properties,
+            MeterRegistry meterRegistry) {
         this.redisTemplate = redisTemplate;
-        this.objectMapper = objectMapper;
+        this.backend = backend;
         this.properties = properties;
+        // Entries expire from L1 when their Redis copy does, however long ago they were written.
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheL1MaxEntries())
+                .expireAfter(Expiry.writing((String key, LocalEntry value) -> remainingTtl(value.entry())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "rag_cache_l1");
+        this.l1Hits = lookupCounter(meterRegistry, "l1");
+        this.l2Hits = lookupCounter(meterRegistry, "l2");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.exactHits = hitCounter(meterRegistry, "exact");
+        this.semanticHits = hitCounter(meterRegistry, "semantic");
+        this.invalidated = Counter.builder("rag_cache_invalidated_total")
+                .description("Cache entries evicted because a document they were built from changed")
+                .register(meterRegistry);
     }
 
-    public Mono<CacheHit> lookup(String prompt, double[] embedding) {
-        String normalized = normalize(prompt);
-        return redisTemplate.opsForSet()
-                .members(CACHE_INDEX_KEY)
-                .flatMap(key -> loadEntry(key)
-                        .map(entry -> new CacheHit(entry, SimilarityUtils.cosineSimilarity(embedding, entry.embedding))))
-                .filter(hit -> hit.similarity >= properties.getCacheSimThreshold())
-                .sort((a, b) -> Double.compare(b.similarity, a.similarity))
-                .next()
-                .doOnNext(hit -> log.debug("Cache hit for prompt '{}', similarity {}", normalized, hit.similarity))
-                .switchIfEmpty(Mono.empty());
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIndexSync() {
+        Duration interval = Duration.ofMillis(properties.getCacheIndexSyncMs());
+        indexSync = Flux.interval(Duration.ZERO, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> syncIndex()
+                        .onErrorResume(ex -> {
+                            log.warn("Cache index sync failed: {}", ex.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
     }
 
-    public Mono<Void> put(String prompt, double[] embedding, GenerationResponse response, List<RetrievedDoc> docs) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInvalidationListener() {
+        invalidations = redisTemplate.listenToChannel(INVALIDATION_CHANNEL)
+                .map(message -> message.getMessage())
+                .filter(message -> !message.startsWith(instanceId))
+                .map(message -> message.substring(message.indexOf(' ') + 1))
+                .doOnError(ex -> log.warn("Cache invalidation subscription failed: {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(local::invalidate);
+    }
+
+    @PreDestroy
+    public void stopIndexSync() {
+        if (indexSync != null) {
+            indexSync.dispose();
+        }
+        if (invalidations != null) {
+            invalidations.dispose();
+        }
+    }
+
+    /**
+     * Exact match on the normalized prompt key first (L1, then a direct Redis GET), answered as a
+     * similarity-1.0 hit; only on a miss does the lookup fall back to nearest-neighbour search.
+     */
+    public Mono<CacheHit> lookup(String prompt, float[] embedding) {
+        String normalized = PromptUtils.normalize(prompt);
+        String key = buildKey(normalized);
+        return Mono.defer(() -> {
+            LocalEntry exact = local.getIfPresent(key);
+            if (exact != null) {
+                return Mono.just(hit(exact.entry(), 1.0, l1Hits, exactHits));
+            }
+            return backend.load(key)
+                    .map(entry -> {
+                        promote(key, entry);
+                        return hit(entry, 1.0, l2Hits, exactHits);
+                    })
+                    .switchIfEmpty(Mono.defer(() -> semanticLookup(embedding)));
+        }).doOnNext(hit -> log.debug("Cache hit for prompt '{}', similarity {}", normalized, hit.similarity));
+    }
+
+    public Mono<Void> put(String prompt, float[] embedding, GenerationResponse response, List<RetrievedDoc> docs) {
         CacheEntry entry = new CacheEntry(
-                normalize(prompt),
-                embedding,
+                PromptUtils.normalize(prompt),
+                quantized() ? null : embedding,
+                quantized() ? QuantizedVector.quantize(embedding) : null,
                 response.answer(),
                 response.citations(),
                 docs.stream().map(RetrievedDoc::id).toList(),
                 System.currentTimeMillis());
-        try {
-            String json = objectMapper.writeValueAsString(entry);
-            String cacheKey = buildKey(entry.normalizedQuery());
-            Duration ttl = Duration.ofSeconds(properties.getCacheTtlSeconds());
-            return redisTemplate.opsForValue()
-                    .set(cacheKey, json, ttl)
-                    .flatMap(success -> success
-                            ? redisTemplate.opsForSet().add(CACHE_INDEX_KEY, cacheKey)
-                            : Mono.just(0L))
-                    .then();
-        } catch (JsonProcessingException e) {
-            return Mono.error(e);
+        String cacheKey = buildKey(entry.normalizedQuery());
+        Duration ttl = Duration.ofSeconds(properties.getCacheTtlSeconds());
+        return backend.save(cacheKey, entry, ttl)
+                .filter(Boolean::booleanValue)
+                .flatMap(saved -> {
+                    local.put(cacheKey, new LocalEntry(entry, SimilarityUtils.normalize(embedding)));
+                    return indexDocuments(cacheKey, entry.docIds(), ttl).then(publishInvalidation(cacheKey));
+                })
+                .then();
+    }
+
+    /**
+     * Evicts every entry whose answer was built from one of {@code docIds}, in Redis and in the L1
+     * tier of every replica, and returns how many entries were removed.
+     */
+    public Mono<Long> invalidateDocuments(Collection<String> docIds) {
+        List<String> docKeys = docIds.stream().distinct().map(docId -> DOC_INDEX_PREFIX + docId).toList();
+        if (docKeys.isEmpty()) {
+            return Mono.just(0L);
         }
+        return Flux.fromIterable(docKeys)
+                .flatMap(docKey -> redisTemplate.opsForSet().members(docKey))
+                .distinct()
+                .collectList()
+                .flatMap(keys -> backend.delete(keys)
+                        .doOnNext(removed -> {
+                            local.invalidateAll(keys);
+                            invalidated.increment(removed);
+                            log.info("Invalidated {} cache entries for documents {}", removed, docIds);
+                        })
+                        .flatMap(removed -> Flux.fromIterable(keys)
+                                .flatMap(this::publishInvalidation)
+                                .then(redisTemplate.unlink(docKeys.toArray(String[]::new)))
+                                .thenReturn(removed)));
+    }
+
+    /** Backend maintenance; keys the backend drops are evicted from L1 too. */
+    public Mono<Void> syncIndex() {
+        return backend.sync(local::invalidate);
     }
 
-    private Mono<CacheEntry> loadEntry(String key) {
-        return redisTemplate.opsForValue().get(key)
-                .flatMap(json -> {
-                    try {
-                        return Mono.just(objectMapper.readValue(json, CacheEntry.class));
-                    } catch (JsonProcessingException e) {
-                        log.warn("Failed to deserialize cache entry: {}", e.getMessage());
-                        return Mono.empty();
-                    }
+    private Mono<CacheHit> semanticLookup(float[] embedding) {
+        CacheHit localHit = nearestLocal(embedding);
+        if (localHit != null) {
+            return Mono.just(hit(localHit.entry(), localHit.similarity(), l1Hits, semanticHits));
+        }
+        return backend.nearest(embedding, properties.getCacheSimThreshold())
+                .map(match -> {
+                    promote(match.key(), match.entry());
+                    return hit(match.entry(), match.similarity(), l2Hits, semanticHits);
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    /** The closest resident L1 vector at or above the similarity threshold. */
+    private CacheHit nearestLocal(float[] embedding) {
+        float[] query = SimilarityUtils.normalize(embedding);
+        if (query == null) {
+            return null;
+        }
+        String bestKey = null;
+        double bestScore = properties.getCacheSimThreshold();
+        for (Map.Entry<String, LocalEntry> resident : local.asMap().entrySet()) {
+            float[] vector = resident.getValue().unitVector();
+            if (vector == null || vector.length != query.length) {
+                continue;
+            }
+            double score = SimilarityUtils.dot(query, vector);
+            if (score >= bestScore) {
+                bestScore = score;
+                bestKey = resident.getKey();
+            }
+        }
+        // Read through the cache so the hit counts towards the entry's TinyLFU frequency.
+        LocalEntry best = bestKey == null ? null : local.getIfPresent(bestKey);
+        return best == null ? null : new CacheHit(best.entry(), bestScore);
+    }
+
+    private void promote(String key, CacheEntry entry) {
+        local.put(key, new LocalEntry(entry, SimilarityUtils.normalize(entry.vector())));
+    }
+
+    private static CacheHit hit(CacheEntry entry, double similarity, Counter tier, Counter match) {
+        tier.increment();
+        match.increment();
+        return new CacheHit(entry, similarity);
+    }
+
+    /** Adds the entry to the reverse index of each document, kept at least as long as the entry. */
+    private Mono<Void> indexDocuments(String cacheKey, List<String> docIds, Duration ttl) {
+        if (docIds == null || docIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromStream(docIds.stream().distinct())
+                .map(docId -> DOC_INDEX_PREFIX + docId)
+                .flatMap(docKey -> redisTemplate.opsForSet().add(docKey, cacheKey)
+                        .then(redisTemplate.expire(docKey, ttl)))
+                .onErrorResume(ex -> {
+                    log.warn("Failed to index cache entry by document: {}", ex.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Long> publishInvalidation(String cacheKey) {
+        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + " " + cacheKey)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to publish cache invalidation: {}", ex.getMessage());
+                    return Mono.just(0L);
                 });
     }
 
-    private String normalize(String prompt) {
-        return prompt == null ? "" : prompt.trim().toLowerCase(Locale.ROOT);
+    private Duration remainingTtl(CacheEntry entry) {
+        long expiresAt = entry.createdAtMillis() + properties.getCacheTtlSeconds() * 1000;
+        return Duration.ofMillis(Math.max(0, expiresAt - System.currentTimeMillis()));
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String tier) {
+        return Counter.builder("rag_cache_lookups_total")
+                .description("Semantic cache lookups by the tier that answered them")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static Counter hitCounter(MeterRegistry meterRegistry, String match) {
+        return Counter.builder("rag_cache_hits_total")
+                .description("Semantic cache hits by how the entry was matched")
+                .tag("match", match)
+                .register(meterRegistry);
+    }
+
+    private boolean quantized() {
+        return properties.getCacheVectorEncoding() == OrchestratorProperties.VectorEncoding.INT8;
     }
 
     private String buildKey(String normalizedPrompt) {
@@ -103,15 +299,24 @@ public class SemanticCacheService {
         }
     }
 
+    /** Exactly one of {@code embedding} and {@code quantizedEmbedding} is set. */
     public record CacheEntry(
             String normalizedQuery,
-            double[] embedding,
+            float[] embedding,
+            QuantizedVector quantizedEmbedding,
             String answer,
             List<String> citations,
             List<String> docIds,
             long createdAtMillis) {
+
+        public float[] vector() {
+            return embedding != null ? embedding : quantizedEmbedding.toFloatArray();
+        }
     }
 
     public record CacheHit(CacheEntry entry, double similarity) {
     }
+
+    private record LocalEntry(CacheEntry entry, float[] unitVector) {
+    }
 }
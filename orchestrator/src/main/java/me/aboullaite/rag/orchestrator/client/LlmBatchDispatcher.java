@@ -0,0 +1,90 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import me.aboullaite.rag.orchestrator.client.LlmClient.LlmResponse;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Micro-batches concurrent {@link LlmClient#generate} calls. Prompts arriving within
+ * {@code rag.llm-batch-max-wait-ms} of each other, up to {@code rag.llm-batch-max-size}, go out as
+ * one completions request with a prompt array, and each choice completes its caller's Mono. With
+ * {@code rag.llm-batching-enabled=false} every call goes straight to the client.
+ */
+@Component
+public class LlmBatchDispatcher {
+
+    /** Batches in flight at once; the concurrency limiter in front bounds the prompts anyway. */
+    private static final int MAX_CONCURRENT_BATCHES = 256;
+    private static final Duration EMIT_TIMEOUT = Duration.ofMillis(100);
+
+    private final LlmClient llmClient;
+    private final OrchestratorProperties properties;
+    private final DistributionSummary batchSizes;
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable dispatcher;
+
+    public LlmBatchDispatcher(LlmClient llmClient, OrchestratorProperties properties, MeterRegistry meterRegistry) {
+        this.llmClient = llmClient;
+        this.properties = properties;
+        this.batchSizes = DistributionSummary.builder("rag_llm_batch_size")
+                .description("Prompts per LLM completions request")
+                .serviceLevelObjectives(1, 2, 4, 8, 16, 32)
+                .register(meterRegistry);
+        this.dispatcher = queue.asFlux()
+                .bufferTimeout(
+                        Math.max(1, properties.getLlmBatchMaxSize()),
+                        Duration.ofMillis(properties.getLlmBatchMaxWaitMs()),
+                        true)
+                .flatMap(this::dispatch, MAX_CONCURRENT_BATCHES)
+                .subscribe();
+    }
+
+    public Mono<LlmResponse> generate(String prompt) {
+        if (!properties.isLlmBatchingEnabled()) {
+            return llmClient.generate(prompt);
+        }
+        return Mono.defer(() -> {
+            Sinks.One<LlmResponse> result = Sinks.one();
+            // Callers emit from many threads; spin briefly instead of failing on a concurrent emission.
+            queue.emitNext(new Pending(prompt, result), Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+            return result.asMono();
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.dispose();
+    }
+
+    private Mono<Void> dispatch(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        if (batch.size() == 1) {
+            Pending only = batch.getFirst();
+            return llmClient.generate(only.prompt())
+                    .doOnNext(only.result()::tryEmitValue)
+                    .doOnError(only.result()::tryEmitError)
+                    .onErrorResume(ex -> Mono.empty())
+                    .then();
+        }
+        return llmClient.generateBatch(batch.stream().map(Pending::prompt).toList())
+                .doOnNext(responses -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().tryEmitValue(responses.get(i));
+                    }
+                })
+                .doOnError(ex -> batch.forEach(pending -> pending.result().tryEmitError(ex)))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private record Pending(String prompt, Sinks.One<LlmResponse> result) {
+    }
+}
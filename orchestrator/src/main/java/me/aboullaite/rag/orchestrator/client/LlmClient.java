@@ -1,22 +1,33 @@
 package me.aboullaite.rag.orchestrator.client;
 
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
 public class LlmClient {
 
     private static final Logger log = LoggerFactory.getLogger(LlmClient.class);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE = new ParameterizedTypeReference<>() {
+    };
+    private static final String STREAM_DONE = "[DONE]";
 
     private final WebClient llmWebClient;
     private final OrchestratorProperties properties;
@@ -39,7 +50,42 @@ public class LlmClient {
                 .map(node -> toResponse(prompt, start, node));
     }
 
-    private Object buildPayload(String prompt) {
+    /**
+     * Completes several prompts in one request ({@code prompt} as an array); vLLM schedules them
+     * together. Responses are in prompt order, matched by each choice's {@code index}.
+     */
+    public Mono<List<LlmResponse>> generateBatch(List<String> prompts) {
+        Instant start = Instant.now();
+        ObjectNode payload = buildPayload(prompts.getFirst());
+        ArrayNode promptArray = payload.putArray("prompt");
+        prompts.forEach(promptArray::add);
+        return llmWebClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(Duration.ofMillis(properties.getGenTimeoutMs()))
+                .map(node -> toResponses(prompts.size(), start, node));
+    }
+
+    /**
+     * Streams completion text deltas using the OpenAI-compatible {@code stream: true} SSE mode.
+     * The timeout applies to the first delta and to every gap between deltas.
+     */
+    public Flux<String> stream(String prompt) {
+        return llmWebClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(buildPayload(prompt).put("stream", true))
+                .retrieve()
+                .bodyToFlux(SSE_TYPE)
+                .timeout(Duration.ofMillis(properties.getGenTimeoutMs()))
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .concatMap(this::parseDelta);
+    }
+
+    private ObjectNode buildPayload(String prompt) {
         return objectMapper.createObjectNode()
                 .put("model", properties.getModelName())
                 .put("prompt", prompt)
@@ -47,6 +93,41 @@ public class LlmClient {
                 .put("max_tokens", 512);
     }
 
+    private Mono<String> parseDelta(String data) {
+        try {
+            JsonNode choice = objectMapper.readTree(data).path("choices").path(0);
+            // completions stream choices[0].text, chat completions stream choices[0].delta.content
+            String text = choice.has("text")
+                    ? choice.path("text").asText("")
+                    : choice.path("delta").path("content").asText("");
+            return text.isEmpty() ? Mono.empty() : Mono.just(text);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping malformed stream chunk: {}", e.getOriginalMessage());
+            return Mono.empty();
+        }
+    }
+
+    private List<LlmResponse> toResponses(int count, Instant start, JsonNode node) {
+        String[] texts = new String[count];
+        for (JsonNode choice : node.path("choices")) {
+            int index = choice.path("index").asInt(-1);
+            if (index >= 0 && index < count) {
+                texts[index] = choice.path("text").asText("");
+            }
+        }
+        log.debug("LLM batch of {} completed in {} ms", count, Duration.between(start, Instant.now()).toMillis());
+        List<LlmResponse> responses = new ArrayList<>(count);
+        for (String text : texts) {
+            if (text == null) {
+                throw new IllegalStateException("LLM batch response is missing a choice");
+            }
+            String answer = text.isBlank() ? "I don't know." : text;
+            // usage.completion_tokens covers the whole batch; count each answer's words instead.
+            responses.add(new LlmResponse(answer, -1, Math.max(1, answer.split("\\s+").length)));
+        }
+        return responses;
+    }
+
     private LlmResponse toResponse(String prompt, Instant start, JsonNode node) {
         // OpenAI-compatible format: choices[0].text
         JsonNode choices = node.path("choices");
@@ -65,9 +146,14 @@ public class LlmClient {
         if (text.isBlank()) {
             text = "I don't know.";
         }
-        long ttft = Duration.between(start, Instant.now()).toMillis();
-        int tokens = Math.max(1, text.split("\\s+").length);
-        return new LlmResponse(text, ttft, tokens);
+        // A blocking call cannot observe the first token; ttft is only known when streaming.
+        long latency = Duration.between(start, Instant.now()).toMillis();
+        log.debug("LLM completion received in {} ms", latency);
+        int tokens = node.path("usage").path("completion_tokens").asInt(0);
+        if (tokens <= 0) {
+            tokens = Math.max(1, text.split("\\s+").length);
+        }
+        return new LlmResponse(text, -1, tokens);
     }
 
     public record LlmResponse(String answer, long ttftMillis, int tokens) {
@@ -0,0 +1,229 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Adaptive (AIMD) cap on concurrent LLM calls. The limit grows by one for each call that succeeds
+ * while at least half the permits are in use, and is multiplied by {@code rag.llm-limit-backoff}
+ * when a call times out or the backend answers 429/5xx. Callers failed by one batched request
+ * share one error instance and back the limit off once, not once per prompt. Callers wait at most
+ * {@code rag.llm-acquire-timeout-ms} for a permit and are then rejected with
+ * {@link OverloadedException}, so they can answer without the model instead of queueing on a
+ * saturated backend.
+ */
+@Component
+public class LlmConcurrencyLimiter {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int ABANDONED = 2;
+
+    private final OrchestratorProperties properties;
+    private final Scheduler timer;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Counter rejections;
+    /** Drops already counted; Throwable keeps identity equality, and weak keys let them be collected. */
+    private final Set<Throwable> countedDrops = Collections.newSetFromMap(new WeakHashMap<>());
+    private double limit;
+    private int inflight;
+
+    public LlmConcurrencyLimiter(OrchestratorProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Schedulers.parallel());
+    }
+
+    LlmConcurrencyLimiter(OrchestratorProperties properties, MeterRegistry meterRegistry, Scheduler timer) {
+        this.properties = properties;
+        this.timer = timer;
+        this.limit = properties.getLlmInitialLimit();
+        Gauge.builder("rag_llm_concurrency_limit", this, LlmConcurrencyLimiter::limit)
+                .description("Current adaptive limit on concurrent LLM calls")
+                .register(meterRegistry);
+        Gauge.builder("rag_llm_inflight", this, LlmConcurrencyLimiter::inflight)
+                .description("LLM calls holding a permit")
+                .register(meterRegistry);
+        Gauge.builder("rag_llm_queued", this, LlmConcurrencyLimiter::queued)
+                .description("Requests waiting for an LLM permit")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("rag_llm_rejected_total")
+                .description("Requests shed because no LLM permit was free within rag.llm-acquire-timeout-ms")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> limit(Mono<T> call) {
+        if (!properties.isLlmLimiterEnabled()) {
+            return call;
+        }
+        return Mono.usingWhen(acquire(), permit -> call, Permit::succeeded, Permit::failed, Permit::cancelled);
+    }
+
+    /** The permit is held until the stream terminates, so a long generation counts for its whole length. */
+    public <T> Flux<T> limit(Flux<T> call) {
+        if (!properties.isLlmLimiterEnabled()) {
+            return call;
+        }
+        return Flux.usingWhen(acquire(), permit -> call, Permit::succeeded, Permit::failed, Permit::cancelled);
+    }
+
+    synchronized double limit() {
+        return limit;
+    }
+
+    synchronized int inflight() {
+        return inflight;
+    }
+
+    synchronized int queued() {
+        return waiters.size();
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = null;
+            int holders;
+            synchronized (this) {
+                if (waiters.isEmpty() && inflight < Math.floor(limit)) {
+                    inflight++;
+                } else {
+                    waiter = new Waiter(sink);
+                    waiters.addLast(waiter);
+                }
+                holders = inflight;
+            }
+            if (waiter == null) {
+                sink.success(new Permit(holders));
+                return;
+            }
+            Waiter queued = waiter;
+            Disposable deadline = timer.schedule(() -> {
+                if (abandon(queued)) {
+                    rejections.increment();
+                    sink.error(new OverloadedException("No LLM permit within " + properties.getLlmAcquireTimeoutMs() + " ms"));
+                }
+            }, properties.getLlmAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+            sink.onDispose(deadline);
+            sink.onCancel(() -> abandon(queued));
+        }).doOnDiscard(Permit.class, permit -> permit.release(null, false));
+    }
+
+    private boolean abandon(Waiter waiter) {
+        if (!waiter.abandon()) {
+            return false;
+        }
+        synchronized (this) {
+            waiters.remove(waiter);
+        }
+        return true;
+    }
+
+    /** Hands the freed permit to the oldest live waiter, or returns it to the pool. */
+    private void release(Throwable drop, boolean succeeded, int inflightAtStart) {
+        Waiter next = null;
+        int holders;
+        synchronized (this) {
+            if (drop != null) {
+                if (countedDrops.add(drop)) {
+                    limit = Math.max(properties.getLlmMinLimit(), limit * properties.getLlmLimitBackoff());
+                }
+            } else if (succeeded && inflightAtStart * 2 >= limit) {
+                limit = Math.min(properties.getLlmMaxLimit(), limit + 1);
+            }
+            inflight--;
+            while (inflight < Math.floor(limit) && !waiters.isEmpty()) {
+                Waiter candidate = waiters.pollFirst();
+                if (candidate.grant()) {
+                    next = candidate;
+                    inflight++;
+                    break;
+                }
+            }
+            holders = inflight;
+        }
+        if (next != null) {
+            next.sink.success(new Permit(holders));
+        }
+    }
+
+    /** Timeouts and backend overload answers; client errors and cancellations say nothing about load. */
+    static boolean isDrop(Throwable error) {
+        if (error instanceof TimeoutException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        return error instanceof WebClientResponseException response
+                && (response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError());
+    }
+
+    private final class Permit {
+
+        private final int inflightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        Mono<Void> succeeded() {
+            return Mono.fromRunnable(() -> release(null, true));
+        }
+
+        Mono<Void> failed(Throwable error) {
+            return Mono.fromRunnable(() -> release(isDrop(error) ? error : null, false));
+        }
+
+        Mono<Void> cancelled() {
+            return Mono.fromRunnable(() -> release(null, false));
+        }
+
+        private void release(Throwable drop, boolean succeeded) {
+            if (released.compareAndSet(false, true)) {
+                LlmConcurrencyLimiter.this.release(drop, succeeded, inflightAtStart);
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        boolean grant() {
+            return state.compareAndSet(WAITING, GRANTED);
+        }
+
+        boolean abandon() {
+            return state.compareAndSet(WAITING, ABANDONED);
+        }
+    }
+
+    /** No permit became free in time; the caller should degrade rather than wait for the model. */
+    public static class OverloadedException extends RuntimeException {
+
+        public OverloadedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
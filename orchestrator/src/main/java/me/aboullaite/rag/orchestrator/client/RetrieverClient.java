@@ -1,5 +1,6 @@
 package me.aboullaite.rag.orchestrator.client;
 
+import me.aboullaite.rag.common.dto.DocumentPage;
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
@@ -11,7 +12,9 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -46,4 +49,24 @@ public class RetrieverClient {
                 .doOnError(span::recordException)
                 .doFinally(signal -> span.end());
     }
+
+    /**
+     * One page of the retriever's document catalog. With an {@code etag} the request is
+     * conditional: a 304 comes back as an entity with that status and no body.
+     */
+    public Mono<ResponseEntity<DocumentPage>> documents(String cursor, int limit, String etag) {
+        return retrieverWebClient.get()
+                .uri(cursor == null ? "/v1/documents?limit={limit}" : "/v1/documents?cursor={cursor}&limit={limit}",
+                        cursor == null ? new Object[] {limit} : new Object[] {cursor, limit})
+                .headers(headers -> {
+                    if (etag != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                })
+                .exchangeToMono(response -> response.statusCode().is2xxSuccessful()
+                                || response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)
+                        ? response.toEntity(DocumentPage.class)
+                        : response.createError())
+                .timeout(Duration.ofMillis(properties.getGenTimeoutMs() / 2));
+    }
 }
@@ -1,28 +1,43 @@
 package me.aboullaite.rag.orchestrator.config;
 
+import me.aboullaite.rag.common.embedding.EmbeddingConfiguration;
+import me.aboullaite.rag.common.http.HttpClientConfiguration;
+import me.aboullaite.rag.common.http.HttpClientFactory;
+import me.aboullaite.rag.orchestrator.cache.LettuceRedisCommandExecutor;
+import me.aboullaite.rag.orchestrator.cache.LocalIndexCacheBackend;
+import me.aboullaite.rag.orchestrator.cache.RediSearchCacheBackend;
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheBackend;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 @EnableConfigurationProperties(OrchestratorProperties.class)
+@Import({EmbeddingConfiguration.class, HttpClientConfiguration.class})
 public class OrchestratorConfig {
 
     @Bean
-    WebClient retrieverWebClient(WebClient.Builder builder, OrchestratorProperties properties) {
+    WebClient retrieverWebClient(WebClient.Builder builder, HttpClientFactory httpClients, OrchestratorProperties properties) {
         return builder.clone()
                 .baseUrl(properties.getRetrieverUrl())
+                .clientConnector(httpClients.connector("retriever"))
                 .build();
     }
 
     @Bean
-    WebClient llmWebClient(WebClient.Builder builder, OrchestratorProperties properties) {
+    WebClient llmWebClient(WebClient.Builder builder, HttpClientFactory httpClients, OrchestratorProperties properties) {
         return builder.clone()
                 .baseUrl(properties.getLlmUrl())
+                .clientConnector(httpClients.connector("llm"))
                 .exchangeStrategies(ExchangeStrategies.builder()
                         .codecs(cfg -> cfg.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
                         .build())
@@ -33,4 +48,27 @@ public class OrchestratorConfig {
     ReactiveStringRedisTemplate reactiveStringRedisTemplate(ReactiveRedisConnectionFactory factory) {
         return new ReactiveStringRedisTemplate(factory);
     }
+
+    @Bean
+    ReactiveRedisTemplate<byte[], byte[]> binaryRedisTemplate(ReactiveRedisConnectionFactory factory) {
+        return new ReactiveRedisTemplate<>(factory, RedisSerializationContext.byteArray());
+    }
+
+    @Bean
+    SemanticCacheBackend semanticCacheBackend(
+            OrchestratorProperties properties,
+            ReactiveRedisConnectionFactory connectionFactory,
+            ReactiveStringRedisTemplate redisTemplate,
+            ReactiveRedisTemplate<byte[], byte[]> binaryRedisTemplate,
+            MeterRegistry meterRegistry) {
+        return switch (properties.getCacheBackend()) {
+            case LOCAL -> new LocalIndexCacheBackend(redisTemplate, binaryRedisTemplate, properties, meterRegistry);
+            case REDISEARCH -> {
+                if (!(connectionFactory instanceof LettuceConnectionFactory lettuce)) {
+                    throw new IllegalStateException("rag.cache-backend=redisearch requires the Lettuce Redis client");
+                }
+                yield new RediSearchCacheBackend(new LettuceRedisCommandExecutor(lettuce), properties, meterRegistry);
+            }
+        };
+    }
 }
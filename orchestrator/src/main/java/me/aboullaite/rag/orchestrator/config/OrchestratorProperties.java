@@ -1,5 +1,7 @@
 package me.aboullaite.rag.orchestrator.config;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "rag")
@@ -12,6 +14,29 @@ public class OrchestratorProperties {
     private String modelName = "gemma-2-2b-it";
     private String systemPrompt;
     private long cacheTtlSeconds = 600;
+    private long cacheIndexSyncMs = 5000;
+    private VectorEncoding cacheVectorEncoding = VectorEncoding.FLOAT32;
+    private long cacheL1MaxEntries = 1000;
+    private long cacheMaxEntries = 100_000;
+    private AnswerCompression cacheAnswerCompression = AnswerCompression.NONE;
+    private CacheBackend cacheBackend = CacheBackend.LOCAL;
+    private boolean coalescingDistributed = false;
+    private long coalescingPollMs = 100;
+    private boolean llmLimiterEnabled = true;
+    private int llmInitialLimit = 16;
+    private int llmMinLimit = 1;
+    private int llmMaxLimit = 128;
+    private double llmLimitBackoff = 0.9;
+    private long llmAcquireTimeoutMs = 250;
+    private boolean llmBatchingEnabled = false;
+    private int llmBatchMaxSize = 8;
+    private long llmBatchMaxWaitMs = 10;
+    private PromptLayout promptLayout = PromptLayout.STANDARD;
+    private long promptFragmentCacheSize = 4096;
+    private int documentsPageSize = 100;
+    private int documentsMaxPageSize = 1000;
+    private long documentsCacheSize = 1000;
+    private Set<TrafficClass> speculativeRetrieval = EnumSet.noneOf(TrafficClass.class);
 
     public String getRetrieverUrl() {
         return retrieverUrl;
@@ -68,4 +93,225 @@ public class OrchestratorProperties {
     public void setCacheTtlSeconds(long cacheTtlSeconds) {
         this.cacheTtlSeconds = cacheTtlSeconds;
     }
+
+    public long getCacheIndexSyncMs() {
+        return cacheIndexSyncMs;
+    }
+
+    public void setCacheIndexSyncMs(long cacheIndexSyncMs) {
+        this.cacheIndexSyncMs = cacheIndexSyncMs;
+    }
+
+    public VectorEncoding getCacheVectorEncoding() {
+        return cacheVectorEncoding;
+    }
+
+    public void setCacheVectorEncoding(VectorEncoding cacheVectorEncoding) {
+        this.cacheVectorEncoding = cacheVectorEncoding;
+    }
+
+    public long getCacheL1MaxEntries() {
+        return cacheL1MaxEntries;
+    }
+
+    public void setCacheL1MaxEntries(long cacheL1MaxEntries) {
+        this.cacheL1MaxEntries = cacheL1MaxEntries;
+    }
+
+    public long getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(long cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public AnswerCompression getCacheAnswerCompression() {
+        return cacheAnswerCompression;
+    }
+
+    public void setCacheAnswerCompression(AnswerCompression cacheAnswerCompression) {
+        this.cacheAnswerCompression = cacheAnswerCompression;
+    }
+
+    public CacheBackend getCacheBackend() {
+        return cacheBackend;
+    }
+
+    public void setCacheBackend(CacheBackend cacheBackend) {
+        this.cacheBackend = cacheBackend;
+    }
+
+    public boolean isCoalescingDistributed() {
+        return coalescingDistributed;
+    }
+
+    public void setCoalescingDistributed(boolean coalescingDistributed) {
+        this.coalescingDistributed = coalescingDistributed;
+    }
+
+    public long getCoalescingPollMs() {
+        return coalescingPollMs;
+    }
+
+    public void setCoalescingPollMs(long coalescingPollMs) {
+        this.coalescingPollMs = coalescingPollMs;
+    }
+
+    public boolean isLlmLimiterEnabled() {
+        return llmLimiterEnabled;
+    }
+
+    public void setLlmLimiterEnabled(boolean llmLimiterEnabled) {
+        this.llmLimiterEnabled = llmLimiterEnabled;
+    }
+
+    public int getLlmInitialLimit() {
+        return llmInitialLimit;
+    }
+
+    public void setLlmInitialLimit(int llmInitialLimit) {
+        this.llmInitialLimit = llmInitialLimit;
+    }
+
+    public int getLlmMinLimit() {
+        return llmMinLimit;
+    }
+
+    public void setLlmMinLimit(int llmMinLimit) {
+        this.llmMinLimit = llmMinLimit;
+    }
+
+    public int getLlmMaxLimit() {
+        return llmMaxLimit;
+    }
+
+    public void setLlmMaxLimit(int llmMaxLimit) {
+        this.llmMaxLimit = llmMaxLimit;
+    }
+
+    public double getLlmLimitBackoff() {
+        return llmLimitBackoff;
+    }
+
+    public void setLlmLimitBackoff(double llmLimitBackoff) {
+        this.llmLimitBackoff = llmLimitBackoff;
+    }
+
+    public long getLlmAcquireTimeoutMs() {
+        return llmAcquireTimeoutMs;
+    }
+
+    public void setLlmAcquireTimeoutMs(long llmAcquireTimeoutMs) {
+        this.llmAcquireTimeoutMs = llmAcquireTimeoutMs;
+    }
+
+    public boolean isLlmBatchingEnabled() {
+        return llmBatchingEnabled;
+    }
+
+    public void setLlmBatchingEnabled(boolean llmBatchingEnabled) {
+        this.llmBatchingEnabled = llmBatchingEnabled;
+    }
+
+    public int getLlmBatchMaxSize() {
+        return llmBatchMaxSize;
+    }
+
+    public void setLlmBatchMaxSize(int llmBatchMaxSize) {
+        this.llmBatchMaxSize = llmBatchMaxSize;
+    }
+
+    public long getLlmBatchMaxWaitMs() {
+        return llmBatchMaxWaitMs;
+    }
+
+    public void setLlmBatchMaxWaitMs(long llmBatchMaxWaitMs) {
+        this.llmBatchMaxWaitMs = llmBatchMaxWaitMs;
+    }
+
+    public PromptLayout getPromptLayout() {
+        return promptLayout;
+    }
+
+    public void setPromptLayout(PromptLayout promptLayout) {
+        this.promptLayout = promptLayout;
+    }
+
+    public long getPromptFragmentCacheSize() {
+        return promptFragmentCacheSize;
+    }
+
+    public void setPromptFragmentCacheSize(long promptFragmentCacheSize) {
+        this.promptFragmentCacheSize = promptFragmentCacheSize;
+    }
+
+    public int getDocumentsPageSize() {
+        return documentsPageSize;
+    }
+
+    public void setDocumentsPageSize(int documentsPageSize) {
+        this.documentsPageSize = documentsPageSize;
+    }
+
+    public int getDocumentsMaxPageSize() {
+        return documentsMaxPageSize;
+    }
+
+    public void setDocumentsMaxPageSize(int documentsMaxPageSize) {
+        this.documentsMaxPageSize = documentsMaxPageSize;
+    }
+
+    public long getDocumentsCacheSize() {
+        return documentsCacheSize;
+    }
+
+    public void setDocumentsCacheSize(long documentsCacheSize) {
+        this.documentsCacheSize = documentsCacheSize;
+    }
+
+    public Set<TrafficClass> getSpeculativeRetrieval() {
+        return speculativeRetrieval;
+    }
+
+    public void setSpeculativeRetrieval(Set<TrafficClass> speculativeRetrieval) {
+        this.speculativeRetrieval = speculativeRetrieval;
+    }
+
+    /** How cache entry embeddings are stored in Redis and in the in-memory index. */
+    public enum VectorEncoding {
+        FLOAT32,
+        INT8
+    }
+
+    /** How the answer text of a cache entry is compressed in Redis; short answers are always stored raw. */
+    public enum AnswerCompression {
+        NONE,
+        ZSTD
+    }
+
+    /**
+     * Where the semantic cache searches for similar prompts: an in-process HNSW index per replica
+     * (LOCAL) or a RediSearch vector index shared by all replicas (REDISEARCH, needs Redis Stack).
+     */
+    public enum CacheBackend {
+        LOCAL,
+        REDISEARCH
+    }
+
+    /**
+     * How the LLM prompt is laid out: instructions around the context (STANDARD), or one fixed
+     * instruction prefix followed by the chunks in chunk-id order and then the question
+     * (PREFIX_CACHED), so vLLM prefix caching can reuse KV blocks across requests.
+     */
+    public enum PromptLayout {
+        STANDARD,
+        PREFIX_CACHED
+    }
+
+    /** The request paths whose settings can differ: blocking /v1/ask (ASK) and /v1/ask/stream (STREAM). */
+    public enum TrafficClass {
+        ASK,
+        STREAM
+    }
 }
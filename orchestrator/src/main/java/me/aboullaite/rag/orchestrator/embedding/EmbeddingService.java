@@ -1,6 +0,0 @@
-package me.aboullaite.rag.orchestrator.embedding;
-
-public interface EmbeddingService {
-
-    double[] embed(String text);
-}
@@ -3,23 +3,57 @@ package me.aboullaite.rag.orchestrator.prompt;
 import me.aboullaite.rag.common.dto.CitationInfo;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.PromptLayout;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PromptAssembler {
 
     private static final int MAX_CONTEXT_CHARS = 4000;
+    private static final String IDK_ANSWER = "I don't know. This information is not available in the knowledge base.";
 
     private final OrchestratorProperties properties;
+    /** Everything before the first chunk in the PREFIX_CACHED layout; identical for every request. */
+    private final String staticPrefix;
+    private final Cache<String, Fragment> fragments;
+    private final DistributionSummary sharedPrefix;
+    private final AtomicReference<String> previousPrompt = new AtomicReference<>("");
 
-    public PromptAssembler(OrchestratorProperties properties) {
+    public PromptAssembler(OrchestratorProperties properties, MeterRegistry meterRegistry) {
         this.properties = properties;
+        this.staticPrefix = properties.getSystemPrompt() + "\n\n"
+                + "Answer the question at the end using only the context documents below. "
+                + "Cite sources using their Doc IDs in square brackets. "
+                + "If the context is empty or does not contain the answer, respond with: \"" + IDK_ANSWER + "\"\n\n"
+                + "Context:\n";
+        this.fragments = Caffeine.newBuilder()
+                .maximumSize(properties.getPromptFragmentCacheSize())
+                .build();
+        this.sharedPrefix = DistributionSummary.builder("rag_prompt_shared_prefix_chars")
+                .description("Leading characters a prompt shares with the one assembled before it")
+                .baseUnit("characters")
+                .register(meterRegistry);
     }
 
     public PromptBundle assemble(String userPrompt, List<RetrievedDoc> docs) {
+        PromptBundle bundle = properties.getPromptLayout() == PromptLayout.PREFIX_CACHED
+                ? assemblePrefixCached(userPrompt, docs)
+                : assembleStandard(userPrompt, docs);
+        sharedPrefix.record(commonPrefixLength(previousPrompt.getAndSet(bundle.prompt()), bundle.prompt()));
+        return bundle;
+    }
+
+    private PromptBundle assembleStandard(String userPrompt, List<RetrievedDoc> docs) {
         StringBuilder contextBuilder = new StringBuilder();
         List<String> citations = new ArrayList<>();
         List<CitationInfo> citationDetails = new ArrayList<>();
@@ -32,13 +66,7 @@ public class PromptAssembler {
             }
             contextBuilder.append(section);
             citations.add(doc.id());
-
-            // Extract metadata for citation
-            String docId = doc.meta().getOrDefault("docId", "unknown");
-            String source = doc.meta().getOrDefault("source", "unknown");
-            String sectionName = doc.meta().getOrDefault("section", "");
-            citationDetails.add(new CitationInfo(doc.id(), docId, source, sectionName));
-
+            citationDetails.add(citation(doc));
             remaining -= section.length();
         }
 
@@ -49,7 +77,7 @@ public class PromptAssembler {
             finalPrompt.append("No supporting documents were retrieved from the knowledge base.\n\n");
             finalPrompt.append("Question: ").append(userPrompt).append("\n\n");
             finalPrompt.append("Since no relevant documents were found in the knowledge base, ");
-            finalPrompt.append("respond with: \"I don't know. This information is not available in the knowledge base.\"\n\n");
+            finalPrompt.append("respond with: \"").append(IDK_ANSWER).append("\"\n\n");
             finalPrompt.append("Answer:");
         } else {
             finalPrompt.append("Context:\n").append(contextBuilder).append("\n");
@@ -62,14 +90,86 @@ public class PromptAssembler {
         return new PromptBundle(finalPrompt.toString(), citations, citationDetails);
     }
 
+    /**
+     * Static prefix, then the chunks that fit the budget (picked by relevance) in chunk-id order,
+     * then the question. Requests retrieving the same chunks produce the same text up to the
+     * question whatever their ranking, and requests sharing the lowest ids share a longer prefix.
+     */
+    private PromptBundle assemblePrefixCached(String userPrompt, List<RetrievedDoc> docs) {
+        List<String> citations = new ArrayList<>();
+        List<CitationInfo> citationDetails = new ArrayList<>();
+        List<Fragment> selected = new ArrayList<>();
+        int remaining = MAX_CONTEXT_CHARS;
+
+        for (RetrievedDoc doc : docs) {
+            Fragment fragment = fragment(doc);
+            if (fragment.text().length() > remaining) {
+                break;
+            }
+            selected.add(fragment);
+            citations.add(doc.id());
+            citationDetails.add(citation(doc));
+            remaining -= fragment.text().length();
+        }
+        selected.sort(Comparator.comparing(Fragment::id));
+
+        StringBuilder finalPrompt = new StringBuilder(staticPrefix.length() + MAX_CONTEXT_CHARS + userPrompt.length() + 32);
+        finalPrompt.append(staticPrefix);
+        selected.forEach(fragment -> finalPrompt.append(fragment.text()));
+        finalPrompt.append("\nQuestion: ").append(userPrompt).append("\n\n");
+        finalPrompt.append("Answer:");
+
+        return new PromptBundle(finalPrompt.toString(), citations, citationDetails);
+    }
+
+    /** The rendered chunk, re-rendered when a re-ingest changed the text behind its id. */
+    private Fragment fragment(RetrievedDoc doc) {
+        Fragment cached = fragments.getIfPresent(doc.id());
+        if (cached != null && cached.chunk().equals(doc.chunk())) {
+            return cached;
+        }
+        // Sorted keys keep the rendering byte-identical whatever map the metadata arrived in.
+        Fragment fragment = new Fragment(doc.id(), doc.chunk(), formatDoc(doc.id(), doc.chunk(), new TreeMap<>(doc.meta())));
+        fragments.put(doc.id(), fragment);
+        return fragment;
+    }
+
     private String formatDoc(RetrievedDoc doc) {
+        return formatDoc(doc.id(), doc.chunk(), doc.meta());
+    }
+
+    private static String formatDoc(String id, String chunk, Map<String, String> meta) {
         StringBuilder builder = new StringBuilder();
-        builder.append("Doc ID: ").append(doc.id()).append("\n");
-        doc.meta().forEach((k, v) -> builder.append(k).append(": ").append(v).append("\n"));
-        builder.append("Content: ").append(doc.chunk()).append("\n---\n");
+        builder.append("Doc ID: ").append(id).append("\n");
+        meta.forEach((k, v) -> {
+            if (!RetrievedDoc.RETRIEVAL_META_KEY.equals(k)) {
+                builder.append(k).append(": ").append(v).append("\n");
+            }
+        });
+        builder.append("Content: ").append(chunk).append("\n---\n");
         return builder.toString();
     }
 
+    private static CitationInfo citation(RetrievedDoc doc) {
+        String docId = doc.meta().getOrDefault("docId", "unknown");
+        String source = doc.meta().getOrDefault("source", "unknown");
+        String sectionName = doc.meta().getOrDefault("section", "");
+        return new CitationInfo(doc.id(), docId, source, sectionName);
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
     public record PromptBundle(String prompt, List<String> citations, List<CitationInfo> citationDetails) {
     }
+
+    private record Fragment(String id, String chunk, String text) {
+    }
 }
@@ -4,15 +4,19 @@ import me.aboullaite.rag.common.dto.CitationInfo;
 import me.aboullaite.rag.common.dto.GenerationResponse;
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
+import me.aboullaite.rag.common.embedding.EmbeddingService;
 import me.aboullaite.rag.common.tracing.TracingUtils;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheHit;
+import me.aboullaite.rag.orchestrator.client.LlmBatchDispatcher;
 import me.aboullaite.rag.orchestrator.client.LlmClient;
 import me.aboullaite.rag.orchestrator.client.LlmClient.LlmResponse;
+import me.aboullaite.rag.orchestrator.client.LlmConcurrencyLimiter;
+import me.aboullaite.rag.orchestrator.client.LlmConcurrencyLimiter.OverloadedException;
 import me.aboullaite.rag.orchestrator.client.RetrieverClient;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
-import me.aboullaite.rag.orchestrator.embedding.EmbeddingService;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.TrafficClass;
 import me.aboullaite.rag.orchestrator.prompt.PromptAssembler;
 import me.aboullaite.rag.orchestrator.prompt.PromptAssembler.PromptBundle;
 import io.micrometer.core.instrument.Counter;
@@ -24,12 +28,19 @@ import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 @Service
 public class AskService {
@@ -39,9 +50,12 @@ public class AskService {
 
     private final RetrieverClient retrieverClient;
     private final LlmClient llmClient;
+    private final LlmConcurrencyLimiter llmLimiter;
+    private final LlmBatchDispatcher llmBatcher;
     private final SemanticCacheService cacheService;
     private final EmbeddingService embeddingService;
     private final PromptAssembler promptAssembler;
+    private final RequestCoalescer requestCoalescer;
     private final OrchestratorProperties properties;
     private final Timer askLatency;
     private final Counter cacheHitCounter;
@@ -49,22 +63,31 @@ public class AskService {
     private final Counter fallbackCounter;
     private final Counter tokensCounter;
     private final DistributionSummary costSummary;
+    private final Counter speculationUsed;
+    private final Counter speculationWasted;
+    private final Timer speculationSaved;
     private final Tracer tracer;
     private final MeterRegistry meterRegistry;
 
     public AskService(
             RetrieverClient retrieverClient,
             LlmClient llmClient,
+            LlmConcurrencyLimiter llmLimiter,
+            LlmBatchDispatcher llmBatcher,
             SemanticCacheService cacheService,
             EmbeddingService embeddingService,
             PromptAssembler promptAssembler,
+            RequestCoalescer requestCoalescer,
             OrchestratorProperties properties,
             MeterRegistry meterRegistry) {
         this.retrieverClient = retrieverClient;
         this.llmClient = llmClient;
+        this.llmLimiter = llmLimiter;
+        this.llmBatcher = llmBatcher;
         this.cacheService = cacheService;
         this.embeddingService = embeddingService;
         this.promptAssembler = promptAssembler;
+        this.requestCoalescer = requestCoalescer;
         this.properties = properties;
         this.meterRegistry = meterRegistry;
         this.askLatency = Timer.builder("rag_orchestrator_latency")
@@ -85,24 +108,83 @@ public class AskService {
         this.costSummary = DistributionSummary.builder("rag_cost_usd_total")
                 .description("Approximate request cost in USD")
                 .register(meterRegistry);
+        this.speculationUsed = Counter.builder("rag_speculative_retrieval_total")
+                .description("Retrievals started alongside the cache lookup, by whether the answer needed them")
+                .tag("outcome", "used")
+                .register(meterRegistry);
+        this.speculationWasted = Counter.builder("rag_speculative_retrieval_total")
+                .description("Retrievals started alongside the cache lookup, by whether the answer needed them")
+                .tag("outcome", "wasted")
+                .register(meterRegistry);
+        this.speculationSaved = Timer.builder("rag_speculative_retrieval_saved")
+                .description("Retrieval time already spent when a cache miss needed the speculative result")
+                .register(meterRegistry);
         this.tracer = GlobalOpenTelemetry.getTracer("rag-java/orchestrator");
     }
 
     public Mono<GenerationResponse> ask(String prompt, Map<String, String> filters, Integer topK) {
         String sanitizedPrompt = redact(prompt);
-        double[] embedding = embeddingService.embed(sanitizedPrompt);
         Span span = tracer.spanBuilder("rag.ask")
                 .setAttribute("rag.prompt.length", sanitizedPrompt.length())
                 .startSpan();
         Timer.Sample sample = Timer.start(meterRegistry);
+        String coalescingKey = RequestCoalescer.key(sanitizedPrompt, filters, topK);
+
+        return requestCoalescer.execute(coalescingKey, () -> answer(sanitizedPrompt, filters, topK, coalescingKey, span))
+                .doOnError(span::recordException)
+                .doFinally(signalType -> {
+                    sample.stop(askLatency);
+                    span.end();
+                });
+    }
 
-        return cacheService.lookup(sanitizedPrompt, embedding)
+    private Mono<GenerationResponse> answer(
+            String sanitizedPrompt,
+            Map<String, String> filters,
+            Integer topK,
+            String coalescingKey,
+            Span span) {
+        Query query = new Query(sanitizedPrompt, filters, topK == null ? 0 : topK);
+        Speculation speculation = speculate(TrafficClass.ASK, query);
+        return embed(sanitizedPrompt).flatMap(embedding -> cacheService.lookup(sanitizedPrompt, embedding)
                 .flatMap(hit -> onCacheHit(hit, span))
                 .switchIfEmpty(Mono.defer(() -> {
                     cacheMissCounter.increment();
                     TracingUtils.recordCacheHit(span, false);
-                    return generateWithRetrieval(sanitizedPrompt, filters, topK, embedding, span);
-                }))
+                    return requestCoalescer.executeAcrossReplicas(
+                            coalescingKey,
+                            () -> generateWithRetrieval(sanitizedPrompt, retrieve(query, speculation), embedding, span),
+                            () -> cacheService.lookup(sanitizedPrompt, embedding).flatMap(hit -> onCacheHit(hit, span)));
+                })))
+                .doFinally(signal -> release(speculation));
+    }
+
+    /**
+     * Streaming variant of {@link #ask}: forwards LLM deltas as they arrive and finishes with a
+     * chunk carrying the full response (citations, partial flag).
+     */
+    public Flux<StreamChunk> askStream(String prompt, Map<String, String> filters, Integer topK) {
+        String sanitizedPrompt = redact(prompt);
+        Span span = tracer.spanBuilder("rag.ask.stream")
+                .setAttribute("rag.prompt.length", sanitizedPrompt.length())
+                .startSpan();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Query query = new Query(sanitizedPrompt, filters, topK == null ? 0 : topK);
+
+        return Flux.defer(() -> {
+                    Speculation speculation = speculate(TrafficClass.STREAM, query);
+                    return embed(sanitizedPrompt).flatMapMany(embedding -> cacheService.lookup(sanitizedPrompt, embedding)
+                                    .flatMap(hit -> onCacheHit(hit, span))
+                                    .flatMapMany(response -> Flux.just(StreamChunk.delta(response.answer()), StreamChunk.complete(response)))
+                                    .switchIfEmpty(Flux.defer(() -> {
+                                        cacheMissCounter.increment();
+                                        TracingUtils.recordCacheHit(span, false);
+                                        return retrieve(query, speculation)
+                                                .defaultIfEmpty(List.of())
+                                                .flatMapMany(docs -> streamAnswer(sanitizedPrompt, docs, embedding, span));
+                                    })))
+                            .doFinally(signalType -> release(speculation));
+                })
                 .doOnError(span::recordException)
                 .doFinally(signalType -> {
                     sample.stop(askLatency);
@@ -110,6 +192,79 @@ public class AskService {
                 });
     }
 
+    private Flux<StreamChunk> streamAnswer(
+            String sanitizedPrompt,
+            List<RetrievedDoc> docs,
+            float[] embedding,
+            Span parentSpan) {
+        PromptBundle promptBundle = promptAssembler.assemble(sanitizedPrompt, docs);
+        StringBuilder answer = new StringBuilder();
+        AtomicInteger tokens = new AtomicInteger();
+        AtomicLong ttftMillis = new AtomicLong(-1);
+        long start = System.nanoTime();
+
+        Flux<StreamChunk> deltas = llmLimiter.limit(llmClient.stream(promptBundle.prompt()))
+                .doOnNext(delta -> {
+                    if (tokens.getAndIncrement() == 0) {
+                        ttftMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                    answer.append(delta);
+                })
+                .map(StreamChunk::delta);
+        Mono<StreamChunk> completion = Mono.defer(() -> {
+            String text = answer.isEmpty() ? "I don't know." : answer.toString();
+            LlmResponse llmResponse = new LlmResponse(text, ttftMillis.get(), Math.max(1, tokens.get()));
+            GenerationResponse response = toGenerationResponse(llmResponse, promptBundle, retrievalMethod(docs), parentSpan);
+            return cacheService.put(sanitizedPrompt, embedding, response, docs)
+                    .onErrorResume(e -> Mono.empty())
+                    .thenReturn(StreamChunk.complete(response));
+        });
+
+        return deltas.concatWith(completion)
+                .onErrorResume(ex -> {
+                    if (!answer.isEmpty()) {
+                        // Deltas already reached the client: close the stream as partial, without caching it.
+                        log.warn("LLM stream interrupted after {} tokens: {}", tokens.get(), ex.getMessage());
+                        TracingUtils.recordFallback(parentSpan, ex.getClass().getSimpleName());
+                        GenerationResponse partial = new GenerationResponse(
+                                answer.toString(),
+                                promptBundle.citations(),
+                                promptBundle.citationDetails(),
+                                true,
+                                new GenerationResponse.ResponseMetadata(false, null, retrievalMethod(docs), false));
+                        return Flux.just(StreamChunk.complete(partial));
+                    }
+                    GenerationResponse fallback = fallback(ex, docs, promptBundle, parentSpan);
+                    return cacheFallback(ex, sanitizedPrompt, embedding, fallback, docs)
+                            .thenMany(Flux.just(StreamChunk.delta(fallback.answer()), StreamChunk.complete(fallback)));
+                });
+    }
+
+    private Mono<float[]> embed(String sanitizedPrompt) {
+        return Mono.fromFuture(() -> embeddingService.embedAsync(sanitizedPrompt));
+    }
+
+    /**
+     * Starts retrieving now, alongside embedding and the cache lookup, when {@code rag.speculative-retrieval}
+     * lists the traffic class; null otherwise. The retriever embeds the query itself, so nothing
+     * it needs waits on the lookup.
+     */
+    private Speculation speculate(TrafficClass trafficClass, Query query) {
+        return properties.getSpeculativeRetrieval().contains(trafficClass)
+                ? new Speculation(retrieverClient.retrieve(query))
+                : null;
+    }
+
+    private Mono<List<RetrievedDoc>> retrieve(Query query, Speculation speculation) {
+        return speculation != null ? speculation.take() : retrieverClient.retrieve(query);
+    }
+
+    private void release(Speculation speculation) {
+        if (speculation != null) {
+            speculation.release();
+        }
+    }
+
     private Mono<GenerationResponse> onCacheHit(CacheHit hit, Span span) {
         cacheHitCounter.increment();
         TracingUtils.recordCacheHit(span, true);
@@ -127,12 +282,10 @@ public class AskService {
 
     private Mono<GenerationResponse> generateWithRetrieval(
             String sanitizedPrompt,
-            Map<String, String> filters,
-            Integer topK,
-            double[] embedding,
+            Mono<List<RetrievedDoc>> retrieval,
+            float[] embedding,
             Span parentSpan) {
-        Query query = new Query(sanitizedPrompt, filters, topK == null ? 0 : topK);
-        return retrieverClient.retrieve(query)
+        return retrieval
                 .flatMap(docs -> produceAnswer(sanitizedPrompt, docs, embedding, parentSpan))
                 .switchIfEmpty(Mono.defer(() -> produceAnswer(sanitizedPrompt, List.of(), embedding, parentSpan)));
     }
@@ -140,28 +293,49 @@ public class AskService {
     private Mono<GenerationResponse> produceAnswer(
             String sanitizedPrompt,
             List<RetrievedDoc> docs,
-            double[] embedding,
+            float[] embedding,
             Span parentSpan) {
         PromptBundle promptBundle = promptAssembler.assemble(sanitizedPrompt, docs);
-        return llmClient.generate(promptBundle.prompt())
-                .map(response -> toGenerationResponse(response, promptBundle, false, parentSpan))
+        return llmLimiter.limit(llmBatcher.generate(promptBundle.prompt()))
+                .map(response -> toGenerationResponse(response, promptBundle, retrievalMethod(docs), parentSpan))
                 .flatMap(response -> cacheService.put(sanitizedPrompt, embedding, response, docs)
                         .thenReturn(response))
                 .onErrorResume(ex -> {
-                    log.warn("LLM call failed, using fallback: {}", ex.getMessage());
-                    fallbackCounter.increment();
-                    TracingUtils.recordFallback(parentSpan, ex.getClass().getSimpleName());
-                    GenerationResponse fallback = fallbackResponse(docs, promptBundle.citationDetails());
-                    return cacheService.put(sanitizedPrompt, embedding, fallback, docs)
-                            .onErrorResume(e -> Mono.empty())
+                    GenerationResponse fallback = fallback(ex, docs, promptBundle, parentSpan);
+                    return cacheFallback(ex, sanitizedPrompt, embedding, fallback, docs)
                             .thenReturn(fallback);
                 });
     }
 
+    private GenerationResponse fallback(Throwable ex, List<RetrievedDoc> docs, PromptBundle promptBundle, Span span) {
+        if (ex instanceof OverloadedException) {
+            log.debug("LLM at its concurrency limit, shedding to fallback: {}", ex.getMessage());
+        } else {
+            log.warn("LLM call failed, using fallback: {}", ex.getMessage());
+        }
+        fallbackCounter.increment();
+        TracingUtils.recordFallback(span, ex.getClass().getSimpleName());
+        return fallbackResponse(docs, promptBundle.citationDetails());
+    }
+
+    /** Shed requests are not cached: the model is only busy, and would answer once load drops. */
+    private Mono<Void> cacheFallback(
+            Throwable ex,
+            String sanitizedPrompt,
+            float[] embedding,
+            GenerationResponse fallback,
+            List<RetrievedDoc> docs) {
+        if (ex instanceof OverloadedException) {
+            return Mono.empty();
+        }
+        return cacheService.put(sanitizedPrompt, embedding, fallback, docs)
+                .onErrorResume(e -> Mono.empty());
+    }
+
     private GenerationResponse toGenerationResponse(
             LlmResponse llmResponse,
             PromptBundle bundle,
-            boolean partial,
+            String retrievalMethod,
             Span span) {
         int tokens = llmResponse.tokens();
         tokensCounter.increment(tokens);
@@ -172,17 +346,17 @@ public class AskService {
         GenerationResponse.ResponseMetadata metadata = new GenerationResponse.ResponseMetadata(
                 false,
                 null,
-                "vector",
+                retrievalMethod,
                 false
         );
-        return new GenerationResponse(answerWithCitations, bundle.citations(), bundle.citationDetails(), partial, metadata);
+        return new GenerationResponse(answerWithCitations, bundle.citations(), bundle.citationDetails(), false, metadata);
     }
 
     private GenerationResponse fallbackResponse(List<RetrievedDoc> docs, List<CitationInfo> citationDetails) {
         GenerationResponse.ResponseMetadata metadata = new GenerationResponse.ResponseMetadata(
                 false,
                 null,
-                docs.isEmpty() ? null : "vector",
+                docs.isEmpty() ? null : retrievalMethod(docs),
                 true
         );
         if (docs.isEmpty()) {
@@ -201,6 +375,28 @@ public class AskService {
         return new GenerationResponse(builder.toString(), citations, limitedDetails, true, metadata);
     }
 
+    /**
+     * Sources that contributed to {@code docs}, from the retriever's per-document tag:
+     * {@code vector}, {@code lexical} or {@code vector+lexical}. Untagged documents count as vector.
+     */
+    static String retrievalMethod(List<RetrievedDoc> docs) {
+        boolean vector = false;
+        boolean lexical = false;
+        for (RetrievedDoc doc : docs) {
+            String sources = doc.meta().get(RetrievedDoc.RETRIEVAL_META_KEY);
+            if (sources == null) {
+                vector = true;
+                continue;
+            }
+            vector |= sources.contains("vector");
+            lexical |= sources.contains("lexical");
+        }
+        if (vector && lexical) {
+            return "vector+lexical";
+        }
+        return lexical ? "lexical" : "vector";
+    }
+
     private String ensureCitations(String answer, List<String> citations) {
         if (citations.isEmpty()) {
             return answer;
@@ -227,4 +423,57 @@ public class AskService {
         }
         return value.length() <= max ? value : value.substring(0, max) + "...";
     }
+
+    public record StreamChunk(String delta, GenerationResponse response) {
+
+        static StreamChunk delta(String text) {
+            return new StreamChunk(text, null);
+        }
+
+        static StreamChunk complete(GenerationResponse response) {
+            return new StreamChunk(null, response);
+        }
+
+        public boolean isComplete() {
+            return response != null;
+        }
+    }
+
+    /**
+     * A retrieval already in flight for the miss path. Whichever comes first decides it: the miss
+     * path taking the result, or the request ending without it (cache hit, another replica
+     * answering, cancellation), which cancels the call and counts it as wasted.
+     */
+    private final class Speculation {
+
+        private final long startNanos = System.nanoTime();
+        private final Sinks.One<List<RetrievedDoc>> result = Sinks.one();
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final Disposable call;
+        private volatile long doneNanos;
+
+        Speculation(Mono<List<RetrievedDoc>> retrieval) {
+            this.call = retrieval
+                    .doOnTerminate(() -> doneNanos = System.nanoTime())
+                    .subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+        }
+
+        /** The retrieval result; records how much of it had already run, which is the time saved. */
+        Mono<List<RetrievedDoc>> take() {
+            if (settled.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                long done = doneNanos;
+                speculationUsed.increment();
+                speculationSaved.record((done != 0 ? Math.min(done, now) : now) - startNanos, TimeUnit.NANOSECONDS);
+            }
+            return result.asMono();
+        }
+
+        void release() {
+            if (settled.compareAndSet(false, true)) {
+                call.dispose();
+                speculationWasted.increment();
+            }
+        }
+    }
 }
@@ -1,51 +1,102 @@
 package me.aboullaite.rag.orchestrator.service;
 
-import me.aboullaite.rag.common.dto.DocumentMetadata;
-import me.aboullaite.rag.common.dto.Query;
+import me.aboullaite.rag.common.dto.DocumentPage;
 import me.aboullaite.rag.orchestrator.client.RetrieverClient;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+/**
+ * Pages through the retriever's document catalog. Every page fetched is kept with its ETag and
+ * the next request for it is conditional, so while the catalog is unchanged the retriever answers
+ * with an empty 304 instead of re-serializing the page. When the retriever is unreachable or fails
+ * with a 5xx the last copy of the page is served, or an empty one if there is none; a 4xx is the
+ * caller's to see and is passed through.
+ */
 @Service
 public class DocumentService {
 
     private static final Logger log = LoggerFactory.getLogger(DocumentService.class);
 
     private final RetrieverClient retrieverClient;
+    private final OrchestratorProperties properties;
+    private final Cache<String, Listing> pages;
+    private final Counter fetched;
+    private final Counter notModified;
+    private final Counter stale;
+    private final Counter failed;
+    private final Counter rejected;
 
-    public DocumentService(RetrieverClient retrieverClient) {
+    public DocumentService(RetrieverClient retrieverClient, OrchestratorProperties properties, MeterRegistry meterRegistry) {
         this.retrieverClient = retrieverClient;
+        this.properties = properties;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(properties.getDocumentsCacheSize())
+                .build();
+        this.fetched = outcome(meterRegistry, "fetched");
+        this.notModified = outcome(meterRegistry, "not_modified");
+        this.stale = outcome(meterRegistry, "stale");
+        this.failed = outcome(meterRegistry, "failed");
+        this.rejected = outcome(meterRegistry, "rejected");
     }
 
-    public Mono<List<DocumentMetadata>> listDocuments() {
-        // Use a wildcard query to retrieve documents (topK set high to get all)
-        Query query = new Query("*", Map.of(), 1000);
-
-        return retrieverClient.retrieve(query)
-                .map(docs -> docs.stream()
-                        .collect(Collectors.groupingBy(doc ->
-                                doc.meta().getOrDefault("docId", doc.id())))
-                        .entrySet().stream()
-                        .map(entry -> {
-                            String docId = entry.getKey();
-                            var firstDoc = entry.getValue().get(0);
-                            String id = firstDoc.id();
-                            String source = firstDoc.meta().getOrDefault("source", "");
-                            String section = firstDoc.meta().getOrDefault("section", "");
-                            int chunkCount = entry.getValue().size();
-
-                            return new DocumentMetadata(id, docId, source, section, chunkCount);
-                        })
-                        .sorted((a, b) -> a.docId().compareTo(b.docId()))
-                        .collect(Collectors.toList()))
-                .onErrorResume(ex -> {
+    public Mono<Listing> listDocuments(String cursor, Integer limit) {
+        int pageSize = limit != null ? limit : properties.getDocumentsPageSize();
+        String key = (cursor == null ? "" : cursor) + '\0' + pageSize;
+        Listing cached = pages.getIfPresent(key);
+        return retrieverClient.documents(cursor, pageSize, cached == null ? null : cached.etag())
+                .map(response -> {
+                    if (cached != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        notModified.increment();
+                        return cached;
+                    }
+                    fetched.increment();
+                    String etag = response.getHeaders().getETag();
+                    DocumentPage page = response.getBody() == null ? new DocumentPage(null, null) : response.getBody();
+                    Listing listing = new Listing(page, pageSize, etag);
+                    if (etag != null) {
+                        pages.put(key, listing);
+                    }
+                    return listing;
+                })
+                .onErrorResume(WebClientResponseException.class, ex -> {
+                    if (!ex.getStatusCode().is4xxClientError()) {
+                        return Mono.error(ex);
+                    }
+                    rejected.increment();
+                    return Mono.error(new ResponseStatusException(ex.getStatusCode(), ex.getStatusText(), ex));
+                })
+                .onErrorResume(ex -> !(ex instanceof ResponseStatusException), ex -> {
                     log.warn("Failed to list documents: {}", ex.getMessage());
-                    return Mono.just(List.of());
+                    if (cached != null) {
+                        stale.increment();
+                        return Mono.just(cached);
+                    }
+                    failed.increment();
+                    return Mono.just(new Listing(new DocumentPage(null, null), pageSize, null));
                 });
     }
-}
\ No newline at end of file
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("rag_documents_requests_total")
+                .description("Document catalog pages served, by how the retriever answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A catalog page, the page size it was requested with for building the next link, and the
+     * retriever's ETag for it, if any.
+     */
+    public record Listing(DocumentPage page, int limit, String etag) {
+    }
+}
@@ -0,0 +1,149 @@
+package me.aboullaite.rag.orchestrator.service;
+
+import me.aboullaite.rag.common.dto.GenerationResponse;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import me.aboullaite.rag.orchestrator.util.PromptUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Single-flight execution of identical asks. Concurrent callers with the same key share one
+ * in-flight {@link Mono}; optionally a Redis lease extends this across orchestrator replicas.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+    private static final String LEASE_KEY_PREFIX = "rag:inflight:";
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ConcurrentMap<String, Mono<GenerationResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final OrchestratorProperties properties;
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final Counter localCoalescedCounter;
+    private final Counter remoteCoalescedCounter;
+
+    public RequestCoalescer(
+            ReactiveStringRedisTemplate redisTemplate,
+            OrchestratorProperties properties,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.localCoalescedCounter = Counter.builder("rag_requests_coalesced_total")
+                .description("Asks answered by sharing an identical in-flight request")
+                .tag("scope", "local")
+                .register(meterRegistry);
+        this.remoteCoalescedCounter = Counter.builder("rag_requests_coalesced_total")
+                .description("Asks answered by sharing an identical in-flight request")
+                .tag("scope", "remote")
+                .register(meterRegistry);
+    }
+
+    public static String key(String sanitizedPrompt, Map<String, String> filters, Integer topK) {
+        StringBuilder builder = new StringBuilder(PromptUtils.normalize(sanitizedPrompt));
+        builder.append('\u0000').append(filters == null ? Map.of() : new TreeMap<>(filters));
+        builder.append('\u0000').append(topK == null ? 0 : topK);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to build coalescing key", e);
+        }
+    }
+
+    /**
+     * Runs {@code work} once per key within this replica; callers arriving while it is in flight
+     * receive the same result.
+     */
+    public Mono<GenerationResponse> execute(String key, Supplier<Mono<GenerationResponse>> work) {
+        return Mono.defer(() -> {
+            AtomicBoolean leader = new AtomicBoolean();
+            Mono<GenerationResponse> shared = inFlight.computeIfAbsent(key, k -> {
+                leader.set(true);
+                AtomicReference<Mono<GenerationResponse>> self = new AtomicReference<>();
+                Mono<GenerationResponse> flight = Mono.defer(work)
+                        .doFinally(signal -> inFlight.remove(k, self.get()))
+                        .cache();
+                self.set(flight);
+                return flight;
+            });
+            if (!leader.get()) {
+                localCoalescedCounter.increment();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * When distributed coalescing is enabled, only the replica holding the Redis lease for
+     * {@code key} runs {@code work}; the others poll {@code peerResult} (typically the cache) until
+     * the leader publishes its answer, and run {@code work} themselves if the lease is abandoned.
+     */
+    public Mono<GenerationResponse> executeAcrossReplicas(
+            String key,
+            Supplier<Mono<GenerationResponse>> work,
+            Supplier<Mono<GenerationResponse>> peerResult) {
+        if (!properties.isCoalescingDistributed()) {
+            return Mono.defer(work);
+        }
+        String leaseKey = LEASE_KEY_PREFIX + key;
+        Duration leaseTtl = Duration.ofMillis(properties.getGenTimeoutMs() * 2);
+        return redisTemplate.opsForValue()
+                .setIfAbsent(leaseKey, leaseOwner, leaseTtl)
+                .onErrorResume(ex -> {
+                    log.warn("Unable to acquire coalescing lease, generating locally: {}", ex.getMessage());
+                    return Mono.just(true);
+                })
+                .flatMap(acquired -> acquired
+                        ? Mono.defer(work).doFinally(signal -> release(leaseKey))
+                        : awaitPeer(leaseKey, peerResult)
+                                .doOnNext(response -> remoteCoalescedCounter.increment())
+                                .switchIfEmpty(Mono.defer(work)));
+    }
+
+    private Mono<GenerationResponse> awaitPeer(String leaseKey, Supplier<Mono<GenerationResponse>> peerResult) {
+        Duration interval = Duration.ofMillis(properties.getCoalescingPollMs());
+        int maxPolls = (int) Math.max(1, properties.getGenTimeoutMs() / Math.max(1, properties.getCoalescingPollMs()));
+        // Optional.empty() means the leader gave up the lease without publishing: stop waiting.
+        Mono<Optional<GenerationResponse>> poll = Mono.defer(peerResult)
+                .map(Optional::of)
+                .switchIfEmpty(redisTemplate.hasKey(leaseKey)
+                        .flatMap(held -> held ? Mono.empty() : Mono.just(Optional.empty())));
+        return Mono.delay(interval)
+                .then(poll)
+                .repeatWhenEmpty(maxPolls, attempts -> attempts.delayElements(interval))
+                .onErrorResume(IllegalStateException.class, ex -> Mono.empty())
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private void release(String leaseKey) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), List.of(leaseOwner))
+                .onErrorResume(ex -> Mono.empty())
+                .subscribe();
+    }
+}
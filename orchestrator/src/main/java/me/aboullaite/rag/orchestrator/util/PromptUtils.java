@@ -0,0 +1,26 @@
+package me.aboullaite.rag.orchestrator.util;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt text helpers. The cache key and the coalescing key both start from {@link #normalize}, so
+ * prompts that share a cache entry also share an in-flight request.
+ */
+public final class PromptUtils {
+
+    private static final Pattern PUNCTUATION = Pattern.compile("\\p{P}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private PromptUtils() {
+    }
+
+    /** Lower-cases, drops punctuation and collapses whitespace, so trivially different prompts share a key. */
+    public static String normalize(String prompt) {
+        if (prompt == null) {
+            return "";
+        }
+        String stripped = PUNCTUATION.matcher(prompt.toLowerCase(Locale.ROOT)).replaceAll("");
+        return WHITESPACE.matcher(stripped).replaceAll(" ").trim();
+    }
+}
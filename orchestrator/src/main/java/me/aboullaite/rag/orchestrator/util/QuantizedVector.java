@@ -0,0 +1,33 @@
+package me.aboullaite.rag.orchestrator.util;
+
+/**
+ * Symmetric int8 scalar quantization of a vector: {@code value[i] ~= codes[i] * scale}, with one
+ * scale per vector chosen so the largest component maps to 127. A quarter of the size of a
+ * {@code float[]}; Jackson writes {@code codes} as a base64 string.
+ */
+public record QuantizedVector(byte[] codes, float scale) {
+
+    public static QuantizedVector quantize(float[] vector) {
+        float max = 0f;
+        for (float v : vector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        byte[] codes = new byte[vector.length];
+        if (max == 0f) {
+            return new QuantizedVector(codes, 0f);
+        }
+        float scale = max / 127f;
+        for (int i = 0; i < vector.length; i++) {
+            codes[i] = (byte) Math.round(vector[i] / scale);
+        }
+        return new QuantizedVector(codes, scale);
+    }
+
+    public float[] toFloatArray() {
+        float[] vector = new float[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            vector[i] = codes[i] * scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,40 @@
+package me.aboullaite.rag.orchestrator.util;
+
+final class ScalarVectorKernel implements VectorKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        return dot(a, b, 0);
+    }
+
+    @Override
+    public double cosine(float[] a, float[] b) {
+        float dot = 0f;
+        float normA = 0f;
+        float normB = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Override
+    public void dotAll(float[] query, float[] matrix, float[] scores) {
+        for (int row = 0; row < scores.length; row++) {
+            scores[row] = dot(query, matrix, row * query.length);
+        }
+    }
+
+    private static float dot(float[] a, float[] b, int offset) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,71 @@
+package me.aboullaite.rag.orchestrator.util;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VectorKernel} on the JDK Vector API, using the widest SIMD registers the CPU offers.
+ * Only loaded when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+ */
+final class SimdVectorKernel implements VectorKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        return dot(a, b, 0);
+    }
+
+    @Override
+    public double cosine(float[] a, float[] b) {
+        FloatVector dotLanes = FloatVector.zero(SPECIES);
+        FloatVector normALanes = FloatVector.zero(SPECIES);
+        FloatVector normBLanes = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(a.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+            dotLanes = va.mul(vb).add(dotLanes);
+            normALanes = va.mul(va).add(normALanes);
+            normBLanes = vb.mul(vb).add(normBLanes);
+        }
+        float dot = dotLanes.reduceLanes(VectorOperators.ADD);
+        float normA = normALanes.reduceLanes(VectorOperators.ADD);
+        float normB = normBLanes.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Override
+    public void dotAll(float[] query, float[] matrix, float[] scores) {
+        for (int row = 0; row < scores.length; row++) {
+            scores[row] = dot(query, matrix, row * query.length);
+        }
+    }
+
+    private static float dot(float[] a, float[] b, int offset) {
+        // mul + add rather than fma: fma has no intrinsic on CPUs without FMA and falls back to Math.fma.
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(a.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, offset + i);
+            sum = va.mul(vb).add(sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            result += a[i] * b[offset + i];
+        }
+        return result;
+    }
+}
@@ -1,25 +1,98 @@
 package me.aboullaite.rag.orchestrator.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Vector similarity kernels. Float kernels run on the JDK Vector API when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} and fall back to scalar loops otherwise.
+ */
 public final class SimilarityUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(SimilarityUtils.class);
+    private static final VectorKernel KERNEL = selectKernel();
+
     private SimilarityUtils() {
     }
 
-    public static double cosineSimilarity(double[] a, double[] b) {
+    public static double cosineSimilarity(float[] a, float[] b) {
         if (a == null || b == null || a.length != b.length) {
             return 0.0;
         }
-        double dot = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+        return KERNEL.cosine(a, b);
+    }
+
+    /** Equals the cosine similarity for unit vectors, without recomputing both norms. */
+    public static float dot(float[] a, float[] b) {
+        return KERNEL.dot(a, b);
+    }
+
+    /**
+     * Dot products of {@code query} with {@code scores.length} candidates laid out contiguously,
+     * row after row, in {@code matrix}.
+     */
+    public static void dotAll(float[] query, float[] matrix, float[] scores) {
+        if (matrix.length < (long) query.length * scores.length) {
+            throw new IllegalArgumentException("Matrix holds fewer than " + scores.length + " rows");
+        }
+        KERNEL.dotAll(query, matrix, scores);
+    }
+
+    /** A unit-length copy of {@code vector}, or {@code null} for an empty or all-zero vector. */
+    public static float[] normalize(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return null;
+        }
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /** Dot product of a float query with a quantized vector, without dequantizing it. */
+    public static float dot(float[] a, QuantizedVector b) {
+        byte[] codes = b.codes();
+        float sum = 0f;
         for (int i = 0; i < a.length; i++) {
-            dot += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+            sum += a[i] * codes[i];
         }
-        if (normA == 0 || normB == 0) {
-            return 0.0;
+        return sum * b.scale();
+    }
+
+    /** Dot product of two quantized vectors in integer arithmetic. */
+    public static float dot(QuantizedVector a, QuantizedVector b) {
+        byte[] codesA = a.codes();
+        byte[] codesB = b.codes();
+        int sum = 0;
+        for (int i = 0; i < codesA.length; i++) {
+            sum += codesA[i] * codesB[i];
+        }
+        return sum * a.scale() * b.scale();
+    }
+
+    static String kernelName() {
+        return KERNEL.getClass().getSimpleName();
+    }
+
+    private static VectorKernel selectKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (VectorKernel) Class.forName(SimilarityUtils.class.getPackageName() + ".SimdVectorKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                log.warn("Vector API unavailable, using scalar similarity kernels: {}", ex.getMessage());
+            }
         }
-        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+        return new ScalarVectorKernel();
     }
 }
@@ -0,0 +1,15 @@
+package me.aboullaite.rag.orchestrator.util;
+
+/** Float vector arithmetic used by {@link SimilarityUtils}; one implementation is picked at startup. */
+interface VectorKernel {
+
+    float dot(float[] a, float[] b);
+
+    double cosine(float[] a, float[] b);
+
+    /**
+     * Scores {@code query} against {@code scores.length} candidates stored row after row in
+     * {@code matrix}, each {@code query.length} floats long.
+     */
+    void dotAll(float[] query, float[] matrix, float[] scores);
+}
@@ -2,13 +2,16 @@ package me.aboullaite.rag.orchestrator.web;
 
 import me.aboullaite.rag.common.dto.DocumentMetadata;
 import me.aboullaite.rag.common.dto.GenerationResponse;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
 import me.aboullaite.rag.orchestrator.service.AskService;
+import me.aboullaite.rag.orchestrator.service.AskService.StreamChunk;
 import me.aboullaite.rag.orchestrator.service.DocumentService;
-import java.time.Duration;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,6 +20,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -27,10 +32,12 @@ public class AskController {
 
     private final AskService askService;
     private final DocumentService documentService;
+    private final OrchestratorProperties properties;
 
-    public AskController(AskService askService, DocumentService documentService) {
+    public AskController(AskService askService, DocumentService documentService, OrchestratorProperties properties) {
         this.askService = askService;
         this.documentService = documentService;
+        this.properties = properties;
     }
 
     @PostMapping(path = "/ask", consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -39,29 +46,61 @@ public class AskController {
     }
 
     @GetMapping(path = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> stream(
+    public Flux<ServerSentEvent<Object>> stream(
             @RequestParam("prompt") String prompt,
             @RequestParam(name = "topK", required = false) Integer topK) {
-        return askService.ask(prompt, Map.of(), topK)
-                .flatMapMany(this::toStream);
+        return askService.askStream(prompt, Map.of(), topK)
+                .map(this::toEvent);
     }
 
+    /**
+     * One page of documents in docId order. The next page, if any, is linked with a
+     * {@code Link: <...>; rel="next"} header so the body stays the plain list it always was.
+     */
     @GetMapping("/documents")
-    public Mono<List<DocumentMetadata>> listDocuments() {
-        return documentService.listDocuments();
+    public Mono<ResponseEntity<List<DocumentMetadata>>> listDocuments(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        if (limit != null && (limit < 1 || limit > properties.getDocumentsMaxPageSize())) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + properties.getDocumentsMaxPageSize()));
+        }
+        return documentService.listDocuments(cursor, limit)
+                .map(listing -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (listing.etag() != null) {
+                        response.eTag(listing.etag());
+                    }
+                    String next = listing.page().nextCursor();
+                    if (next != null) {
+                        String uri = UriComponentsBuilder.fromPath("/v1/documents")
+                                .queryParam("cursor", next)
+                                .queryParam("limit", listing.limit())
+                                .encode()
+                                .build()
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+                    }
+                    return response.body(listing.page().documents());
+                });
     }
 
-    private Flux<ServerSentEvent<String>> toStream(GenerationResponse response) {
-        List<String> tokens = Arrays.asList(response.answer().split("\\s+"));
-        Flux<ServerSentEvent<String>> tokenFlux = Flux.fromIterable(tokens)
-                .map(token -> ServerSentEvent.<String>builder(token).event("token").build())
-                .delayElements(Duration.ofMillis(20));
-        ServerSentEvent<String> completion = ServerSentEvent.<String>builder()
+    private ServerSentEvent<Object> toEvent(StreamChunk chunk) {
+        if (!chunk.isComplete()) {
+            // Deltas are JSON-encoded so leading whitespace survives SSE field parsing.
+            return ServerSentEvent.<Object>builder(new TokenEvent(chunk.delta())).event("token").build();
+        }
+        GenerationResponse response = chunk.response();
+        String status = response.partial() ? "partial" : "complete";
+        return ServerSentEvent.<Object>builder()
                 .event("complete")
+                .id(status)
                 .data(String.join(",", response.citations()))
-                .comment(response.partial() ? "partial" : "complete")
+                .comment(status)
                 .build();
-        return tokenFlux.concatWithValues(completion);
+    }
+
+    public record TokenEvent(String text) {
     }
 
     public record AskRequest(String prompt, Map<String, String> filters, Integer topK) {
@@ -0,0 +1,33 @@
+package me.aboullaite.rag.orchestrator.web;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService;
+import java.util.List;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping(path = "/v1/cache", produces = MediaType.APPLICATION_JSON_VALUE)
+@Validated
+public class CacheController {
+
+    private final SemanticCacheService cacheService;
+
+    public CacheController(SemanticCacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    /** Called by the ingest job with the ids of the chunks it re-ingested; {@code docId} may repeat. */
+    @PostMapping("/invalidate")
+    public Mono<InvalidateResponse> invalidate(@RequestParam("docId") List<String> docIds) {
+        return cacheService.invalidateDocuments(docIds)
+                .map(evicted -> new InvalidateResponse(docIds, evicted));
+    }
+
+    public record InvalidateResponse(List<String> docIds, long evicted) {
+    }
+}
@@ -0,0 +1,104 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.AnswerCompression;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.VectorEncoding;
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decode cost of one cache entry as Jackson JSON (the previous Redis format) and as
+ * {@link CacheEntryCodec} binary, whole or vector section only. Setup prints the bytes per entry
+ * of both formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "--add-modules=jdk.incubator.vector")
+public class CacheEntryCodecBenchmark {
+
+    private static final String ANSWER = """
+            The semantic cache stores each generated answer in Redis under a key derived from the \
+            normalized prompt, together with the prompt embedding and the ids of the documents it \
+            was grounded on [doc-6]. A lookup first tries the exact key, then the nearest cached \
+            vector; entries at or above rag.cache-sim-threshold (0.90 by default) are reused [doc-6]. \
+            Entries expire after rag.cache-ttl-seconds, and the index of cached keys is trimmed on \
+            every sync so it never outgrows the live entries [doc-6][doc-7]. Tune the threshold \
+            down to raise the hit ratio at the cost of answer precision [doc-7].""";
+
+    @Param({"384"})
+    private int dimensions;
+
+    @Param({"FLOAT32", "INT8"})
+    private VectorEncoding encoding;
+
+    @Param({"NONE", "ZSTD"})
+    private AnswerCompression compression;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+    private CacheEntryCodec codec;
+    private byte[] json;
+    private byte[] binary;
+    private byte[] vectorSection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        boolean int8 = encoding == VectorEncoding.INT8;
+        CacheEntry entry = new CacheEntry(
+                "how does the semantic cache decide to reuse an answer",
+                int8 ? null : vector,
+                int8 ? QuantizedVector.quantize(vector) : null,
+                ANSWER,
+                List.of("doc-6", "doc-7"),
+                List.of("doc-6", "doc-7", "doc-2", "doc-9", "doc-11"),
+                System.currentTimeMillis());
+        codec = new CacheEntryCodec(compression);
+        json = objectMapper.writeValueAsString(entry).getBytes(StandardCharsets.UTF_8);
+        binary = codec.encode(entry);
+        vectorSection = Arrays.copyOf(binary, CacheEntryCodec.vectorSectionLength(dimensions, int8));
+        System.out.printf("%n%s x %d dims, answer %s: JSON %d bytes, binary %d bytes, vector section %d bytes%n",
+                encoding, dimensions, compression, json.length, binary.length, vectorSection.length);
+    }
+
+    @Benchmark
+    public CacheEntry decodeJson() throws IOException {
+        return objectMapper.readValue(json, CacheEntry.class);
+    }
+
+    @Benchmark
+    public CacheEntry decodeBinary() {
+        return codec.decode(binary);
+    }
+
+    @Benchmark
+    public float[] decodeVectorSection() {
+        return codec.decodeVector(vectorSection);
+    }
+}
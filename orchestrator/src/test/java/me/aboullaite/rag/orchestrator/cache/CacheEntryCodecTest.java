@@ -0,0 +1,71 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.AnswerCompression;
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CacheEntryCodecTest {
+
+    private static final float[] EMBEDDING = {0.6f, -0.8f, 0, 0.25f};
+
+    private final CacheEntryCodec codec = new CacheEntryCodec(AnswerCompression.ZSTD);
+
+    @Test
+    void roundTripsFloatEntryAndCompressesLongAnswers() {
+        String answer = "Set rag.cache-sim-threshold to tune reuse [doc-1]. ".repeat(20) + "Ünïcödé ✓";
+        CacheEntry entry = new CacheEntry(
+                "how do i tune the cache", EMBEDDING, null, answer, List.of("doc-1"), List.of("doc-1", "doc-2"), 1234L);
+
+        byte[] encoded = codec.encode(entry);
+        CacheEntry decoded = codec.decode(encoded);
+
+        assertThat(encoded.length).isLessThan(answer.length());
+        assertThat(decoded.embedding()).containsExactly(EMBEDDING);
+        assertThat(decoded.quantizedEmbedding()).isNull();
+        assertThat(decoded.normalizedQuery()).isEqualTo("how do i tune the cache");
+        assertThat(decoded.answer()).isEqualTo(answer);
+        assertThat(decoded.citations()).containsExactly("doc-1");
+        assertThat(decoded.docIds()).containsExactly("doc-1", "doc-2");
+        assertThat(decoded.createdAtMillis()).isEqualTo(1234L);
+    }
+
+    @Test
+    void roundTripsInt8EntryWithShortUncompressedAnswer() {
+        QuantizedVector quantized = QuantizedVector.quantize(EMBEDDING);
+        CacheEntry entry = new CacheEntry("q", null, quantized, "short", List.of(), List.of(), 42L);
+
+        byte[] encoded = new CacheEntryCodec(AnswerCompression.NONE).encode(entry);
+        CacheEntry decoded = codec.decode(encoded);
+
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).contains("short");
+        assertThat(decoded.embedding()).isNull();
+        assertThat(decoded.quantizedEmbedding().codes()).containsExactly(quantized.codes());
+        assertThat(decoded.quantizedEmbedding().scale()).isEqualTo(quantized.scale());
+        assertThat(decoded.answer()).isEqualTo("short");
+        assertThat(decoded.citations()).isEmpty();
+    }
+
+    @Test
+    void decodesVectorFromPrefixOnly() {
+        byte[] encoded = codec.encode(new CacheEntry("q", EMBEDDING, null, "answer", List.of(), List.of(), 0L));
+        int vectorLength = CacheEntryCodec.vectorSectionLength(EMBEDDING.length, false);
+
+        assertThat(codec.decodeVector(Arrays.copyOf(encoded, vectorLength))).containsExactly(EMBEDDING);
+        assertThat(codec.decodeVector(Arrays.copyOf(encoded, vectorLength - 1))).isNull();
+    }
+
+    @Test
+    void ignoresValuesInOtherFormats() {
+        byte[] json = "{\"normalizedQuery\":\"q\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(codec.decode(json)).isNull();
+        assertThat(codec.decodeVector(json)).isNull();
+        assertThat(codec.decode(new byte[0])).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import me.aboullaite.rag.orchestrator.util.SimilarityUtils;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @Test
+    void findsExactNearestNeighbourForMostQueries() {
+        assertThat(recall(new HnswIndex())).isGreaterThan(0.95);
+    }
+
+    @Test
+    void quantizedIndexKeepsRecall() {
+        assertThat(recall(new HnswIndex(true))).isGreaterThan(0.9);
+    }
+
+    @Test
+    void removedAndReplacedKeysAreNotReturned() {
+        HnswIndex index = new HnswIndex();
+        index.add("a", new float[] {1, 0, 0, 0, 0, 0, 0, 0});
+        index.add("b", new float[] {0, 1, 0, 0, 0, 0, 0, 0});
+
+        index.remove("a");
+        assertThat(index.search(new float[] {1, 0, 0, 0, 0, 0, 0, 0}, 1))
+                .extracting(HnswIndex.Match::key)
+                .containsExactly("b");
+
+        index.add("b", new float[] {0, 0, 1, 0, 0, 0, 0, 0});
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search(new float[] {0, 0, 1, 0, 0, 0, 0, 0}, 2))
+                .singleElement()
+                .satisfies(match -> assertThat(match.similarity()).isCloseTo(1.0, offset(1e-6)));
+    }
+
+    @Test
+    void vectorsOfOtherDimensionsAreSkippedUntilTheIndexEmpties() {
+        HnswIndex index = new HnswIndex();
+        index.add("old", new float[] {1, 0, 0, 0, 0, 0, 0, 0});
+
+        assertThat(index.add("new", new float[] {1, 0, 0, 0})).isFalse();
+        assertThat(index.search(new float[] {1, 0, 0, 0}, 1)).isEmpty();
+        assertThat(index.search(new float[] {1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, 1)).isEmpty();
+
+        index.remove("old");
+        assertThat(index.add("new", new float[] {1, 0, 0, 0})).isTrue();
+        assertThat(index.search(new float[] {1, 0, 0, 0}, 1)).extracting(HnswIndex.Match::key).containsExactly("new");
+        assertThat(index.search(new float[] {1, 0, 0, 0, 0, 0, 0, 0}, 1)).isEmpty();
+    }
+
+    @Test
+    void compactionDropsTombstonesAndKeepsLiveKeys() {
+        HnswIndex index = new HnswIndex();
+        Random random = new Random(3);
+        float[][] vectors = new float[300][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            index.add("key-" + i, vectors[i]);
+        }
+        for (int i = 0; i < 200; i++) {
+            index.remove("key-" + i);
+        }
+        assertThat(index.needsCompaction()).isTrue();
+
+        index.compact();
+
+        assertThat(index.needsCompaction()).isFalse();
+        assertThat(index.size()).isEqualTo(100);
+        for (int i = 200; i < vectors.length; i++) {
+            assertThat(index.search(vectors[i], 1)).extracting(HnswIndex.Match::key).containsExactly("key-" + i);
+        }
+    }
+
+    private static double recall(HnswIndex index) {
+        Random random = new Random(7);
+        float[][] vectors = new float[5_000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            index.add("key-" + i, vectors[i]);
+        }
+
+        int hits = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            if (index.search(query, 1).getFirst().key().equals("key-" + bruteForceNearest(vectors, query))) {
+                hits++;
+            }
+        }
+        return hits / (double) queries;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static int bruteForceNearest(float[][] vectors, float[] query) {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vectors.length; i++) {
+            double score = SimilarityUtils.cosineSimilarity(vectors[i], query);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
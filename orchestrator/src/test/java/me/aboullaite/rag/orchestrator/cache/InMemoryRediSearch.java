@@ -0,0 +1,200 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-JVM stand-in for Redis Stack: hashes, PEXPIRE bookkeeping, the backend's save script, one
+ * sorted set and a brute-force cosine {@code FT.SEARCH ... KNN 1} over one FLOAT32 vector index,
+ * replying in RESP2 or RESP3 shape.
+ */
+class InMemoryRediSearch implements RedisCommandExecutor {
+
+    final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    final Map<String, Long> expiryMillis = new ConcurrentHashMap<>();
+    final Map<String, Double> sortedSet = new ConcurrentHashMap<>();
+    final List<List<String>> createCommands = new ArrayList<>();
+    final List<String> commands = new CopyOnWriteArrayList<>();
+    private final boolean resp3;
+    private String indexPrefix;
+    private String vectorField;
+    private long dimensions;
+
+    InMemoryRediSearch(boolean resp3) {
+        this.resp3 = resp3;
+    }
+
+    @Override
+    public Mono<List<Object>> execute(String command, Object... args) {
+        commands.add(command);
+        return Mono.fromCallable(() -> switch (command) {
+            case "FT.CREATE" -> create(args);
+            case "FT.INFO" -> info();
+            case "EVAL" -> save(args);
+            case "HSET" -> hset(args);
+            case "PEXPIRE" -> List.of(pexpire(args));
+            case "ZADD" -> List.of(sortedSet.put(text(args[2]), ((Number) args[1]).doubleValue()) == null ? 1L : 0L);
+            case "ZREM" -> List.of(Arrays.stream(args, 1, args.length).filter(member -> sortedSet.remove(text(member)) != null).count());
+            case "ZREMRANGEBYSCORE" -> List.of(removeRangeByScore(((Number) args[2]).doubleValue()));
+            case "ZCARD" -> List.of((long) sortedSet.size());
+            case "ZRANGE" -> range(((Number) args[1]).intValue(), ((Number) args[2]).intValue());
+            case "HGET" -> Arrays.asList(hashes.getOrDefault(text(args[0]), Map.of()).get(text(args[1])));
+            case "UNLINK" -> List.of(unlink(args));
+            case "FT.SEARCH" -> search(args);
+            default -> throw new RedisCommandExecutionException("ERR unknown command '" + command + "'");
+        });
+    }
+
+    private synchronized List<Object> create(Object[] args) {
+        List<String> arguments = Arrays.stream(args).map(InMemoryRediSearch::text).toList();
+        createCommands.add(arguments);
+        if (indexPrefix != null) {
+            throw new RedisCommandExecutionException("Index already exists");
+        }
+        indexPrefix = arguments.get(arguments.indexOf("PREFIX") + 2);
+        vectorField = arguments.get(arguments.indexOf("SCHEMA") + 1);
+        dimensions = Long.parseLong(arguments.get(arguments.indexOf("DIM") + 1));
+        return List.of(bytes("OK"));
+    }
+
+    /** The RESP2 shape of Redis Stack 7.2: each attribute is a flat list of names and values. */
+    private synchronized List<Object> info() {
+        if (indexPrefix == null) {
+            throw new RedisCommandExecutionException("Unknown index name");
+        }
+        return List.of(bytes("index_name"), bytes("rag:cache:vector-idx"), bytes("attributes"), List.of(List.of(
+                bytes("identifier"), bytes(vectorField), bytes("attribute"), bytes(vectorField), bytes("type"), bytes("VECTOR"),
+                bytes("algorithm"), bytes("HNSW"), bytes("data_type"), bytes("FLOAT32"), bytes("dim"), dimensions)));
+    }
+
+    /** Runs {@link RediSearchCacheBackend#SAVE_SCRIPT}, the only script the backend sends. */
+    private List<Object> save(Object[] args) {
+        if (!RediSearchCacheBackend.SAVE_SCRIPT.equals(args[0]) || ((Number) args[1]).intValue() != 1) {
+            throw new RedisCommandExecutionException("ERR unexpected script");
+        }
+        hset(new Object[] {args[2], args[3], args[4], args[5], args[6]});
+        return List.of(pexpire(new Object[] {args[2], args[7]}));
+    }
+
+    private long removeRangeByScore(double max) {
+        List<String> expired = sortedSet.entrySet().stream().filter(member -> member.getValue() <= max).map(Map.Entry::getKey).toList();
+        expired.forEach(sortedSet::remove);
+        return expired.size();
+    }
+
+    private List<Object> range(int start, int stop) {
+        return sortedSet.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .skip(start)
+                .limit(stop - start + 1L)
+                .<Object>map(member -> bytes(member.getKey()))
+                .toList();
+    }
+
+    private List<Object> hset(Object[] args) {
+        Map<String, byte[]> hash = hashes.computeIfAbsent(text(args[0]), key -> new ConcurrentHashMap<>());
+        long added = 0;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (hash.put(text(args[i]), (byte[]) args[i + 1]) == null) {
+                added++;
+            }
+        }
+        return List.of(added);
+    }
+
+    private long pexpire(Object[] args) {
+        String key = text(args[0]);
+        if (!hashes.containsKey(key)) {
+            return 0L;
+        }
+        expiryMillis.put(key, ((Number) args[1]).longValue());
+        return 1L;
+    }
+
+    private long unlink(Object[] args) {
+        long removed = 0;
+        for (Object key : args) {
+            expiryMillis.remove(text(key));
+            if (hashes.remove(text(key)) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private List<Object> search(Object[] args) {
+        if (indexPrefix == null) {
+            throw new RedisCommandExecutionException("rag:cache:vector-idx: no such index");
+        }
+        float[] query = floats((byte[]) args[Arrays.asList(args).indexOf("PARAMS") + 3]);
+        String bestKey = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (Map.Entry<String, Map<String, byte[]>> hash : hashes.entrySet()) {
+            byte[] vector = hash.getValue().get(vectorField);
+            if (!hash.getKey().startsWith(indexPrefix) || vector == null || vector.length != query.length * Float.BYTES) {
+                continue;
+            }
+            double distance = 1 - cosine(query, floats(vector));
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestKey = hash.getKey();
+            }
+        }
+        List<Object> attributes = bestKey == null ? List.of() : List.of(
+                bytes("entry"), hashes.get(bestKey).get("entry"),
+                bytes("distance"), bytes(Double.toString(bestDistance)));
+        if (!resp3) {
+            return bestKey == null ? List.of(0L) : List.of(1L, bytes(bestKey), attributes);
+        }
+        List<Object> results = bestKey == null ? List.of() : List.of(List.of(
+                bytes("id"), bytes(bestKey), bytes("extra_attributes"), attributes, bytes("values"), List.of()));
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("attributes", List.of());
+        reply.put("format", bytes("STRING"));
+        reply.put("results", results);
+        reply.put("total_results", (long) results.size());
+        reply.put("warning", List.of());
+        List<Object> flattened = new ArrayList<>();
+        reply.forEach((key, value) -> {
+            flattened.add(bytes(key));
+            flattened.add(value);
+        });
+        return flattened;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] floats(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,166 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import me.aboullaite.rag.common.dto.GenerationResponse;
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class RediSearchCacheBackendTest {
+
+    private static final float[] NEAR = {1, 0, 0, 0, 0, 0, 0, 0};
+    private static final float[] FAR = {0, 1, 0, 0, 0, 0, 0, 0};
+
+    private final OrchestratorProperties properties = new OrchestratorProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void createsTheIndexOnceAndStoresEntriesAsExpiringHashes() {
+        InMemoryRediSearch redis = new InMemoryRediSearch(false);
+        RediSearchCacheBackend backend = new RediSearchCacheBackend(redis, properties, meterRegistry);
+
+        StepVerifier.create(backend.save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(10)))
+                .expectNext(true)
+                .verifyComplete();
+        backend.save("rag:cache:far", entry("far", FAR), Duration.ofMinutes(10)).block();
+
+        assertThat(redis.createCommands).singleElement().satisfies(create -> assertThat(create).containsSequence(
+                "SCHEMA", "vector", "VECTOR", "HNSW", "6", "TYPE", "FLOAT32", "DIM", "8", "DISTANCE_METRIC", "COSINE"));
+        assertThat(redis.hashes.get("rag:cache:near")).containsOnlyKeys("vector", "entry");
+        assertThat(redis.hashes.get("rag:cache:near").get("vector")).hasSize(NEAR.length * Float.BYTES);
+        assertThat(redis.expiryMillis).containsEntry("rag:cache:near", 600_000L);
+        // The hash and its TTL go in one script, never as an HSET a crash could leave without a PEXPIRE.
+        assertThat(redis.commands).contains("EVAL").doesNotContain("HSET", "PEXPIRE");
+        StepVerifier.create(backend.load("rag:cache:far"))
+                .assertNext(entry -> assertThat(entry.answer()).isEqualTo("far"))
+                .verifyComplete();
+        StepVerifier.create(backend.load("rag:cache:missing")).verifyComplete();
+    }
+
+    @Test
+    void anotherReplicaRacingToCreateTheIndexIsHarmless() {
+        InMemoryRediSearch redis = new InMemoryRediSearch(false);
+        new RediSearchCacheBackend(redis, properties, meterRegistry).save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(1)).block();
+
+        StepVerifier.create(new RediSearchCacheBackend(redis, properties, meterRegistry)
+                        .save("rag:cache:far", entry("far", FAR), Duration.ofMinutes(1)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void anExistingIndexOfOtherDimensionsFailsWritesInsteadOfBeingAssumed() {
+        InMemoryRediSearch redis = new InMemoryRediSearch(false);
+        new RediSearchCacheBackend(redis, properties, meterRegistry).save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(1)).block();
+        RediSearchCacheBackend restarted = new RediSearchCacheBackend(redis, properties, meterRegistry);
+        float[] smaller = {1, 0, 0, 0};
+
+        StepVerifier.create(restarted.save("rag:cache:small", entry("small", smaller), Duration.ofMinutes(1)))
+                .expectErrorMessage("Cache index rag:cache:vector-idx has 8 dimensions, not 4")
+                .verify();
+        StepVerifier.create(restarted.save("rag:cache:small", entry("small", smaller), Duration.ofMinutes(1)))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertThat(redis.hashes).doesNotContainKey("rag:cache:small");
+        // The dimensions were read once; the retry failed without asking Redis again.
+        assertThat(redis.createCommands).hasSize(2);
+        StepVerifier.create(restarted.save("rag:cache:far", entry("far", FAR), Duration.ofMinutes(1)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void syncEvictsTheSoonestExpiringEntriesBeyondMaxEntries() {
+        properties.setCacheMaxEntries(1);
+        InMemoryRediSearch redis = new InMemoryRediSearch(false);
+        RediSearchCacheBackend backend = new RediSearchCacheBackend(redis, properties, meterRegistry);
+        backend.save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(1)).block();
+        backend.save("rag:cache:far", entry("far", FAR), Duration.ofMinutes(10)).block();
+        redis.sortedSet.put("rag:cache:gone", 1.0);
+        List<String> removed = new ArrayList<>();
+
+        backend.sync(removed::add).block();
+
+        assertThat(removed).containsExactly("rag:cache:near");
+        assertThat(redis.hashes).containsOnlyKeys("rag:cache:far");
+        assertThat(redis.sortedSet).containsOnlyKeys("rag:cache:far");
+        assertThat(meterRegistry.counter("rag_cache_evictions_total").count()).isEqualTo(1);
+        StepVerifier.create(backend.delete(List.of("rag:cache:far"))).expectNext(1L).verifyComplete();
+        assertThat(redis.sortedSet).isEmpty();
+    }
+
+    @Test
+    void nearestReadsTheKnnHitFromResp2AndResp3Replies() {
+        for (boolean resp3 : new boolean[] {false, true}) {
+            InMemoryRediSearch redis = new InMemoryRediSearch(resp3);
+            RediSearchCacheBackend backend = new RediSearchCacheBackend(redis, properties, meterRegistry);
+            backend.save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(1)).block();
+            backend.save("rag:cache:far", entry("far", FAR), Duration.ofMinutes(1)).block();
+
+            StepVerifier.create(backend.nearest(new float[] {0.9f, 0.1f, 0, 0, 0, 0, 0, 0}, 0.9))
+                    .assertNext(match -> {
+                        assertThat(match.key()).isEqualTo("rag:cache:near");
+                        assertThat(match.entry().answer()).isEqualTo("near");
+                        assertThat(match.similarity()).isCloseTo(0.9939, within(1e-4));
+                    })
+                    .verifyComplete();
+            StepVerifier.create(backend.nearest(new float[] {0.7f, 0.7f, 0, 0, 0, 0, 0, 0}, 0.9)).verifyComplete();
+        }
+    }
+
+    @Test
+    void searchBeforeAnyEntryIsWrittenIsAMiss() {
+        RediSearchCacheBackend backend = new RediSearchCacheBackend(new InMemoryRediSearch(false), properties, meterRegistry);
+
+        StepVerifier.create(backend.nearest(NEAR, 0.5)).verifyComplete();
+    }
+
+    @Test
+    void deletedEntriesLeaveTheSearchIndex() {
+        InMemoryRediSearch redis = new InMemoryRediSearch(false);
+        RediSearchCacheBackend backend = new RediSearchCacheBackend(redis, properties, meterRegistry);
+        backend.save("rag:cache:near", entry("near", NEAR), Duration.ofMinutes(1)).block();
+
+        StepVerifier.create(backend.delete(List.of("rag:cache:near", "rag:cache:missing")))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(backend.nearest(NEAR, 0.5)).verifyComplete();
+    }
+
+    @Test
+    void replicasShareOneIndexWithoutSyncing() {
+        InMemoryRediSearch redis = new InMemoryRediSearch(true);
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        SemanticCacheService writer = new SemanticCacheService(
+                redisTemplate, new RediSearchCacheBackend(redis, properties, meterRegistry), properties, new SimpleMeterRegistry());
+        SemanticCacheService reader = new SemanticCacheService(
+                redisTemplate, new RediSearchCacheBackend(redis, properties, meterRegistry), properties, new SimpleMeterRegistry());
+
+        writer.put("how do I tune the cache", NEAR, new GenerationResponse("answer", List.of(), false), List.of()).block();
+
+        StepVerifier.create(reader.lookup("cache tuning", new float[] {0.95f, 0.05f, 0, 0, 0, 0, 0, 0}))
+                .assertNext(hit -> {
+                    assertThat(hit.entry().answer()).isEqualTo("answer");
+                    assertThat(hit.similarity()).isGreaterThan(0.9).isLessThan(1.0);
+                })
+                .verifyComplete();
+    }
+
+    private static CacheEntry entry(String answer, float[] vector) {
+        return new CacheEntry(answer, vector, null, answer, List.of(), List.of(), System.currentTimeMillis());
+    }
+}
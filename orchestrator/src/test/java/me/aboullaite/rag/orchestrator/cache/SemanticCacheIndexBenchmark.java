@@ -0,0 +1,139 @@
+package me.aboullaite.rag.orchestrator.cache;
+
+import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.AnswerCompression;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.VectorEncoding;
+import me.aboullaite.rag.orchestrator.util.QuantizedVector;
+import me.aboullaite.rag.orchestrator.util.SimilarityUtils;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup latency of the semantic cache index as the cache grows. {@code linearScan} is the
+ * in-memory lower bound of the previous SMEMBERS + GET-per-entry lookup (no Redis round-trips).
+ * Setup also prints the heap retained by the index and the Redis value size of one entry for the
+ * chosen {@code encoding}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+public class SemanticCacheIndexBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"384"})
+    private int dimensions;
+
+    @Param({"FLOAT32", "INT8"})
+    private VectorEncoding encoding;
+
+    private HnswIndex index;
+    private float[][] vectors;
+    private QuantizedVector[] quantized;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        boolean int8 = encoding == VectorEncoding.INT8;
+        vectors = new float[entries][];
+        quantized = int8 ? new QuantizedVector[entries] : null;
+        for (int i = 0; i < entries; i++) {
+            vectors[i] = randomUnitVector(random);
+            if (int8) {
+                quantized[i] = QuantizedVector.quantize(vectors[i]);
+            }
+        }
+        queries = new float[1024][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomUnitVector(random);
+        }
+
+        long heapBefore = usedHeap();
+        index = new HnswIndex(int8);
+        for (int i = 0; i < entries; i++) {
+            index.add("rag:cache:" + i, vectors[i]);
+        }
+        long indexBytes = usedHeap() - heapBefore;
+
+        CacheEntry entry = new CacheEntry(
+                "how do i configure the semantic cache?",
+                int8 ? null : vectors[0],
+                int8 ? quantized[0] : null,
+                "Set rag.cache-sim-threshold [doc-1].",
+                List.of("doc-1"),
+                List.of("doc-1", "doc-2", "doc-3"),
+                System.currentTimeMillis());
+        int redisBytes = new CacheEntryCodec(AnswerCompression.NONE).encode(entry).length;
+        System.out.printf("%n%s x %d dims, %d entries: index heap %.1f MiB, Redis value %d bytes/entry%n",
+                encoding, dimensions, entries, indexBytes / (1024.0 * 1024.0), redisBytes);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match> hnswLookup() {
+        return index.search(nextQuery(), 1);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        float[] query = nextQuery();
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vectors.length; i++) {
+            double score = quantized != null
+                    ? SimilarityUtils.dot(query, quantized[i])
+                    : SimilarityUtils.dot(query, vectors[i]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) & (queries.length - 1);
+        return queries[next];
+    }
+
+    private float[] randomUnitVector(SplittableRandom random) {
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            double value = random.nextDouble(-1, 1);
+            vector[i] = (float) value;
+            norm += value * value;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,56 +1,94 @@
 package me.aboullaite.rag.orchestrator.cache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import me.aboullaite.rag.common.dto.GenerationResponse;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.AnswerCompression;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveStringCommands;
+import org.springframework.data.redis.connection.ReactiveSubscription.ChannelMessage;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
 import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
 class SemanticCacheServiceTest {
 
-    private static final double[] EMBEDDING = new double[] {1, 0, 0, 0, 0, 0, 0, 0};
+    private static final float[] EMBEDDING = new float[] {1, 0, 0, 0, 0, 0, 0, 0};
 
     @Mock
     private ReactiveStringRedisTemplate redisTemplate;
     @Mock
-    private ReactiveSetOperations<String, String> setOperations;
+    private ReactiveRedisTemplate<byte[], byte[]> binaryRedisTemplate;
+    @Mock
+    private ReactiveRedisConnection connection;
+    @Mock
+    private ReactiveStringCommands stringCommands;
+    @Mock
+    private ReactiveZSetOperations<String, String> zSetOperations;
+    @Mock
+    private ReactiveValueOperations<byte[], byte[]> valueOperations;
     @Mock
-    private ReactiveValueOperations<String, String> valueOperations;
+    private ReactiveSetOperations<String, String> setOperations;
 
     private SemanticCacheService cacheService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheEntryCodec codec = new CacheEntryCodec(AnswerCompression.ZSTD);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setup() {
         OrchestratorProperties props = new OrchestratorProperties();
         props.setCacheSimThreshold(0.5);
-        when(redisTemplate.opsForSet()).thenReturn(setOperations);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        cacheService = new SemanticCacheService(redisTemplate, objectMapper, props);
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        cacheService = newService(props, meterRegistry);
     }
 
     @Test
-    void returnsHitWhenSimilarityAboveThreshold() throws Exception {
-        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, "cached", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
-        when(setOperations.members(any())).thenReturn(Flux.just("rag:cache:key"));
-        when(valueOperations.get(any())).thenReturn(Mono.just(objectMapper.writeValueAsString(entry)));
+    void returnsHitWhenSimilarityAboveThreshold() {
+        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, null, "cached", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
+        stubIndex("rag:cache:key");
+        stubValues(Map.of("rag:cache:key", codec.encode(entry)));
+        cacheService.syncIndex().block();
 
         StepVerifier.create(cacheService.lookup("hello planet", EMBEDDING))
                 .assertNext(hit -> {
@@ -61,18 +99,292 @@ class SemanticCacheServiceTest {
     }
 
     @Test
-    void filtersOutBelowThreshold() throws Exception {
+    void filtersOutBelowThreshold() {
+        OrchestratorProperties props = new OrchestratorProperties();
+        props.setCacheSimThreshold(0.99);
+        cacheService = newService(props, meterRegistry);
+
+        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, null, "cached", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        stubIndex("rag:cache:key");
+        stubValues(Map.of("rag:cache:key", codec.encode(entry)));
+        cacheService.syncIndex().block();
+
+        StepVerifier.create(cacheService.lookup("different text", new float[] {0, 1, 0, 0, 0, 0, 0, 0}))
+                .verifyComplete();
+    }
+
+    @Test
+    void lookupReadsOnlyTheNearestEntry() {
+        float[] other = new float[] {0, 1, 0, 0, 0, 0, 0, 0};
+        CacheEntry near = new CacheEntry("hello world", EMBEDDING, null, "near", List.of(), List.of(), System.currentTimeMillis());
+        CacheEntry far = new CacheEntry("other", other, null, "far", List.of(), List.of(), System.currentTimeMillis());
+        stubIndex("rag:cache:near", "rag:cache:far");
+        stubValues(Map.of(
+                "rag:cache:near", codec.encode(near),
+                "rag:cache:far", codec.encode(far)));
+        cacheService.syncIndex().block();
+
+        StepVerifier.create(cacheService.lookup("hello", EMBEDDING))
+                .assertNext(hit -> assertThat(hit.entry().answer()).isEqualTo("near"))
+                .verifyComplete();
+
+        // The first sync read learns the vector size; later ones fetch only the vector section.
+        verify(valueOperations, times(2)).get(key("rag:cache:near"));
+        verify(valueOperations, never()).get(key("rag:cache:far"));
+    }
+
+    @Test
+    void dropsIndexedKeyWhenEntryExpired() {
+        // A zero TTL expires the L1 copy at once, as it would have when Redis dropped the entry.
+        OrchestratorProperties props = new OrchestratorProperties();
+        props.setCacheTtlSeconds(0);
+        cacheService = newService(props, meterRegistry);
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        when(zSetOperations.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(valueOperations.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOperations.get(any())).thenReturn(Mono.empty());
+        when(setOperations.add(any(), any())).thenReturn(Mono.just(1L));
+        when(redisTemplate.expire(any(), any())).thenReturn(Mono.just(true));
+        GenerationResponse response = new GenerationResponse("answer", List.of("doc-1"), false);
+        cacheService.put("hello", EMBEDDING, response, List.of(new RetrievedDoc("doc-1", "chunk", 0.9, null))).block();
+
+        StepVerifier.create(cacheService.lookup("hello", EMBEDDING)).verifyComplete();
+        StepVerifier.create(cacheService.lookup("hello", EMBEDDING)).verifyComplete();
+
+        // One exact GET per lookup; the semantic GET happens only until the key is dropped.
+        verify(valueOperations, times(3)).get(any());
+    }
+
+    @Test
+    void storesInt8EmbeddingsWhenQuantized() {
         OrchestratorProperties props = new OrchestratorProperties();
         props.setCacheSimThreshold(0.99);
-        cacheService = new SemanticCacheService(redisTemplate, objectMapper, props);
+        props.setCacheVectorEncoding(OrchestratorProperties.VectorEncoding.INT8);
+        cacheService = newService(props, meterRegistry);
+        ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+        when(valueOperations.set(any(), value.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(zSetOperations.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        float[] embedding = {0.6f, -0.8f, 0, 0, 0, 0, 0, 0};
+        GenerationResponse response = new GenerationResponse("answer", List.of(), false);
+
+        cacheService.put("hello", embedding, response, List.of()).block();
+
+        CacheEntry stored = codec.decode(value.getValue());
+        assertThat(stored.embedding()).isNull();
+        assertThat(stored.quantizedEmbedding().codes()).containsExactly(95, -127, 0, 0, 0, 0, 0, 0);
+        SemanticCacheService replica = newService(props, meterRegistry);
+        stubIndex("rag:cache:key");
+        stubValues(Map.of("rag:cache:key", value.getValue()));
+        replica.syncIndex().block();
+        StepVerifier.create(replica.lookup("hello", embedding))
+                .assertNext(hit -> assertThat(hit.similarity()).isGreaterThan(0.99))
+                .verifyComplete();
+    }
+
+    @Test
+    void repeatedLookupIsServedFromL1() {
+        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, null, "cached", List.of(), List.of(), System.currentTimeMillis());
+        stubIndex("rag:cache:key");
+        stubValues(Map.of("rag:cache:key", codec.encode(entry)));
+        cacheService.syncIndex().block();
+
+        StepVerifier.create(cacheService.lookup("hello planet", EMBEDDING)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cacheService.lookup("hello there", EMBEDDING))
+                .assertNext(hit -> assertThat(hit.entry().answer()).isEqualTo("cached"))
+                .verifyComplete();
+
+        verify(valueOperations, times(2)).get(key("rag:cache:key"));
+        assertThat(meterRegistry.counter("rag_cache_lookups_total", "tier", "l2").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag_cache_lookups_total", "tier", "l1").count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationFromAnotherReplicaEvictsL1() {
+        Sinks.Many<ChannelMessage<String, String>> channel = Sinks.many().multicast().directBestEffort();
+        doReturn(channel.asFlux()).when(redisTemplate).listenToChannel("rag:cache:invalidate");
+        cacheService.startInvalidationListener();
+        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, null, "cached", List.of(), List.of(), System.currentTimeMillis());
+        stubIndex("rag:cache:key");
+        stubValues(Map.of("rag:cache:key", codec.encode(entry)));
+        cacheService.syncIndex().block();
+        cacheService.lookup("hello world", EMBEDDING).block();
+
+        channel.tryEmitNext(new ChannelMessage<>("rag:cache:invalidate", "other-replica rag:cache:key"));
+        cacheService.lookup("hello world", EMBEDDING).block();
+
+        verify(valueOperations, times(3)).get(key("rag:cache:key"));
+        cacheService.stopIndexSync();
+    }
+
+    @Test
+    void samePromptIsServedByDirectGetOnItsKey() {
+        ArgumentCaptor<byte[]> key = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+        when(valueOperations.set(key.capture(), value.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(zSetOperations.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        GenerationResponse response = new GenerationResponse("answer", List.of(), false);
+        cacheService.put("What's the cache TTL?", EMBEDDING, response, List.of()).block();
+
+        // Another replica, with nothing in L1 or in its index yet.
+        SemanticCacheService replica = newService(new OrchestratorProperties(), meterRegistry);
+        stubValues(Map.of(new String(key.getValue(), StandardCharsets.UTF_8), value.getValue()));
+
+        StepVerifier.create(replica.lookup("  what's the   cache ttl ", new float[] {0, 1, 0, 0, 0, 0, 0, 0}))
+                .assertNext(hit -> {
+                    assertThat(hit.similarity()).isEqualTo(1.0);
+                    assertThat(hit.entry().answer()).isEqualTo("answer");
+                })
+                .verifyComplete();
+        assertThat(meterRegistry.counter("rag_cache_hits_total", "match", "exact").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag_cache_hits_total", "match", "semantic").count()).isZero();
+    }
+
+    @Test
+    void syncTrimsExpiredMembersAndEvictsBeyondMaxEntries() {
+        OrchestratorProperties props = new OrchestratorProperties();
+        props.setCacheMaxEntries(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cacheService = newService(props, registry);
+        when(zSetOperations.removeRangeByScore(eq("rag:cache:expiry-index"), any())).thenReturn(Mono.just(3L));
+        when(zSetOperations.size("rag:cache:expiry-index")).thenReturn(Mono.just(4L));
+        when(zSetOperations.popMin("rag:cache:expiry-index", 2)).thenReturn(Flux.just(
+                TypedTuple.of("rag:cache:oldest", 1.0), TypedTuple.of("rag:cache:older", 2.0)));
+        when(redisTemplate.unlink("rag:cache:oldest", "rag:cache:older")).thenReturn(Mono.just(2L));
+        when(zSetOperations.rangeByScoreWithScores(eq("rag:cache:expiry-index"), any())).thenReturn(Flux.empty());
+
+        cacheService.syncIndex().block();
+
+        verify(redisTemplate).unlink("rag:cache:oldest", "rag:cache:older");
+        assertThat(registry.get("rag_cache_index_members").tag("state", "dead").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("rag_cache_index_members").tag("state", "live").gauge().value()).isZero();
+        assertThat(registry.counter("rag_cache_evictions_total").count()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void laterSyncsReadOnlyMembersScoredSinceTheNewestSeenAndExpireKeysLocally() {
+        long now = System.currentTimeMillis();
+        float[] second = {0, 1, 0, 0, 0, 0, 0, 0};
+        float[] expired = {0, 0, 1, 0, 0, 0, 0, 0};
+        stubValues(Map.of(
+                "rag:cache:first", codec.encode(new CacheEntry("first", EMBEDDING, null, "first", List.of(), List.of(), now)),
+                "rag:cache:second", codec.encode(new CacheEntry("second", second, null, "second", List.of(), List.of(), now)),
+                "rag:cache:expired", codec.encode(new CacheEntry("expired", expired, null, "expired", List.of(), List.of(), now))));
+        when(zSetOperations.removeRangeByScore(any(), any())).thenReturn(Mono.just(0L));
+        when(zSetOperations.size(any())).thenReturn(Mono.just(2L));
+        ArgumentCaptor<Range<Double>> ranges = ArgumentCaptor.forClass(Range.class);
+        when(zSetOperations.rangeByScoreWithScores(eq("rag:cache:expiry-index"), ranges.capture()))
+                .thenReturn(Flux.just(TypedTuple.of("rag:cache:first", now + 60_000.0), TypedTuple.of("rag:cache:expired", now - 1.0)))
+                .thenReturn(Flux.just(TypedTuple.of("rag:cache:first", now + 60_000.0), TypedTuple.of("rag:cache:second", now + 61_000.0)));
+
+        cacheService.syncIndex().block();
+        cacheService.syncIndex().block();
+
+        // The first sync reads every live member; the second only those from 30 s below the newest.
+        assertThat(ranges.getAllValues().get(0).getLowerBound().getValue().orElseThrow()).isCloseTo(now, within(1_000.0));
+        Range.Bound<Double> catchUp = ranges.getAllValues().get(1).getLowerBound();
+        assertThat(catchUp.isInclusive()).isFalse();
+        assertThat(catchUp.getValue()).contains(now + 30_000.0);
+        StepVerifier.create(cacheService.lookup("a", EMBEDDING))
+                .assertNext(hit -> assertThat(hit.entry().answer()).isEqualTo("first"))
+                .verifyComplete();
+        StepVerifier.create(cacheService.lookup("b", second))
+                .assertNext(hit -> assertThat(hit.entry().answer()).isEqualTo("second"))
+                .verifyComplete();
+        StepVerifier.create(cacheService.lookup("c", expired)).verifyComplete();
+    }
+
+    @Test
+    void indexSyncReadsOnlyTheVectorOfEntriesFromOtherReplicas() {
+        when(valueOperations.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(zSetOperations.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        cacheService.put("hello", EMBEDDING, new GenerationResponse("answer", List.of(), false), List.of()).block();
+        String answer = "A long answer that the index sync never needs to read. ".repeat(20);
+        float[] foreign = {0, 1, 0, 0, 0, 0, 0, 0};
+        byte[] stored = codec.encode(new CacheEntry(
+                "other", foreign, null, answer, List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis()));
+        stubIndex("rag:cache:foreign");
+        stubValues(Map.of("rag:cache:foreign", stored));
+
+        cacheService.syncIndex().block();
+
+        long vectorEnd = CacheEntryCodec.vectorSectionLength(EMBEDDING.length, false) - 1;
+        verify(stringCommands).getRange(ByteBuffer.wrap(key("rag:cache:foreign")), 0, vectorEnd);
+        verify(valueOperations, never()).get(key("rag:cache:foreign"));
+        StepVerifier.create(cacheService.lookup("something else", foreign))
+                .assertNext(hit -> assertThat(hit.entry().answer()).isEqualTo(answer))
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidatingADocumentEvictsExactlyTheEntriesBuiltFromIt() {
+        ArgumentCaptor<String> cacheKey = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(zSetOperations.add(any(), any(), anyDouble())).thenReturn(Mono.just(true));
+        when(redisTemplate.convertAndSend(any(), any())).thenReturn(Mono.just(1L));
+        when(setOperations.add(any(), cacheKey.capture())).thenReturn(Mono.just(1L));
+        when(redisTemplate.expire(any(), any())).thenReturn(Mono.just(true));
+        GenerationResponse response = new GenerationResponse("answer", List.of("doc-1"), false);
+        cacheService.put("hello", EMBEDDING, response, List.of(
+                new RetrievedDoc("doc-1", "chunk", 0.9, null),
+                new RetrievedDoc("doc-2", "chunk", 0.8, null))).block();
 
-        CacheEntry entry = new CacheEntry("hello world", EMBEDDING, "cached", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
-        when(redisTemplate.opsForSet()).thenReturn(setOperations);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(setOperations.members(any())).thenReturn(Flux.just("rag:cache:key"));
-        when(valueOperations.get(any())).thenReturn(Mono.just(objectMapper.writeValueAsString(entry)));
+        String key = cacheKey.getValue();
+        verify(setOperations).add("rag:cache:doc:doc-1", key);
+        verify(setOperations).add("rag:cache:doc:doc-2", key);
+        verify(redisTemplate).expire("rag:cache:doc:doc-1", Duration.ofSeconds(new OrchestratorProperties().getCacheTtlSeconds()));
 
-        StepVerifier.create(cacheService.lookup("different text", new double[] {0, 1, 0, 0, 0, 0, 0, 0}))
+        when(setOperations.members("rag:cache:doc:doc-2")).thenReturn(Flux.just(key));
+        when(setOperations.members("rag:cache:doc:doc-9")).thenReturn(Flux.empty());
+        when(zSetOperations.remove("rag:cache:expiry-index", key)).thenReturn(Mono.just(1L));
+        when(redisTemplate.unlink(key)).thenReturn(Mono.just(1L));
+        when(redisTemplate.unlink("rag:cache:doc:doc-2", "rag:cache:doc:doc-9")).thenReturn(Mono.just(1L));
+        when(valueOperations.get(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(cacheService.invalidateDocuments(List.of("doc-2", "doc-9")))
+                .expectNext(1L)
                 .verifyComplete();
+
+        // Gone from L1 and from the local index: the same prompt now misses.
+        StepVerifier.create(cacheService.lookup("hello", EMBEDDING)).verifyComplete();
+        // Once for the write, once to evict the other replicas' L1 copies.
+        verify(redisTemplate, times(2)).convertAndSend(eq("rag:cache:invalidate"), endsWith(" " + key));
+        assertThat(meterRegistry.counter("rag_cache_invalidated_total").count()).isEqualTo(1);
+    }
+
+    /** Serves both full GETs and the GETRANGE vector reads the index sync switches to. */
+    private void stubValues(Map<String, byte[]> values) {
+        when(valueOperations.get(any())).thenAnswer(invocation ->
+                Mono.justOrEmpty(values.get(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8))));
+        lenient().when(binaryRedisTemplate.execute(any(ReactiveRedisCallback.class))).thenAnswer(invocation ->
+                Flux.from(invocation.<ReactiveRedisCallback<?>>getArgument(0).doInRedis(connection)));
+        lenient().when(connection.stringCommands()).thenReturn(stringCommands);
+        lenient().when(stringCommands.getRange(any(), eq(0L), anyLong())).thenAnswer(invocation -> {
+            byte[] value = values.getOrDefault(StandardCharsets.UTF_8.decode(invocation.<ByteBuffer>getArgument(0).duplicate()).toString(), new byte[0]);
+            int end = (int) Math.min(value.length, invocation.<Long>getArgument(2) + 1);
+            return Mono.just(ByteBuffer.wrap(Arrays.copyOf(value, end)));
+        });
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private SemanticCacheService newService(OrchestratorProperties props, MeterRegistry registry) {
+        LocalIndexCacheBackend backend = new LocalIndexCacheBackend(redisTemplate, binaryRedisTemplate, props, registry);
+        return new SemanticCacheService(redisTemplate, backend, props, registry);
+    }
+
+    private void stubIndex(String... keys) {
+        when(zSetOperations.removeRangeByScore(any(), any())).thenReturn(Mono.just(0L));
+        when(zSetOperations.size(any())).thenReturn(Mono.just((long) keys.length));
+        double expiresAt = System.currentTimeMillis() + 60_000;
+        when(zSetOperations.rangeByScoreWithScores(any(), any())).thenReturn(Flux.fromArray(keys)
+                .map(key -> TypedTuple.of(key, expiresAt)));
     }
 }
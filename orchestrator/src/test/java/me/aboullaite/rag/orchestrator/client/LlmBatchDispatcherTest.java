@@ -0,0 +1,84 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import me.aboullaite.rag.orchestrator.client.LlmClient.LlmResponse;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class LlmBatchDispatcherTest {
+
+    @Mock
+    private LlmClient llmClient;
+
+    private final OrchestratorProperties properties = new OrchestratorProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        properties.setLlmBatchingEnabled(true);
+        properties.setLlmBatchMaxSize(3);
+        properties.setLlmBatchMaxWaitMs(1000);
+    }
+
+    @Test
+    void concurrentPromptsShareOneRequestAndGetTheirOwnAnswer() {
+        when(llmClient.generateBatch(List.of("a", "b", "c"))).thenReturn(Mono.just(List.of(
+                new LlmResponse("answer a", -1, 2), new LlmResponse("answer b", -1, 2), new LlmResponse("answer c", -1, 2))));
+        LlmBatchDispatcher dispatcher = new LlmBatchDispatcher(llmClient, properties, registry);
+
+        // A full batch goes out at once, without waiting for the window.
+        StepVerifier.create(Flux.mergeSequential(
+                        dispatcher.generate("a"), dispatcher.generate("b"), dispatcher.generate("c"))
+                        .map(LlmResponse::answer))
+                .expectNext("answer a", "answer b", "answer c")
+                .expectComplete()
+                .verify(Duration.ofMillis(500));
+
+        verify(llmClient, never()).generate(any());
+        assertThat(registry.get("rag_llm_batch_size").summary().mean()).isEqualTo(3);
+        dispatcher.stop();
+    }
+
+    @Test
+    void aLonePromptIsSentOnItsOwnWhenTheWindowCloses() {
+        properties.setLlmBatchMaxWaitMs(5);
+        when(llmClient.generate("a")).thenReturn(Mono.just(new LlmResponse("answer a", -1, 2)));
+        LlmBatchDispatcher dispatcher = new LlmBatchDispatcher(llmClient, properties, registry);
+
+        StepVerifier.create(dispatcher.generate("a").map(LlmResponse::answer))
+                .expectNext("answer a")
+                .verifyComplete();
+
+        verify(llmClient, never()).generateBatch(anyList());
+        dispatcher.stop();
+    }
+
+    @Test
+    void aFailedBatchFailsEveryCaller() {
+        properties.setLlmBatchMaxSize(2);
+        when(llmClient.generateBatch(List.of("a", "b"))).thenReturn(Mono.error(new IllegalStateException("llm down")));
+        LlmBatchDispatcher dispatcher = new LlmBatchDispatcher(llmClient, properties, registry);
+
+        StepVerifier.create(Flux.mergeDelayError(2, dispatcher.generate("a"), dispatcher.generate("b")))
+                .expectErrorSatisfies(ex -> assertThat(ex.getSuppressed()).hasSize(2))
+                .verify(Duration.ofMillis(500));
+        dispatcher.stop();
+    }
+}
@@ -0,0 +1,120 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Prompts/s of {@link LlmBatchDispatcher} with batching off and on, against an in-JVM stand-in
+ * for vLLM: {@value #FORWARD_SLOTS} forward passes run at once, each costing
+ * {@value #PASS_MILLIS} ms plus {@value #PROMPT_MILLIS} ms per prompt in the request, so a batch
+ * amortises the fixed cost the way continuous batching does on a GPU.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LlmBatchingBenchmark {
+
+    private static final int CONCURRENT_PROMPTS = 64;
+    private static final int FORWARD_SLOTS = 4;
+    private static final long PASS_MILLIS = 20;
+    private static final long PROMPT_MILLIS = 1;
+
+    @Param({"false", "true"})
+    public boolean batching;
+
+    @Param({"8", "16"})
+    public int maxBatchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService gpu;
+    private DisposableServer server;
+    private LlmBatchDispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void startServer() {
+        gpu = Executors.newFixedThreadPool(FORWARD_SLOTS);
+        Scheduler forwardPasses = Schedulers.fromExecutorService(gpu);
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/v1/completions", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendByteArray(request.receive().aggregate().asByteArray()
+                                .publishOn(forwardPasses)
+                                .map(this::complete))))
+                .bindNow();
+
+        OrchestratorProperties properties = new OrchestratorProperties();
+        properties.setLlmBatchingEnabled(batching);
+        properties.setLlmBatchMaxSize(maxBatchSize);
+        WebClient webClient = WebClient.create("http://127.0.0.1:" + server.port() + "/v1/completions");
+        dispatcher = new LlmBatchDispatcher(new LlmClient(webClient, properties, objectMapper), properties, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        dispatcher.stop();
+        server.disposeNow();
+        gpu.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_PROMPTS)
+    public Object prompts() {
+        return Flux.range(0, CONCURRENT_PROMPTS)
+                .flatMap(i -> dispatcher.generate("question " + i), CONCURRENT_PROMPTS)
+                .then()
+                .block();
+    }
+
+    /** Blocks a forward-pass thread for the simulated cost and answers every prompt in the request. */
+    private byte[] complete(byte[] body) {
+        try {
+            JsonNode prompt = objectMapper.readTree(body).path("prompt");
+            int prompts = prompt.isArray() ? prompt.size() : 1;
+            Thread.sleep(PASS_MILLIS + PROMPT_MILLIS * prompts);
+            ObjectNode reply = objectMapper.createObjectNode();
+            ArrayNode choices = reply.putArray("choices");
+            for (int i = 0; i < prompts; i++) {
+                choices.addObject().put("index", i).put("text", "answer " + i);
+            }
+            return objectMapper.writeValueAsBytes(reply);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+class LlmClientTest {
+
+    private MockWebServer server;
+    private LlmClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        WebClient webClient = WebClient.builder()
+                .baseUrl(server.url("/v1/completions").toString())
+                .build();
+        client = new LlmClient(webClient, new OrchestratorProperties(), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void streamsCompletionDeltasUntilDone() throws InterruptedException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody("data: {\"choices\":[{\"index\":0,\"text\":\"Auto\"}]}\n\n"
+                        + "data: {\"choices\":[{\"index\":0,\"text\":\"scaling uses\"}]}\n\n"
+                        + "data: {\"choices\":[{\"index\":0,\"text\":\" HPA [doc-1]\"}]}\n\n"
+                        + "data: [DONE]\n\n"));
+
+        StepVerifier.create(client.stream("prompt"))
+                .expectNext("Auto", "scaling uses", " HPA [doc-1]")
+                .verifyComplete();
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.getBody().readUtf8()).contains("\"stream\":true");
+    }
+
+    @Test
+    void blockingGenerateDoesNotReportTtft() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"choices\":[{\"text\":\"answer\"}],\"usage\":{\"completion_tokens\":7}}"));
+
+        StepVerifier.create(client.generate("prompt"))
+                .assertNext(response -> {
+                    assertThat(response.answer()).isEqualTo("answer");
+                    assertThat(response.ttftMillis()).isNegative();
+                    assertThat(response.tokens()).isEqualTo(7);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void batchSendsAPromptArrayAndMatchesChoicesByIndex() throws InterruptedException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"choices\":[{\"index\":1,\"text\":\"second answer\"},{\"index\":0,\"text\":\"first\"}]}"));
+
+        StepVerifier.create(client.generateBatch(List.of("one", "two")))
+                .assertNext(responses -> assertThat(responses)
+                        .extracting(LlmClient.LlmResponse::answer)
+                        .containsExactly("first", "second answer"))
+                .verifyComplete();
+
+        assertThat(server.takeRequest().getBody().readUtf8()).contains("\"prompt\":[\"one\",\"two\"]");
+    }
+}
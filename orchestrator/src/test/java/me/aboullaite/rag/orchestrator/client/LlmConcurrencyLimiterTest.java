@@ -0,0 +1,124 @@
+package me.aboullaite.rag.orchestrator.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import me.aboullaite.rag.orchestrator.client.LlmConcurrencyLimiter.OverloadedException;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class LlmConcurrencyLimiterTest {
+
+    private final OrchestratorProperties properties = new OrchestratorProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final VirtualTimeScheduler timer = VirtualTimeScheduler.create();
+    private LlmConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties.setLlmInitialLimit(2);
+        properties.setLlmAcquireTimeoutMs(100);
+        limiter = new LlmConcurrencyLimiter(properties, registry, timer);
+    }
+
+    @Test
+    void rejectsCallersThatGetNoPermitBeforeTheDeadline() {
+        limiter.limit(Mono.never()).subscribe();
+        limiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("answer")))
+                .then(() -> assertThat(limiter.queued()).isEqualTo(1))
+                .then(() -> timer.advanceTimeBy(Duration.ofMillis(100)))
+                .expectError(OverloadedException.class)
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(limiter.queued()).isZero();
+        assertThat(registry.counter("rag_llm_rejected_total").count()).isEqualTo(1);
+        assertThat(registry.get("rag_llm_inflight").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void aFreedPermitGoesToTheOldestWaiter() {
+        Sinks.One<String> first = Sinks.one();
+        limiter.limit(first.asMono()).subscribe();
+        limiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("answer")))
+                .then(() -> first.tryEmitValue("done"))
+                .expectNext("answer")
+                .verifyComplete();
+
+        assertThat(registry.counter("rag_llm_rejected_total").count()).isZero();
+    }
+
+    @Test
+    void limitGrowsWithSuccessfulCallsUnderLoadAndBacksOffOnTimeouts() {
+        Sinks.One<String> busy = Sinks.one();
+        limiter.limit(busy.asMono()).subscribe();
+        limiter.limit(Mono.just("answer")).block();
+        assertThat(limiter.limit()).isEqualTo(3);
+        // Started with one permit of two in use: not enough load to grow further.
+        busy.tryEmitValue("done");
+        assertThat(limiter.limit()).isEqualTo(3);
+
+        properties.setLlmLimitBackoff(0.5);
+        limiter.limit(Mono.error(new TimeoutException())).onErrorResume(ex -> Mono.empty()).block();
+        assertThat(limiter.limit()).isEqualTo(1.5);
+
+        // Client errors are not a load signal.
+        limiter.limit(Mono.error(new IllegalArgumentException())).onErrorResume(ex -> Mono.empty()).block();
+        assertThat(registry.get("rag_llm_concurrency_limit").gauge().value()).isEqualTo(1.5);
+    }
+
+    @Test
+    void cancellingAWaiterOrAHolderReleasesItsPlace() {
+        Disposable holder = limiter.limit(Mono.never()).subscribe();
+        limiter.limit(Mono.never()).subscribe();
+        Disposable waiter = limiter.limit(Mono.never()).subscribe();
+        assertThat(limiter.queued()).isEqualTo(1);
+
+        waiter.dispose();
+        holder.dispose();
+
+        assertThat(limiter.queued()).isZero();
+        assertThat(limiter.inflight()).isEqualTo(1);
+        StepVerifier.create(limiter.limit(Mono.just("answer"))).expectNext("answer").verifyComplete();
+    }
+
+    @Test
+    void aFailedBatchBacksOffOnceForAllItsCallers() {
+        properties.setLlmInitialLimit(8);
+        properties.setLlmLimitBackoff(0.5);
+        properties.setLlmBatchingEnabled(true);
+        properties.setLlmBatchMaxSize(4);
+        properties.setLlmBatchMaxWaitMs(1000);
+        limiter = new LlmConcurrencyLimiter(properties, registry, timer);
+        LlmClient llmClient = mock(LlmClient.class);
+        when(llmClient.generateBatch(anyList()))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+        LlmBatchDispatcher dispatcher = new LlmBatchDispatcher(llmClient, properties, registry);
+
+        StepVerifier.create(Flux.fromIterable(List.of("a", "b", "c", "d"))
+                        .flatMap(prompt -> limiter.limit(dispatcher.generate(prompt)).onErrorResume(ex -> Mono.empty())))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(limiter.inflight()).isZero();
+        dispatcher.stop();
+    }
+}
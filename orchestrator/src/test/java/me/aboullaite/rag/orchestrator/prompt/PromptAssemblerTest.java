@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.PromptLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,13 +13,16 @@ import org.junit.jupiter.api.Test;
 
 class PromptAssemblerTest {
 
+    private OrchestratorProperties properties;
+    private SimpleMeterRegistry meterRegistry;
     private PromptAssembler assembler;
 
     @BeforeEach
     void setup() {
-        OrchestratorProperties properties = new OrchestratorProperties();
+        properties = new OrchestratorProperties();
         properties.setSystemPrompt("System prompt");
-        assembler = new PromptAssembler(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        assembler = new PromptAssembler(properties, meterRegistry);
     }
 
     @Test
@@ -38,4 +43,46 @@ class PromptAssemblerTest {
         assertThat(bundle.prompt()).contains("respond with: \"I don't know. This information is not available in the knowledge base.\"");
         assertThat(bundle.citations()).isEmpty();
     }
+
+    @Test
+    void prefixCachedLayoutSharesEverythingUpToTheQuestion() {
+        properties.setPromptLayout(PromptLayout.PREFIX_CACHED);
+        assembler = new PromptAssembler(properties, meterRegistry);
+        RetrievedDoc a = new RetrievedDoc("chunk-a", "Alpha content.", 0.7, Map.of("source", "a.md", "docId", "a"));
+        RetrievedDoc b = new RetrievedDoc("chunk-b", "Beta content.", 0.9, Map.of("docId", "b", "source", "b.md", RetrievedDoc.RETRIEVAL_META_KEY, "vector"));
+
+        String first = assembler.assemble("How do I deploy?", List.of(b, a)).prompt();
+        PromptAssembler.PromptBundle second = assembler.assemble("How do I roll back?", List.of(a, b));
+
+        String context = first.substring(0, first.indexOf("Question:"));
+        assertThat(second.prompt()).startsWith(context).endsWith("Question: How do I roll back?\n\nAnswer:");
+        assertThat(context).startsWith("System prompt\n\n");
+        assertThat(context.indexOf("Doc ID: chunk-a")).isLessThan(context.indexOf("Doc ID: chunk-b"));
+        assertThat(context).contains("docId: b\nsource: b.md\n").doesNotContain("vector");
+        assertThat(second.citations()).containsExactly("chunk-a", "chunk-b");
+        assertThat(meterRegistry.get("rag_prompt_shared_prefix_chars").summary().max()).isEqualTo(context.length() + "Question: How do I ".length());
+    }
+
+    @Test
+    void prefixCachedLayoutRendersReingestedChunksAgain() {
+        properties.setPromptLayout(PromptLayout.PREFIX_CACHED);
+        assembler = new PromptAssembler(properties, meterRegistry);
+
+        assembler.assemble("Explain deployment", List.of(new RetrievedDoc("chunk-a", "Old text.", 0.9, Map.of())));
+        String prompt = assembler.assemble("Explain deployment", List.of(new RetrievedDoc("chunk-a", "New text.", 0.9, Map.of()))).prompt();
+
+        assertThat(prompt).contains("Content: New text.").doesNotContain("Old text.");
+    }
+
+    @Test
+    void prefixCachedLayoutKeepsTheStaticPrefixWithoutContext() {
+        properties.setPromptLayout(PromptLayout.PREFIX_CACHED);
+        assembler = new PromptAssembler(properties, meterRegistry);
+
+        String withDocs = assembler.assemble("Explain deployment", List.of(new RetrievedDoc("chunk-a", "Text.", 0.9, Map.of()))).prompt();
+        String withoutDocs = assembler.assemble("Explain deployment", List.of()).prompt();
+
+        assertThat(withoutDocs).contains("I don't know. This information is not available in the knowledge base.");
+        assertThat(withDocs).startsWith(withoutDocs.substring(0, withoutDocs.indexOf("Context:\n") + "Context:\n".length()));
+    }
 }
@@ -3,30 +3,40 @@ package me.aboullaite.rag.orchestrator.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import me.aboullaite.rag.common.dto.GenerationResponse;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
+import me.aboullaite.rag.common.embedding.EmbeddingService;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheEntry;
 import me.aboullaite.rag.orchestrator.cache.SemanticCacheService.CacheHit;
+import me.aboullaite.rag.orchestrator.client.LlmBatchDispatcher;
 import me.aboullaite.rag.orchestrator.client.LlmClient;
 import me.aboullaite.rag.orchestrator.client.LlmClient.LlmResponse;
+import me.aboullaite.rag.orchestrator.client.LlmConcurrencyLimiter;
 import me.aboullaite.rag.orchestrator.client.RetrieverClient;
 import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
-import me.aboullaite.rag.orchestrator.embedding.EmbeddingService;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties.TrafficClass;
 import me.aboullaite.rag.orchestrator.prompt.PromptAssembler;
 import me.aboullaite.rag.orchestrator.prompt.PromptAssembler.PromptBundle;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +53,7 @@ class AskServiceTest {
     @Mock
     private PromptAssembler promptAssembler;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private AskService askService;
     private OrchestratorProperties properties;
 
@@ -51,20 +62,28 @@ class AskServiceTest {
         properties = new OrchestratorProperties();
         properties.setModelName("test-model");
         properties.setSystemPrompt("System");
-        when(embeddingService.embed(any())).thenReturn(new double[] {1, 0, 0, 0, 0, 0, 0, 0});
-        askService = new AskService(
+        when(embeddingService.embedAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new float[] {1, 0, 0, 0, 0, 0, 0, 0}));
+        askService = newAskService(new LlmConcurrencyLimiter(properties, new SimpleMeterRegistry()));
+    }
+
+    private AskService newAskService(LlmConcurrencyLimiter limiter) {
+        return new AskService(
                 retrieverClient,
                 llmClient,
+                limiter,
+                new LlmBatchDispatcher(llmClient, properties, new SimpleMeterRegistry()),
                 cacheService,
                 embeddingService,
                 promptAssembler,
+                new RequestCoalescer(mock(ReactiveStringRedisTemplate.class), properties, new SimpleMeterRegistry()),
                 properties,
-                new SimpleMeterRegistry());
+                meterRegistry);
     }
 
     @Test
     void returnsCachedResponse() {
-        CacheEntry entry = new CacheEntry("prompt", new double[] {1, 0, 0, 0, 0, 0, 0, 0}, "cached-answer", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
+        CacheEntry entry = new CacheEntry("prompt", new float[] {1, 0, 0, 0, 0, 0, 0, 0}, null, "cached-answer", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
         when(cacheService.lookup(any(), any())).thenReturn(Mono.just(new CacheHit(entry, 0.95)));
 
         StepVerifier.create(askService.ask("prompt", Map.of(), null))
@@ -89,6 +108,31 @@ class AskServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void shedsToRetrievalOnlyAnswerWhenTheLlmIsAtItsLimitWithoutCachingIt() {
+        properties.setLlmInitialLimit(1);
+        properties.setLlmAcquireTimeoutMs(20);
+        LlmConcurrencyLimiter limiter = new LlmConcurrencyLimiter(properties, new SimpleMeterRegistry());
+        askService = newAskService(limiter);
+        // Another request holds the only permit for the whole test.
+        limiter.limit(Mono.never()).subscribe();
+        when(cacheService.lookup(any(), any())).thenReturn(Mono.empty());
+        List<RetrievedDoc> docs = List.of(new RetrievedDoc("doc-1", "content", 0.9, Map.of()));
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.just(docs));
+        when(promptAssembler.assemble(any(), any())).thenReturn(new PromptBundle("prompt-with-context", List.of("doc-1"), List.of()));
+        when(llmClient.generate(any())).thenReturn(Mono.just(new LlmResponse("answer [doc-1]", 10, 4)));
+
+        StepVerifier.create(askService.ask("prompt", Map.of(), null))
+                .assertNext(resp -> {
+                    assertThat(resp.partial()).isTrue();
+                    assertThat(resp.metadata().llmFallback()).isTrue();
+                    assertThat(resp.citations()).containsExactly("doc-1");
+                })
+                .verifyComplete();
+
+        verify(cacheService, never()).put(any(), any(), any(), any());
+    }
+
     @Test
     void cachesSuccessfulResponse() {
         when(cacheService.lookup(any(), any())).thenReturn(Mono.empty());
@@ -104,4 +148,102 @@ class AskServiceTest {
 
         verify(cacheService).put(any(), any(), any(), any());
     }
+
+    @Test
+    void reportsWhichRetrievalSourcesContributed() {
+        when(cacheService.lookup(any(), any())).thenReturn(Mono.empty());
+        List<RetrievedDoc> docs = List.of(
+                new RetrievedDoc("doc-1", "content", 0.03, Map.of(RetrievedDoc.RETRIEVAL_META_KEY, "vector")),
+                new RetrievedDoc("doc-2", "content", 0.02, Map.of(RetrievedDoc.RETRIEVAL_META_KEY, "lexical")));
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.just(docs));
+        when(promptAssembler.assemble(any(), any())).thenReturn(new PromptBundle("prompt-with-context", List.of("doc-1"), List.of()));
+        when(llmClient.generate(any())).thenReturn(Mono.just(new LlmResponse("answer [doc-1]", 10, 4)));
+        when(cacheService.put(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(askService.ask("prompt", Map.of(), null))
+                .assertNext(resp -> assertThat(resp.metadata().retrievalMethod()).isEqualTo("vector+lexical"))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamsLlmDeltasAndCompletesWithCitations() {
+        when(cacheService.lookup(any(), any())).thenReturn(Mono.empty());
+        List<RetrievedDoc> docs = List.of(new RetrievedDoc("doc-1", "content", 0.9, Map.of()));
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.just(docs));
+        when(promptAssembler.assemble(any(), any())).thenReturn(new PromptBundle("prompt-with-context", List.of("doc-1"), List.of()));
+        when(llmClient.stream(any())).thenReturn(Flux.just("The answer", " is here [doc-1]"));
+        when(cacheService.put(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(askService.askStream("prompt", Map.of(), null))
+                .assertNext(chunk -> assertThat(chunk.delta()).isEqualTo("The answer"))
+                .assertNext(chunk -> assertThat(chunk.delta()).isEqualTo(" is here [doc-1]"))
+                .assertNext(chunk -> {
+                    assertThat(chunk.isComplete()).isTrue();
+                    assertThat(chunk.response().answer()).isEqualTo("The answer is here [doc-1]");
+                    assertThat(chunk.response().citations()).containsExactly("doc-1");
+                })
+                .verifyComplete();
+
+        verify(cacheService).put(any(), any(), any(), any());
+    }
+
+    @Test
+    void streamFallsBackWhenLlmFailsBeforeFirstToken() {
+        when(cacheService.lookup(any(), any())).thenReturn(Mono.empty());
+        List<RetrievedDoc> docs = List.of(new RetrievedDoc("doc-1", "content", 0.9, Map.of()));
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.just(docs));
+        when(promptAssembler.assemble(any(), any())).thenReturn(new PromptBundle("prompt-with-context", List.of("doc-1"), List.of()));
+        when(llmClient.stream(any())).thenReturn(Flux.error(new RuntimeException("llm down")));
+        when(cacheService.put(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(askService.askStream("prompt", Map.of(), null))
+                .assertNext(chunk -> assertThat(chunk.delta()).startsWith("Here's what I found"))
+                .assertNext(chunk -> assertThat(chunk.response().partial()).isTrue())
+                .verifyComplete();
+    }
+
+    @Test
+    void speculativeRetrievalRunsDuringTheCacheLookupAndFeedsTheMiss() {
+        properties.setSpeculativeRetrieval(EnumSet.of(TrafficClass.ASK));
+        Sinks.Empty<CacheHit> lookup = Sinks.empty();
+        when(cacheService.lookup(any(), any())).thenReturn(lookup.asMono());
+        AtomicBoolean retrieving = new AtomicBoolean();
+        List<RetrievedDoc> docs = List.of(new RetrievedDoc("doc-1", "content", 0.9, Map.of()));
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.just(docs).doOnSubscribe(s -> retrieving.set(true)));
+        when(promptAssembler.assemble(any(), any())).thenReturn(new PromptBundle("prompt-with-context", List.of("doc-1"), List.of()));
+        when(llmClient.generate(any())).thenReturn(Mono.just(new LlmResponse("answer [doc-1]", 10, 4)));
+        when(cacheService.put(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(askService.ask("prompt", Map.of(), null))
+                .then(() -> {
+                    assertThat(retrieving).isTrue();
+                    lookup.tryEmitEmpty();
+                })
+                .assertNext(resp -> assertThat(resp.citations()).containsExactly("doc-1"))
+                .verifyComplete();
+
+        verify(retrieverClient).retrieve(any());
+        assertThat(meterRegistry.get("rag_speculative_retrieval_total").tag("outcome", "used").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("rag_speculative_retrieval_saved").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void speculativeRetrievalIsCancelledOnACacheHit() {
+        properties.setSpeculativeRetrieval(EnumSet.of(TrafficClass.STREAM));
+        CacheEntry entry = new CacheEntry("prompt", new float[] {1, 0, 0, 0, 0, 0, 0, 0}, null, "cached-answer", List.of("doc-1"), List.of("doc-1"), System.currentTimeMillis());
+        when(cacheService.lookup(any(), any())).thenReturn(Mono.just(new CacheHit(entry, 0.95)));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(retrieverClient.retrieve(any())).thenReturn(Mono.<List<RetrievedDoc>>never().doOnCancel(() -> cancelled.set(true)));
+
+        StepVerifier.create(askService.askStream("prompt", Map.of(), null))
+                .assertNext(chunk -> assertThat(chunk.delta()).isEqualTo("cached-answer"))
+                .assertNext(chunk -> assertThat(chunk.isComplete()).isTrue())
+                .verifyComplete();
+        // ASK is not listed, so the blocking path only retrieves on a miss.
+        StepVerifier.create(askService.ask("prompt", Map.of(), null)).expectNextCount(1).verifyComplete();
+
+        assertThat(cancelled).isTrue();
+        verify(retrieverClient).retrieve(any());
+        assertThat(meterRegistry.get("rag_speculative_retrieval_total").tag("outcome", "wasted").counter().count()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,116 @@
+package me.aboullaite.rag.orchestrator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import me.aboullaite.rag.common.dto.DocumentMetadata;
+import me.aboullaite.rag.orchestrator.client.RetrieverClient;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.test.StepVerifier;
+
+class DocumentServiceTest {
+
+    private static final String PAGE = "{\"documents\":[{\"id\":\"c-1\",\"docId\":\"deploy\",\"source\":\"deploy.md\","
+            + "\"section\":\"# Deploy\",\"chunkCount\":3}],\"nextCursor\":\"deploy\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockWebServer server;
+    private DocumentService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        WebClient webClient = WebClient.builder()
+                .baseUrl(server.url("/").toString())
+                .build();
+        OrchestratorProperties properties = new OrchestratorProperties();
+        // The first request in a JVM pays for Netty's startup; keep it clear of the timeout.
+        properties.setGenTimeoutMs(10_000);
+        service = new DocumentService(new RetrieverClient(webClient, properties), properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void revalidatesCachedPagesWithTheirEtag() throws InterruptedException {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"v1\"")
+                .setBody(PAGE));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        StepVerifier.create(service.listDocuments(null, 10))
+                .assertNext(listing -> {
+                    assertThat(listing.page().documents()).extracting(DocumentMetadata::chunkCount).containsExactly(3);
+                    assertThat(listing.page().nextCursor()).isEqualTo("deploy");
+                    assertThat(listing.etag()).isEqualTo("\"v1\"");
+                })
+                .verifyComplete();
+        StepVerifier.create(service.listDocuments(null, 10))
+                .assertNext(listing -> assertThat(listing.page().documents()).extracting(DocumentMetadata::docId)
+                        .containsExactly("deploy"))
+                .verifyComplete();
+
+        RecordedRequest first = server.takeRequest();
+        RecordedRequest second = server.takeRequest();
+        assertThat(first.getPath()).isEqualTo("/v1/documents?limit=10");
+        assertThat(first.getHeader("If-None-Match")).isNull();
+        assertThat(second.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+        assertThat(meterRegistry.get("rag_documents_requests_total").tag("outcome", "not_modified").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void servesTheLastCopyWhenTheRetrieverFails() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"v1\"")
+                .setBody(PAGE));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        StepVerifier.create(service.listDocuments("a&b", 5)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.listDocuments("a&b", 5))
+                .assertNext(listing -> assertThat(listing.page().documents()).hasSize(1))
+                .verifyComplete();
+        StepVerifier.create(service.listDocuments("other", 5))
+                .assertNext(listing -> assertThat(listing.page().documents()).isEmpty())
+                .verifyComplete();
+    }
+
+    @Test
+    void passesTheRetrieversRejectionsThroughInsteadOfTheCachedCopy() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"v1\"")
+                .setBody(PAGE));
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        StepVerifier.create(service.listDocuments(null, 5)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.listDocuments(null, 5))
+                .expectErrorSatisfies(error -> assertThat(error).isInstanceOfSatisfying(ResponseStatusException.class,
+                        rejection -> assertThat(rejection.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST)))
+                .verify();
+        StepVerifier.create(service.listDocuments(null, 5000))
+                .expectError(ResponseStatusException.class)
+                .verify();
+        assertThat(meterRegistry.get("rag_documents_requests_total").tag("outcome", "rejected").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("rag_documents_requests_total").tag("outcome", "stale").counter().count()).isZero();
+    }
+}
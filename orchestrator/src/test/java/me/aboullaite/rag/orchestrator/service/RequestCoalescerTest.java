@@ -0,0 +1,123 @@
+package me.aboullaite.rag.orchestrator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import me.aboullaite.rag.common.dto.GenerationResponse;
+import me.aboullaite.rag.orchestrator.config.OrchestratorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class RequestCoalescerTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    private OrchestratorProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setup() {
+        properties = new OrchestratorProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(redisTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneExecution() {
+        Sinks.One<GenerationResponse> llm = Sinks.one();
+        AtomicInteger executions = new AtomicInteger();
+        String key = RequestCoalescer.key("What is RAG?", Map.of("source", "docs"), 5);
+
+        Mono<GenerationResponse> first = coalescer.execute(key, () -> {
+            executions.incrementAndGet();
+            return llm.asMono();
+        });
+        Mono<GenerationResponse> second = coalescer.execute(key, () -> {
+            executions.incrementAndGet();
+            return llm.asMono();
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> llm.tryEmitValue(new GenerationResponse("shared", List.of(), false)))
+                .assertNext(both -> assertThat(both.getT1()).isSameAs(both.getT2()))
+                .verifyComplete();
+
+        assertThat(executions).hasValue(1);
+        assertThat(meterRegistry.get("rag_requests_coalesced_total").tag("scope", "local").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void completedFlightIsNotReused() {
+        AtomicInteger executions = new AtomicInteger();
+        String key = RequestCoalescer.key("prompt", Map.of(), null);
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(coalescer.execute(key, () -> Mono.fromCallable(() -> {
+                        executions.incrementAndGet();
+                        return new GenerationResponse("answer", List.of(), false);
+                    })))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void keyMatchesWheneverTheCacheKeyDoes() {
+        // Both miss the cache together; one flight must answer both, or they stampede retrieval and the LLM.
+        assertThat(RequestCoalescer.key("What is RAG?", Map.of(), 5))
+                .isEqualTo(RequestCoalescer.key("what is  rag", Map.of(), 5));
+    }
+
+    @Test
+    void keyIgnoresCaseAndFilterOrder() {
+        assertThat(RequestCoalescer.key("  Hello ", Map.of("a", "1", "b", "2"), 3))
+                .isEqualTo(RequestCoalescer.key("Hello!", Map.of("a", "1", "b", "2"), 3))
+                .isEqualTo(RequestCoalescer.key("hello", new LinkedHashMap<>(Map.of("b", "2", "a", "1")), 3))
+                .isNotEqualTo(RequestCoalescer.key("hello", Map.of("a", "1", "b", "2"), 4));
+    }
+
+    @Test
+    void followerReplicaWaitsForLeaderAnswer() {
+        properties.setCoalescingDistributed(true);
+        properties.setCoalescingPollMs(10);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(any(), any(), any(Duration.class))).thenReturn(Mono.just(false));
+        when(redisTemplate.hasKey(eq("rag:inflight:key"))).thenReturn(Mono.just(true));
+        AtomicInteger polls = new AtomicInteger();
+        GenerationResponse cached = new GenerationResponse("from leader", List.of(), false);
+
+        StepVerifier.create(coalescer.executeAcrossReplicas(
+                        "key",
+                        () -> Mono.error(new AssertionError("follower must not generate")),
+                        () -> polls.incrementAndGet() < 3 ? Mono.empty() : Mono.just(cached)))
+                .expectNext(cached)
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("rag_requests_coalesced_total").tag("scope", "remote").counter().count())
+                .isEqualTo(1.0);
+    }
+}
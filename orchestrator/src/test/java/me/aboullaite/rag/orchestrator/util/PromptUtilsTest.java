@@ -0,0 +1,16 @@
+package me.aboullaite.rag.orchestrator.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PromptUtilsTest {
+
+    @Test
+    void normalizationIgnoresCasePunctuationAndSpacing() {
+        assertThat(PromptUtils.normalize("  What's   the\tCache TTL?! "))
+                .isEqualTo(PromptUtils.normalize("whats the cache ttl"))
+                .isEqualTo("whats the cache ttl");
+        assertThat(PromptUtils.normalize("C++ vs. C#")).isEqualTo("c++ vs c");
+    }
+}
@@ -0,0 +1,91 @@
+package me.aboullaite.rag.orchestrator.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scalar vs. Vector API similarity kernels. {@code *Cosine} recomputes both norms per call,
+ * {@code *Dot} is the unit-vector fast path, {@code *DotAll} scores one query against
+ * {@value #CANDIDATES} contiguous candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SimilarityBenchmark {
+
+    private static final int CANDIDATES = 1024;
+
+    @Param({"8", "384", "768", "1536"})
+    private int dimensions;
+
+    private final ScalarVectorKernel scalar = new ScalarVectorKernel();
+    private final SimdVectorKernel simd = new SimdVectorKernel();
+    private float[] query;
+    private float[] candidate;
+    private float[] matrix;
+    private float[] scores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(11);
+        query = randomVector(random, dimensions);
+        candidate = randomVector(random, dimensions);
+        matrix = randomVector(random, dimensions * CANDIDATES);
+        scores = new float[CANDIDATES];
+    }
+
+    @Benchmark
+    public double scalarCosine() {
+        return scalar.cosine(query, candidate);
+    }
+
+    @Benchmark
+    public double simdCosine() {
+        return simd.cosine(query, candidate);
+    }
+
+    @Benchmark
+    public float scalarDot() {
+        return scalar.dot(query, candidate);
+    }
+
+    @Benchmark
+    public float simdDot() {
+        return simd.dot(query, candidate);
+    }
+
+    @Benchmark
+    public float[] scalarDotAll() {
+        scalar.dotAll(query, matrix, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] simdDotAll() {
+        simd.dotAll(query, matrix, scores);
+        return scores;
+    }
+
+    private static float[] randomVector(SplittableRandom random, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,60 @@
+package me.aboullaite.rag.orchestrator.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class SimilarityUtilsTest {
+
+    private final SplittableRandom random = new SplittableRandom(3);
+    private final ScalarVectorKernel scalar = new ScalarVectorKernel();
+    private final SimdVectorKernel simd = new SimdVectorKernel();
+
+    @Test
+    void usesVectorApiWhenModuleIsPresent() {
+        assertThat(SimilarityUtils.kernelName()).isEqualTo("SimdVectorKernel");
+    }
+
+    @Test
+    void simdKernelMatchesScalarIncludingTails() {
+        for (int dimensions : new int[] {1, 7, 8, 13, 384, 769}) {
+            float[] a = randomVector(dimensions);
+            float[] b = randomVector(dimensions);
+            assertThat(simd.dot(a, b)).isCloseTo(scalar.dot(a, b), offset(1e-3f));
+            assertThat(simd.cosine(a, b)).isCloseTo(scalar.cosine(a, b), offset(1e-5));
+        }
+        assertThat(simd.cosine(new float[16], randomVector(16))).isZero();
+    }
+
+    @Test
+    void dotAllScoresEveryRowOfTheMatrix() {
+        int dimensions = 19;
+        float[] query = randomVector(dimensions);
+        float[][] rows = new float[5][];
+        float[] matrix = new float[rows.length * dimensions];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = randomVector(dimensions);
+            System.arraycopy(rows[row], 0, matrix, row * dimensions, dimensions);
+        }
+
+        float[] scores = new float[rows.length];
+        SimilarityUtils.dotAll(query, matrix, scores);
+
+        for (int row = 0; row < rows.length; row++) {
+            assertThat(scores[row]).isCloseTo(scalar.dot(query, rows[row]), offset(1e-4f));
+        }
+        assertThatThrownBy(() -> SimilarityUtils.dotAll(query, matrix, new float[6]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private float[] randomVector(int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        return vector;
+    }
+}
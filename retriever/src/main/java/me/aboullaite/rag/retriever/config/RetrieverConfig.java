@@ -1,33 +1,59 @@
 package me.aboullaite.rag.retriever.config;
 
-import java.time.Duration;
+import me.aboullaite.rag.common.embedding.EmbeddingConfiguration;
+import me.aboullaite.rag.common.http.HttpClientConfiguration;
+import me.aboullaite.rag.common.http.HttpClientFactory;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 @EnableConfigurationProperties(RetrieverProperties.class)
+@Import({EmbeddingConfiguration.class, HttpClientConfiguration.class})
 public class RetrieverConfig {
 
     @Bean
-    WebClient weaviateWebClient(WebClient.Builder builder, RetrieverProperties properties) {
+    WebClient weaviateWebClient(WebClient.Builder builder, HttpClientFactory httpClients, RetrieverProperties properties) {
         return builder.clone()
                 .baseUrl(properties.getWeaviateUrl())
+                .clientConnector(httpClients.connector("weaviate"))
                 .exchangeStrategies(ExchangeStrategies.builder()
                         .codecs(cfg -> cfg.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
                         .build())
                 .build();
     }
 
+    /**
+     * Client for hedged Weaviate searches. It has its own connection pool so a duplicate request
+     * opens a fresh connection, which the Service load-balances to another replica, instead of
+     * reusing a connection to the slow one.
+     */
     @Bean
-    WebClient opensearchWebClient(WebClient.Builder builder, RetrieverProperties properties) {
+    WebClient weaviateHedgeWebClient(WebClient.Builder builder, HttpClientFactory httpClients, RetrieverProperties properties) {
+        String url = StringUtils.hasText(properties.getHedgeWeaviateUrl())
+                ? properties.getHedgeWeaviateUrl()
+                : properties.getWeaviateUrl();
+        return builder.clone()
+                .baseUrl(url)
+                .clientConnector(httpClients.connector("weaviate-hedge"))
+                .exchangeStrategies(ExchangeStrategies.builder()
+                        .codecs(cfg -> cfg.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    WebClient opensearchWebClient(WebClient.Builder builder, HttpClientFactory httpClients, RetrieverProperties properties) {
         if (properties.getOpensearchUrl() == null || properties.getOpensearchUrl().isBlank()) {
             return null;
         }
         return builder.clone()
                 .baseUrl(properties.getOpensearchUrl())
+                .clientConnector(httpClients.connector("opensearch"))
                 .build();
     }
 }
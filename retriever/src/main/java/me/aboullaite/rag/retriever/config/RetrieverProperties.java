@@ -3,7 +3,7 @@ package me.aboullaite.rag.retriever.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "retriever")
-public class AM@RetrieverProperties {
+public class RetrieverProperties {
 
     /**
      * Base URL for Weaviate, e.g. http://weaviate:8080.
@@ -25,6 +25,88 @@ public class AM@RetrieverProperties {
      */
     private int topKDefault = 5;
 
+    /**
+     * Maximum number of queries accepted by the batch retrieval endpoint.
+     */
+    private int maxBatchSize = 32;
+
+    /**
+     * vector: Weaviate with OpenSearch as fallback; hybrid: both in parallel, results fused.
+     */
+    private Mode mode = Mode.VECTOR;
+
+    /**
+     * How hybrid mode merges the two result lists.
+     */
+    private Fusion fusion = Fusion.RRF;
+
+    /**
+     * Per-backend timeout for Weaviate in hybrid mode; a slower backend is left out of the fusion.
+     */
+    private long vectorTimeoutMs = 250;
+
+    /**
+     * Per-backend timeout for OpenSearch in hybrid mode.
+     */
+    private long lexicalTimeoutMs = 250;
+
+    /**
+     * Rank constant k for reciprocal-rank fusion, score = sum(1 / (k + rank)).
+     */
+    private int rrfK = 60;
+
+    /**
+     * Weight of the min-max normalised vector score in weighted fusion; lexical gets 1 - weight.
+     */
+    private double vectorWeight = 0.5;
+
+    /**
+     * Send a duplicate Weaviate search when the first has not answered within the observed p95.
+     */
+    private boolean hedgeEnabled = false;
+
+    /**
+     * Lower bound for the hedge delay, used until enough latency samples are recorded.
+     */
+    private long hedgeMinDelayMs = 10;
+
+    /**
+     * Maximum extra load from hedged requests, as a percentage of searches.
+     */
+    private double hedgeBudgetPercent = 5;
+
+    /**
+     * Optional Weaviate URL for hedged requests (another replica or zone); defaults to weaviateUrl
+     * over a separate connection pool.
+     */
+    private String hedgeWeaviateUrl;
+
+    /**
+     * weaviate: remote Weaviate; embedded: in-process HNSW index over a memory-mapped file.
+     */
+    private VectorStore vectorStore = VectorStore.WEAVIATE;
+
+    /**
+     * Index file for the embedded vector store.
+     */
+    private String embeddedIndexPath = "data/embedded-index.bin";
+
+    /**
+     * Optional directory of documents to chunk, embed and index when the embedded index file does not exist.
+     */
+    private String embeddedDocsPath;
+
+    /**
+     * How long GET /v1/documents serves the catalog before asking the vector store again; bounds
+     * how stale the listing is after an ingest.
+     */
+    private long catalogTtlMs = 10_000;
+
+    /**
+     * Largest page GET /v1/documents returns.
+     */
+    private int catalogMaxPageSize = 1000;
+
     public String getWeaviateUrl() {
         return weaviateUrl;
     }
@@ -56,4 +138,147 @@ public class AM@RetrieverProperties {
     public void setTopKDefault(int topKDefault) {
         this.topKDefault = topKDefault;
     }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Fusion getFusion() {
+        return fusion;
+    }
+
+    public void setFusion(Fusion fusion) {
+        this.fusion = fusion;
+    }
+
+    public long getVectorTimeoutMs() {
+        return vectorTimeoutMs;
+    }
+
+    public void setVectorTimeoutMs(long vectorTimeoutMs) {
+        this.vectorTimeoutMs = vectorTimeoutMs;
+    }
+
+    public long getLexicalTimeoutMs() {
+        return lexicalTimeoutMs;
+    }
+
+    public void setLexicalTimeoutMs(long lexicalTimeoutMs) {
+        this.lexicalTimeoutMs = lexicalTimeoutMs;
+    }
+
+    public int getRrfK() {
+        return rrfK;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    public double getVectorWeight() {
+        return vectorWeight;
+    }
+
+    public void setVectorWeight(double vectorWeight) {
+        this.vectorWeight = vectorWeight;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public long getHedgeMinDelayMs() {
+        return hedgeMinDelayMs;
+    }
+
+    public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+    }
+
+    public double getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(double hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+
+    public String getHedgeWeaviateUrl() {
+        return hedgeWeaviateUrl;
+    }
+
+    public void setHedgeWeaviateUrl(String hedgeWeaviateUrl) {
+        this.hedgeWeaviateUrl = hedgeWeaviateUrl;
+    }
+
+    public VectorStore getVectorStore() {
+        return vectorStore;
+    }
+
+    public void setVectorStore(VectorStore vectorStore) {
+        this.vectorStore = vectorStore;
+    }
+
+    public String getEmbeddedIndexPath() {
+        return embeddedIndexPath;
+    }
+
+    public void setEmbeddedIndexPath(String embeddedIndexPath) {
+        this.embeddedIndexPath = embeddedIndexPath;
+    }
+
+    public String getEmbeddedDocsPath() {
+        return embeddedDocsPath;
+    }
+
+    public void setEmbeddedDocsPath(String embeddedDocsPath) {
+        this.embeddedDocsPath = embeddedDocsPath;
+    }
+
+    public long getCatalogTtlMs() {
+        return catalogTtlMs;
+    }
+
+    public void setCatalogTtlMs(long catalogTtlMs) {
+        this.catalogTtlMs = catalogTtlMs;
+    }
+
+    public int getCatalogMaxPageSize() {
+        return catalogMaxPageSize;
+    }
+
+    public void setCatalogMaxPageSize(int catalogMaxPageSize) {
+        this.catalogMaxPageSize = catalogMaxPageSize;
+    }
+
+    public enum Mode {
+        VECTOR,
+        HYBRID
+    }
+
+    public enum Fusion {
+        RRF,
+        WEIGHTED
+    }
+
+    public enum VectorStore {
+        WEAVIATE,
+        EMBEDDED
+    }
 }
@@ -0,0 +1,86 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.DocumentMetadata;
+import me.aboullaite.rag.common.dto.DocumentPage;
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * One row per document, read from the vector store's own grouping and kept for
+ * {@code retriever.catalog-ttl-ms}. Pages are keyed by docId so a cursor stays valid while
+ * documents are added or removed, and the whole catalog carries one ETag, so a client holding
+ * any page can revalidate it without downloading it again.
+ */
+@Service
+public class DocumentCatalog {
+
+    private final Mono<Snapshot> snapshot;
+
+    public DocumentCatalog(VectorSearchGateway vectorGateway, RetrieverProperties properties) {
+        Duration ttl = Duration.ofMillis(properties.getCatalogTtlMs());
+        this.snapshot = Mono.defer(vectorGateway::documents)
+                .map(Snapshot::of)
+                .cache(ignored -> ttl, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    /** The documents after {@code cursor} (a docId, exclusive) in docId order; null starts at the first. */
+    public Mono<Page> page(String cursor, int limit) {
+        return snapshot.map(current -> current.page(cursor, limit));
+    }
+
+    public record Page(DocumentPage page, String etag) {
+    }
+
+    private record Snapshot(DocumentMetadata[] documents, String etag) {
+
+        static Snapshot of(List<DocumentMetadata> documents) {
+            DocumentMetadata[] sorted = documents.toArray(DocumentMetadata[]::new);
+            Arrays.sort(sorted, Comparator.comparing(DocumentMetadata::docId));
+            return new Snapshot(sorted, etag(sorted));
+        }
+
+        Page page(String cursor, int limit) {
+            int from = 0;
+            if (cursor != null) {
+                int low = 0;
+                int high = documents.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (documents[mid].docId().compareTo(cursor) <= 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                from = low;
+            }
+            int to = Math.min(documents.length, from + limit);
+            List<DocumentMetadata> slice = List.of(Arrays.copyOfRange(documents, from, to));
+            String next = to < documents.length && to > from ? documents[to - 1].docId() : null;
+            return new Page(new DocumentPage(slice, next), etag);
+        }
+
+        private static String etag(DocumentMetadata[] documents) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (DocumentMetadata document : documents) {
+                    String row = document.id() + '\0' + document.docId() + '\0' + document.source() + '\0'
+                            + document.section() + '\0' + document.chunkCount() + '\n';
+                    digest.update(row.getBytes(StandardCharsets.UTF_8));
+                }
+                return HexFormat.of().formatHex(digest.digest(), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 unavailable", e);
+            }
+        }
+    }
+}
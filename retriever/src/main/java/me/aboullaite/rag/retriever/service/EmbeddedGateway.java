@@ -0,0 +1,116 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.DocumentMetadata;
+import me.aboullaite.rag.common.dto.Query;
+import me.aboullaite.rag.common.dto.RetrievedDoc;
+import me.aboullaite.rag.common.embedding.EmbeddingService;
+import me.aboullaite.rag.common.index.EmbeddedIndex;
+import me.aboullaite.rag.common.index.EmbeddedIndexWriter;
+import me.aboullaite.rag.common.index.IndexedChunk;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Searches an {@link EmbeddedIndex} in process instead of calling Weaviate: no network hop and no
+ * JSON, only the query embedding and a walk over the mapped file. When the index file is missing
+ * and {@code retriever.embedded-docs-path} is set, it is built from those documents at startup
+ * with the same chunking and chunk ids as the ingest job.
+ */
+@Component
+@ConditionalOnProperty(prefix = "retriever", name = "vector-store", havingValue = "embedded")
+public class EmbeddedGateway implements VectorSearchGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedGateway.class);
+
+    private final EmbeddedIndex index;
+    private final EmbeddingService embeddingService;
+
+    public EmbeddedGateway(RetrieverProperties properties, EmbeddingService embeddingService) throws IOException {
+        this(open(properties, embeddingService), embeddingService);
+    }
+
+    EmbeddedGateway(EmbeddedIndex index, EmbeddingService embeddingService) {
+        this.index = index;
+        this.embeddingService = embeddingService;
+    }
+
+    @Override
+    public Mono<List<RetrievedDoc>> search(Query query, int topK) {
+        return Mono.fromFuture(() -> embeddingService.embedAsync(query.text()))
+                .map(vector -> index.search(vector, query.filters(), topK).stream()
+                        .map(match -> new RetrievedDoc(match.id(), match.text(), match.similarity(), match.meta()))
+                        .toList());
+    }
+
+    @Override
+    public Mono<List<List<RetrievedDoc>>> searchBatch(List<Query> queries, List<Integer> topKs) {
+        // Subscribed together so a batching embedding service can embed the queries in one call.
+        return Flux.range(0, queries.size())
+                .flatMapSequential(i -> search(queries.get(i), topKs.get(i)), queries.size())
+                .collectList();
+    }
+
+    @Override
+    public Mono<List<DocumentMetadata>> documents() {
+        return Mono.fromSupplier(() -> index.groups("docId").stream()
+                .map(group -> new DocumentMetadata(group.first().id(), group.value(),
+                        group.first().meta().getOrDefault("source", ""),
+                        group.first().meta().getOrDefault("section", ""),
+                        group.count()))
+                .toList());
+    }
+
+    private static EmbeddedIndex open(RetrieverProperties properties, EmbeddingService embeddingService) throws IOException {
+        Path path = Path.of(properties.getEmbeddedIndexPath());
+        if (Files.notExists(path)) {
+            if (!StringUtils.hasText(properties.getEmbeddedDocsPath())) {
+                throw new IllegalStateException("Embedded index " + path + " not found; set retriever.embedded-docs-path to build it");
+            }
+            build(Path.of(properties.getEmbeddedDocsPath()), path, embeddingService);
+        }
+        long start = System.nanoTime();
+        EmbeddedIndex index = EmbeddedIndex.open(path);
+        log.info("Opened embedded index {} ({} chunks, {} dimensions) in {} ms",
+                path, index.size(), index.dimensions(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    static void build(Path docs, Path indexFile, EmbeddingService embeddingService) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(docs)) {
+            files = listing.filter(Files::isRegularFile).sorted().toList();
+        }
+        List<DocumentChunker.Chunk> chunks = new ArrayList<>();
+        for (Path file : files) {
+            chunks.addAll(DocumentChunker.chunk(file));
+        }
+        List<CompletableFuture<float[]>> vectors = chunks.stream()
+                .map(chunk -> embeddingService.embedAsync(chunk.text()))
+                .toList();
+        List<IndexedChunk> indexed = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunker.Chunk chunk = chunks.get(i);
+            indexed.add(new IndexedChunk(chunk.id(), vectors.get(i).join(), chunk.text(), chunk.meta()));
+        }
+        Path parent = indexFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        EmbeddedIndexWriter.write(indexFile, indexed);
+        log.info("Built embedded index {} from {} files ({} chunks)", indexFile, files.size(), indexed.size());
+    }
+}
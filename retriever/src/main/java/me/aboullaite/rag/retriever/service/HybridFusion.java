@@ -0,0 +1,120 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.RetrievedDoc;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges vector and lexical result lists into one ranking, deduplicated by document id. Each
+ * fused document is tagged with the sources that returned it under
+ * {@link RetrievedDoc#RETRIEVAL_META_KEY}.
+ */
+public final class HybridFusion {
+
+    public static final String VECTOR = "vector";
+    public static final String LEXICAL = "lexical";
+
+    private HybridFusion() {
+    }
+
+    /** Reciprocal-rank fusion: score = sum over lists of 1 / (k + rank), rank starting at 1. */
+    public static List<RetrievedDoc> reciprocalRank(
+            List<RetrievedDoc> vector,
+            List<RetrievedDoc> lexical,
+            int k,
+            int topK) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        for (int i = 0; i < vector.size(); i++) {
+            accumulate(fused, vector.get(i), VECTOR, 1.0 / (k + i + 1));
+        }
+        for (int i = 0; i < lexical.size(); i++) {
+            accumulate(fused, lexical.get(i), LEXICAL, 1.0 / (k + i + 1));
+        }
+        return rank(fused, topK);
+    }
+
+    /**
+     * Weighted fusion of min-max normalised scores, so cosine similarities and unbounded BM25
+     * scores become comparable: score = w * vector + (1 - w) * lexical.
+     */
+    public static List<RetrievedDoc> weighted(
+            List<RetrievedDoc> vector,
+            List<RetrievedDoc> lexical,
+            double vectorWeight,
+            int topK) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        double[] vectorScores = normalize(vector);
+        for (int i = 0; i < vector.size(); i++) {
+            accumulate(fused, vector.get(i), VECTOR, vectorWeight * vectorScores[i]);
+        }
+        double[] lexicalScores = normalize(lexical);
+        for (int i = 0; i < lexical.size(); i++) {
+            accumulate(fused, lexical.get(i), LEXICAL, (1 - vectorWeight) * lexicalScores[i]);
+        }
+        return rank(fused, topK);
+    }
+
+    /** Tags every document with a single retrieval source. */
+    public static List<RetrievedDoc> tag(List<RetrievedDoc> docs, String source) {
+        List<RetrievedDoc> tagged = new ArrayList<>(docs.size());
+        for (RetrievedDoc doc : docs) {
+            tagged.add(withSource(doc, source, doc.score()));
+        }
+        return tagged;
+    }
+
+    private static void accumulate(Map<String, Fused> fused, RetrievedDoc doc, String source, double score) {
+        Fused entry = fused.get(doc.id());
+        if (entry == null) {
+            fused.put(doc.id(), new Fused(doc, source, score));
+        } else if (!entry.sources.equals(source)) {
+            entry.sources = entry.sources + "," + source;
+            entry.score += score;
+        }
+    }
+
+    private static List<RetrievedDoc> rank(Map<String, Fused> fused, int topK) {
+        return fused.values().stream()
+                .sorted(Comparator.comparingDouble((Fused entry) -> entry.score).reversed())
+                .limit(topK)
+                .map(entry -> withSource(entry.doc, entry.sources, entry.score))
+                .toList();
+    }
+
+    private static RetrievedDoc withSource(RetrievedDoc doc, String sources, double score) {
+        Map<String, String> meta = new HashMap<>(doc.meta());
+        meta.put(RetrievedDoc.RETRIEVAL_META_KEY, sources);
+        return new RetrievedDoc(doc.id(), doc.chunk(), score, meta);
+    }
+
+    private static double[] normalize(List<RetrievedDoc> docs) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (RetrievedDoc doc : docs) {
+            min = Math.min(min, doc.score());
+            max = Math.max(max, doc.score());
+        }
+        double[] normalized = new double[docs.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = max > min ? (docs.get(i).score() - min) / (max - min) : 1.0;
+        }
+        return normalized;
+    }
+
+    private static final class Fused {
+
+        private final RetrievedDoc doc;
+        private String sources;
+        private double score;
+
+        private Fused(RetrievedDoc doc, String sources, double score) {
+            this.doc = doc;
+            this.sources = sources;
+            this.score = score;
+        }
+    }
+}
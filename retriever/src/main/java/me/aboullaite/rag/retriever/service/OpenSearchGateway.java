@@ -2,9 +2,11 @@ package me.aboullaite.rag.retriever.service;
 
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -24,6 +26,7 @@ import reactor.core.publisher.Mono;
 public class OpenSearchGateway {
 
     private static final Logger log = LoggerFactory.getLogger(OpenSearchGateway.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     private final WebClient opensearchWebClient;
     private final ObjectMapper mapper;
@@ -56,6 +59,45 @@ public class OpenSearchGateway {
                 .doOnError(ex -> log.warn("OpenSearch fallback failed: {}", ex.getMessage()));
     }
 
+    /**
+     * Runs all queries through a single {@code _msearch} request; results are returned in query
+     * order, with an empty list for any query OpenSearch answered with an error.
+     */
+    public Mono<List<List<RetrievedDoc>>> multiSearch(List<Query> queries, List<Integer> topKs) {
+        if (!isEnabled() || queries.isEmpty()) {
+            return Mono.just(queries.stream().<List<RetrievedDoc>>map(query -> List.of()).toList());
+        }
+
+        return Mono.fromCallable(() -> buildMultiSearchBody(queries, topKs))
+                .flatMap(body -> opensearchWebClient.post()
+                        .uri("/rag-docs/_msearch")
+                        .contentType(NDJSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .map(root -> {
+                    JsonNode responses = root.path("responses");
+                    List<List<RetrievedDoc>> results = new ArrayList<>(queries.size());
+                    for (int i = 0; i < queries.size(); i++) {
+                        JsonNode response = responses.path(i);
+                        results.add(response.has("error") ? List.of() : mapHits(response));
+                    }
+                    return results;
+                })
+                .doOnError(ex -> log.warn("OpenSearch multi-search fallback failed: {}", ex.getMessage()));
+    }
+
+    private String buildMultiSearchBody(List<Query> queries, List<Integer> topKs) throws JsonProcessingException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < queries.size(); i++) {
+            ObjectNode search = mapper.createObjectNode();
+            search.put("size", topKs.get(i));
+            search.set("query", buildQueryNode(queries.get(i)));
+            body.append("{}\n").append(mapper.writeValueAsString(search)).append('\n');
+        }
+        return body.toString();
+    }
+
     private JsonNode buildQueryNode(Query query) {
         ObjectNode bool = mapper.createObjectNode();
         bool.set("should", mapper.createArrayNode().add(mapper.createObjectNode()
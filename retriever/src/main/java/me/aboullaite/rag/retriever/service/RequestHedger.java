@@ -0,0 +1,129 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Hedged execution: when the primary call has not answered within the rolling p95 of recent
+ * successful calls, a duplicate is sent and the first value wins. Hedges are paid for from a
+ * token budget refilled by every request, which caps them at {@code hedgeBudgetPercent} of traffic.
+ * A primary that fails before the hedge delay fails the call with its own error and no hedge is
+ * sent; one that fails after it leaves the hedge to answer, which does not count as a hedge won.
+ */
+@Component
+public class RequestHedger {
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final long TOKEN = 1_000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RetrieverProperties properties;
+    private final Timer latency;
+    private final Counter hedgesFired;
+    private final Counter hedgesWon;
+    private final AtomicLong budget = new AtomicLong(TOKEN);
+    private volatile long delayMillis;
+    private volatile long delayRefreshedAt = System.nanoTime() - DELAY_REFRESH_NANOS;
+
+    public RequestHedger(RetrieverProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.delayMillis = properties.getHedgeMinDelayMs();
+        this.latency = Timer.builder("rag_retrieval_hedge_reference_latency")
+                .description("Latency of successful hedgeable calls, used to derive the hedge delay")
+                .publishPercentiles(HEDGE_PERCENTILE)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.hedgesFired = Counter.builder("rag_retrieval_hedges_fired_total")
+                .description("Duplicate requests sent because the primary was slower than the hedge delay")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("rag_retrieval_hedges_won_total")
+                .description("Hedged requests that answered before the primary")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> primary, Supplier<Mono<T>> hedge) {
+        if (!properties.isHedgeEnabled()) {
+            return Mono.defer(primary);
+        }
+        return Mono.defer(() -> {
+            refill();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.One<Throwable> primaryFailed = Sinks.one();
+            Mono<Attempt<T>> first = attempt(primary, false)
+                    .doOnError(error -> {
+                        primaryError.set(error);
+                        primaryFailed.tryEmitValue(error);
+                    });
+            Mono<Attempt<T>> second = Mono.delay(Duration.ofMillis(currentDelayMillis()))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> tryAcquire())
+                    .flatMap(tick -> {
+                        hedgesFired.increment();
+                        return attempt(hedge, true);
+                    });
+            return Mono.firstWithValue(first, second)
+                    .map(winner -> {
+                        if (winner.hedged() && primaryError.get() == null) {
+                            hedgesWon.increment();
+                        }
+                        return winner.value();
+                    })
+                    // firstWithValue reports a composite "all sources failed"; the primary's error is the cause.
+                    .onErrorMap(error -> primaryError.get() != null ? primaryError.get() : error);
+        });
+    }
+
+    private long currentDelayMillis() {
+        long now = System.nanoTime();
+        if (now - delayRefreshedAt >= DELAY_REFRESH_NANOS) {
+            delayRefreshedAt = now;
+            double p95 = 0;
+            for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+                p95 = percentile.value(TimeUnit.MILLISECONDS);
+            }
+            delayMillis = Math.max(properties.getHedgeMinDelayMs(), (long) Math.ceil(p95));
+        }
+        return delayMillis;
+    }
+
+    private <T> Mono<Attempt<T>> attempt(Supplier<Mono<T>> call, boolean hedged) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.defer(call)
+                    .doOnNext(value -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .map(value -> new Attempt<>(value, hedged));
+        });
+    }
+
+    private void refill() {
+        long share = Math.round(properties.getHedgeBudgetPercent() / 100.0 * TOKEN);
+        budget.accumulateAndGet(share, (current, delta) -> Math.min(MAX_TOKENS, current + delta));
+    }
+
+    private boolean tryAcquire() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private record Attempt<T>(T value, boolean hedged) {
+    }
+}
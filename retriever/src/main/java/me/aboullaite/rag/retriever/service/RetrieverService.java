@@ -11,7 +11,10 @@ import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -24,26 +27,45 @@ public class RetrieverService {
 
     private static final Logger log = LoggerFactory.getLogger(RetrieverService.class);
 
-    private final WeaviateGateway weaviateGateway;
+    private final VectorSearchGateway vectorGateway;
     private final OpenSearchGateway openSearchGateway;
+    private final RequestHedger requestHedger;
     private final RetrieverProperties properties;
     private final Timer retrievalLatency;
+    private final Timer batchRetrievalLatency;
+    private final Timer vectorLatency;
+    private final Timer opensearchLatency;
     private final Counter fallbackCounter;
     private final Tracer tracer;
     private final MeterRegistry meterRegistry;
+    private final String vectorBackend;
 
     public RetrieverService(
-            WeaviateGateway weaviateGateway,
+            VectorSearchGateway vectorGateway,
             OpenSearchGateway openSearchGateway,
+            RequestHedger requestHedger,
             RetrieverProperties properties,
             MeterRegistry meterRegistry) {
-        this.weaviateGateway = weaviateGateway;
+        this.vectorGateway = vectorGateway;
         this.openSearchGateway = openSearchGateway;
+        this.requestHedger = requestHedger;
         this.properties = properties;
         this.meterRegistry = meterRegistry;
         this.retrievalLatency = Timer.builder("rag_retrieval_latency")
                 .description("Time spent retrieving documents from vector store")
                 .register(meterRegistry);
+        this.batchRetrievalLatency = Timer.builder("rag_retrieval_batch_latency")
+                .description("Time spent retrieving documents for a batch of queries")
+                .register(meterRegistry);
+        this.vectorBackend = properties.getVectorStore().name().toLowerCase(Locale.ROOT);
+        this.vectorLatency = Timer.builder("rag_retrieval_backend_latency")
+                .description("Time spent in a single retrieval backend call")
+                .tag("backend", vectorBackend)
+                .register(meterRegistry);
+        this.opensearchLatency = Timer.builder("rag_retrieval_backend_latency")
+                .description("Time spent in a single retrieval backend call")
+                .tag("backend", "opensearch")
+                .register(meterRegistry);
         this.fallbackCounter = Counter.builder("rag_retrieval_fallback_total")
                 .description("Number of retrievals that used fallback search")
                 .register(meterRegistry);
@@ -55,6 +77,74 @@ public class RetrieverService {
         return Mono.defer(() -> executeRetrieval(query, topK));
     }
 
+    /**
+     * Retrieves several queries with one round-trip per backend. The primary search is a single
+     * vector-store request (aliased Weaviate blocks) bounded by the usual timeout; queries it
+     * cannot answer fall back to one OpenSearch multi-search. Results are returned in query order.
+     */
+    public Mono<List<List<RetrievedDoc>>> retrieveBatch(List<Query> queries) {
+        if (queries.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<Integer> topKs = queries.stream()
+                .map(query -> query.topK() > 0 ? query.topK() : properties.getTopKDefault())
+                .toList();
+        return Mono.defer(() -> executeBatchRetrieval(queries, topKs));
+    }
+
+    private Mono<List<List<RetrievedDoc>>> executeBatchRetrieval(List<Query> queries, List<Integer> topKs) {
+        Span span = tracer.spanBuilder("rag.retrieve.batch")
+                .setAttribute("rag.request.batchSize", queries.size())
+                .startSpan();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        return timed(vectorGateway.searchBatch(queries, topKs), vectorLatency)
+                .timeout(Duration.ofMillis(properties.getTimeoutMs()))
+                .onErrorResume(throwable -> {
+                    boolean timeout = throwable instanceof TimeoutException;
+                    log.warn("Primary batch vector search failed (timeout={}): {}", timeout, throwable.getMessage());
+                    TracingUtils.recordFallback(span, timeout ? vectorBackend + "-timeout" : throwable.getClass().getSimpleName());
+                    return Mono.just(Collections.nCopies(queries.size(), null));
+                })
+                .map(results -> results.stream()
+                        .map(docs -> docs == null ? null : HybridFusion.tag(docs, HybridFusion.VECTOR))
+                        .toList())
+                .flatMap(results -> fillFallbacks(queries, topKs, results))
+                .doOnError(span::recordException)
+                .doFinally(signalType -> {
+                    sample.stop(batchRetrievalLatency);
+                    span.end();
+                });
+    }
+
+    private Mono<List<List<RetrievedDoc>>> fillFallbacks(
+            List<Query> queries,
+            List<Integer> topKs,
+            List<List<RetrievedDoc>> results) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(results);
+        }
+        fallbackCounter.increment(missing.size());
+        Mono<List<List<RetrievedDoc>>> fallbackResults = openSearchGateway.isEnabled()
+                ? timed(openSearchGateway.multiSearch(
+                        missing.stream().map(queries::get).toList(),
+                        missing.stream().map(topKs::get).toList()), opensearchLatency)
+                : Mono.just(Collections.nCopies(missing.size(), List.of()));
+        return fallbackResults.map(fallback -> {
+            List<List<RetrievedDoc>> merged = new ArrayList<>(results);
+            for (int i = 0; i < missing.size(); i++) {
+                merged.set(missing.get(i), HybridFusion.tag(fallback.get(i), HybridFusion.LEXICAL));
+            }
+            return merged;
+        });
+    }
+
     private Mono<List<RetrievedDoc>> executeRetrieval(Query query, int topK) {
         Span span = tracer.spanBuilder("rag.retrieve")
                 .setAttribute("rag.request.topK", topK)
@@ -65,9 +155,13 @@ public class RetrieverService {
                 .startSpan();
         Timer.Sample sample = Timer.start(meterRegistry);
 
-        return weaviateGateway.search(query, topK)
-                .timeout(Duration.ofMillis(properties.getTimeoutMs()))
-                .onErrorResume(throwable -> fallback(query, topK, span, throwable))
+        Mono<List<RetrievedDoc>> retrieval = properties.getMode() == RetrieverProperties.Mode.HYBRID
+                ? hybrid(query, topK, span)
+                : vectorSearch(query, topK)
+                        .timeout(Duration.ofMillis(properties.getTimeoutMs()))
+                        .map(results -> HybridFusion.tag(results, HybridFusion.VECTOR))
+                        .onErrorResume(throwable -> fallback(query, topK, span, throwable));
+        return retrieval
                 .doOnNext(docs -> TracingUtils.recordRetrievedDocs(span, docs))
                 .doOnError(span::recordException)
                 .doFinally(signalType -> {
@@ -80,11 +174,53 @@ public class RetrieverService {
         boolean timeout = throwable instanceof TimeoutException;
         log.warn("Primary vector search failed (timeout={}): {}", timeout, throwable.getMessage());
         fallbackCounter.increment();
-        TracingUtils.recordFallback(parentSpan, timeout ? "weaviate-timeout" : throwable.getClass().getSimpleName());
+        TracingUtils.recordFallback(parentSpan, timeout ? vectorBackend + "-timeout" : throwable.getClass().getSimpleName());
         if (!openSearchGateway.isEnabled()) {
             return Mono.just(List.of());
         }
-        return openSearchGateway.search(query, topK)
+        return timed(openSearchGateway.search(query, topK), opensearchLatency)
+                .map(docs -> HybridFusion.tag(docs, HybridFusion.LEXICAL))
                 .doOnNext(docs -> TracingUtils.recordRetrievedDocs(parentSpan, docs));
     }
+
+    /**
+     * Queries the vector store and OpenSearch in parallel, each bounded by its own timeout. A backend that
+     * fails or times out contributes nothing instead of delaying or failing the response.
+     */
+    private Mono<List<RetrievedDoc>> hybrid(Query query, int topK, Span span) {
+        Mono<List<RetrievedDoc>> vector = vectorSearch(query, topK)
+                .timeout(Duration.ofMillis(properties.getVectorTimeoutMs()))
+                .onErrorResume(throwable -> dropBackend(vectorBackend, span, throwable))
+                .defaultIfEmpty(List.of());
+        Mono<List<RetrievedDoc>> lexical = openSearchGateway.isEnabled()
+                ? timed(openSearchGateway.search(query, topK), opensearchLatency)
+                        .timeout(Duration.ofMillis(properties.getLexicalTimeoutMs()))
+                        .onErrorResume(throwable -> dropBackend("opensearch", span, throwable))
+                        .defaultIfEmpty(List.of())
+                : Mono.just(List.of());
+        return Mono.zip(vector, lexical)
+                .map(results -> properties.getFusion() == RetrieverProperties.Fusion.WEIGHTED
+                        ? HybridFusion.weighted(results.getT1(), results.getT2(), properties.getVectorWeight(), topK)
+                        : HybridFusion.reciprocalRank(results.getT1(), results.getT2(), properties.getRrfK(), topK));
+    }
+
+    private Mono<List<RetrievedDoc>> vectorSearch(Query query, int topK) {
+        return requestHedger.execute(
+                () -> timed(vectorGateway.search(query, topK), vectorLatency),
+                () -> timed(vectorGateway.hedgeSearch(query, topK), vectorLatency));
+    }
+
+    private Mono<List<RetrievedDoc>> dropBackend(String backend, Span span, Throwable throwable) {
+        boolean timeout = throwable instanceof TimeoutException;
+        log.warn("Hybrid retrieval dropped {} (timeout={}): {}", backend, timeout, throwable.getMessage());
+        TracingUtils.recordFallback(span, timeout ? backend + "-timeout" : backend + "-" + throwable.getClass().getSimpleName());
+        return Mono.just(List.of());
+    }
+
+    private <T> Mono<T> timed(Mono<T> call, Timer timer) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call.doFinally(signalType -> sample.stop(timer));
+        });
+    }
 }
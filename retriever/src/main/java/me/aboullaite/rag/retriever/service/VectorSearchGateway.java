@@ -0,0 +1,30 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.DocumentMetadata;
+import me.aboullaite.rag.common.dto.Query;
+import me.aboullaite.rag.common.dto.RetrievedDoc;
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/**
+ * The vector store behind {@link RetrieverService}, selected with {@code retriever.vector-store}.
+ * Scores are cosine similarities, so results from either store fuse the same way.
+ */
+public interface VectorSearchGateway {
+
+    Mono<List<RetrievedDoc>> search(Query query, int topK);
+
+    /** Same search on an independent path, for a duplicate of a slow {@link #search} call. */
+    default Mono<List<RetrievedDoc>> hedgeSearch(Query query, int topK) {
+        return search(query, topK);
+    }
+
+    /**
+     * Results in query order; an entry is {@code null} when the store could not answer that query
+     * alone, so callers can fall back for it.
+     */
+    Mono<List<List<RetrievedDoc>>> searchBatch(List<Query> queries, List<Integer> topKs);
+
+    /** One entry per docId with its chunk count, in any order; no chunk text or vectors. */
+    Mono<List<DocumentMetadata>> documents();
+}
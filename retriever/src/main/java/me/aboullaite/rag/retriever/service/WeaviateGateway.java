@@ -1,111 +1,167 @@
 package me.aboullaite.rag.retriever.service;
 
+import me.aboullaite.rag.common.dto.DocumentMetadata;
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
-import me.aboullaite.rag.common.embedding.DeterministicEmbedding;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import me.aboullaite.rag.common.embedding.EmbeddingService;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Component
-public class WeaviateGateway {
+@ConditionalOnProperty(prefix = "retriever", name = "vector-store", havingValue = "weaviate", matchIfMissing = true)
+public class WeaviateGateway implements VectorSearchGateway {
 
     private static final Logger log = LoggerFactory.getLogger(WeaviateGateway.class);
+    /** Groups returned by the catalog aggregation; Weaviate caps them, so the cap is explicit. */
+    private static final int MAX_DOCUMENTS = 100_000;
+    private static final String DOCUMENTS_QUERY = "{ Aggregate { Doc(groupBy: [\"docId\"], limit: " + MAX_DOCUMENTS + ") {"
+            + " groupedBy { value } meta { count }"
+            + " source { topOccurrences(limit: 1) { value } }"
+            + " section { topOccurrences(limit: 1) { value } } } } }";
 
     private final WebClient weaviateWebClient;
+    private final WebClient weaviateHedgeWebClient;
+    private final WeaviateQueryWriter queryWriter;
+    private final WeaviateResponseReader responseReader;
+    private final EmbeddingService embeddingService;
     private final ObjectMapper objectMapper;
 
-    public WeaviateGateway(@Qualifier("weaviateWebClient") WebClient weaviateWebClient, ObjectMapper objectMapper) {
+    public WeaviateGateway(
+            @Qualifier("weaviateWebClient") WebClient weaviateWebClient,
+            @Qualifier("weaviateHedgeWebClient") WebClient weaviateHedgeWebClient,
+            ObjectMapper objectMapper,
+            EmbeddingService embeddingService) {
         this.weaviateWebClient = weaviateWebClient;
+        this.weaviateHedgeWebClient = weaviateHedgeWebClient;
+        this.embeddingService = embeddingService;
         this.objectMapper = objectMapper;
+        this.queryWriter = new WeaviateQueryWriter(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+        this.responseReader = new WeaviateResponseReader(objectMapper.getFactory());
     }
 
+    @Override
     public Mono<List<RetrievedDoc>> search(Query query, int topK) {
-        return Mono.fromCallable(() -> buildPayload(query, topK))
-                .flatMap(payload -> weaviateWebClient.post()
-                        .uri("/v1/graphql")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(payload)
-                        .retrieve()
-                        .bodyToMono(JsonNode.class))
-                .map(this::toDocuments)
+        return search(weaviateWebClient, query, topK);
+    }
+
+    /** Same search over the hedge client, for a duplicate of a slow {@link #search} call. */
+    @Override
+    public Mono<List<RetrievedDoc>> hedgeSearch(Query query, int topK) {
+        return search(weaviateHedgeWebClient, query, topK);
+    }
+
+    private Mono<List<RetrievedDoc>> search(WebClient client, Query query, int topK) {
+        return Mono.fromFuture(() -> embeddingService.embedAsync(query.text()))
+                .flatMap(vector -> execute(client, List.of(new WeaviateQueryWriter.Get(vector, query.filters(), topK)), false))
+                .map(results -> results.getFirst() == null ? List.<RetrievedDoc>of() : results.getFirst())
                 .onErrorResume(ex -> {
                     log.warn("Weaviate query failed: {}", ex.getMessage());
                     return Mono.error(ex);
                 });
     }
 
-    private Map<String, Object> buildPayload(Query query, int topK) {
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("query", buildQuery(query, topK));
-        return payload;
+    /**
+     * Runs all queries in one GraphQL request using aliased {@code Get} blocks. Results are
+     * returned in query order; an entry is {@code null} when Weaviate returned no data for that
+     * alias (per-query error), so callers can fall back for that query alone.
+     */
+    @Override
+    public Mono<List<List<RetrievedDoc>>> searchBatch(List<Query> queries, List<Integer> topKs) {
+        return Mono.fromFuture(() -> {
+                    // Submitted together so a batching embedding service can embed them in one call.
+                    List<CompletableFuture<float[]>> vectors = queries.stream()
+                            .map(query -> embeddingService.embedAsync(query.text()))
+                            .toList();
+                    return CompletableFuture.allOf(vectors.toArray(CompletableFuture[]::new))
+                            .thenApply(done -> {
+                                List<WeaviateQueryWriter.Get> gets = new ArrayList<>(queries.size());
+                                for (int i = 0; i < queries.size(); i++) {
+                                    Query query = queries.get(i);
+                                    gets.add(new WeaviateQueryWriter.Get(vectors.get(i).join(), query.filters(), topKs.get(i)));
+                                }
+                                return gets;
+                            });
+                })
+                .flatMap(gets -> execute(weaviateWebClient, gets, true))
+                .onErrorResume(ex -> {
+                    log.warn("Weaviate batch query failed: {}", ex.getMessage());
+                    return Mono.error(ex);
+                });
     }
 
-    private String buildQuery(Query query, int topK) {
-        double[] vector = DeterministicEmbedding.embed(query.text());
-        String vectorJson;
-        try {
-            vectorJson = objectMapper.writeValueAsString(vector);
-        } catch (JsonProcessingException ex) {
-            throw new IllegalStateException("Unable to serialize embedding vector", ex);
-        }
-        StringBuilder builder = new StringBuilder();
-        builder.append("{ Get { Doc(limit: ").append(topK);
-        builder.append(", nearVector: { vector: ")
-                .append(vectorJson)
-                .append(" }");
-
-        if (query.filters() != null && !query.filters().isEmpty()) {
-            builder.append(", where: { operator: And operands: [");
-            String where = query.filters().entrySet().stream()
-                    .map(entry -> {
-                        try {
-                            return "{path:[\"" + entry.getKey() + "\"] operator:Equal valueText:"
-                                    + objectMapper.writeValueAsString(entry.getValue()) + "}";
-                        } catch (JsonProcessingException ex) {
-                            throw new IllegalStateException("Unable to serialize filter value", ex);
-                        }
-                    })
-                    .reduce((a, b) -> a + "," + b)
-                    .orElse("");
-            builder.append(where).append("] }");
-        }
+    /**
+     * Groups the chunks by docId server-side, so only one row per document crosses the wire. The
+     * aggregation has no chunk ids; the id reported is the first chunk's, derived as at ingest.
+     */
+    @Override
+    public Mono<List<DocumentMetadata>> documents() {
+        return weaviateWebClient.post()
+                .uri("/v1/graphql")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(objectMapper.createObjectNode().put("query", DOCUMENTS_QUERY))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(root -> {
+                    JsonNode groups = root.path("data").path("Aggregate").path("Doc");
+                    if (!groups.isArray()) {
+                        throw new IllegalStateException("Weaviate aggregation failed: " + root.path("errors"));
+                    }
+                    if (groups.size() >= MAX_DOCUMENTS) {
+                        log.warn("Document catalog truncated at {} documents", MAX_DOCUMENTS);
+                    }
+                    List<DocumentMetadata> documents = new ArrayList<>(groups.size());
+                    for (JsonNode group : groups) {
+                        String docId = group.path("groupedBy").path("value").asText();
+                        documents.add(new DocumentMetadata(
+                                DocumentChunker.chunkId(docId, 0),
+                                docId,
+                                group.path("source").path("topOccurrences").path(0).path("value").asText(""),
+                                group.path("section").path("topOccurrences").path(0).path("value").asText(""),
+                                group.path("meta").path("count").asInt()));
+                    }
+                    return documents;
+                });
+    }
 
-        builder.append(") { docId chunk source section _additional { id distance } } } }");
-        return builder.toString();
+    private Mono<List<List<RetrievedDoc>>> execute(
+            WebClient client,
+            List<WeaviateQueryWriter.Get> gets,
+            boolean aliased) {
+        return client.post()
+                .uri("/v1/graphql")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromDataBuffers(Mono.fromCallable(() -> queryWriter.write(gets, aliased))))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(DataBufferUtils::join)
+                .map(buffer -> read(buffer, gets.size()));
     }
 
-    private List<RetrievedDoc> toDocuments(JsonNode root) {
-        JsonNode dataNode = root.path("data").path("Get").path("Doc");
-        if (!(dataNode instanceof ArrayNode arrayNode)) {
-            return List.of();
-        }
-        List<RetrievedDoc> docs = new ArrayList<>();
-        for (JsonNode node : arrayNode) {
-            String id = node.path("_additional").path("id").asText(node.path("docId").asText());
-            String chunk = node.path("chunk").asText("");
-            double score = 1.0 - node.path("_additional").path("distance").asDouble(1.0);
-            Map<String, String> meta = new HashMap<>();
-            meta.put("source", node.path("source").asText(""));
-            meta.put("section", node.path("section").asText(""));
-            meta.entrySet().removeIf(entry -> !StringUtils.hasText(entry.getValue()));
-            docs.add(new RetrievedDoc(id, chunk, score, meta));
+    private List<List<RetrievedDoc>> read(DataBuffer buffer, int count) {
+        try (InputStream body = buffer.asInputStream(true)) {
+            return responseReader.read(body, count);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to parse Weaviate response", ex);
         }
-        return docs;
     }
 }
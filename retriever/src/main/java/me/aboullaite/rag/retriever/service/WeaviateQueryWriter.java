@@ -0,0 +1,213 @@
+package me.aboullaite.rag.retriever.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Writes Weaviate GraphQL {@code Get} requests as the JSON body {@code {"query":"..."}} directly
+ * into a {@link DataBuffer}, without building the query or the vector as intermediate Strings.
+ * Strings are escaped twice: once as GraphQL string literals and once for the enclosing JSON string.
+ * Vector components are written with nine fractional digits (absolute error below 5e-10).
+ */
+public class WeaviateQueryWriter {
+
+    private static final byte[] PAYLOAD_START = ascii("{\"query\":\"{ Get { ");
+    private static final byte[] PAYLOAD_END = ascii("} }\"}");
+    private static final byte[] DOC_LIMIT = ascii("Doc(limit: ");
+    private static final byte[] NEAR_VECTOR = ascii(", nearVector: { vector: [");
+    private static final byte[] NEAR_VECTOR_END = ascii("] }");
+    private static final byte[] WHERE = ascii(", where: { operator: And operands: [");
+    private static final byte[] OPERAND_PATH = ascii("{path:[");
+    private static final byte[] OPERAND_VALUE = ascii("] operator:Equal valueText:");
+    private static final byte[] WHERE_END = ascii("] }");
+    private static final byte[] SELECTION = ascii(") { docId chunk source section _additional { id distance } } ");
+    // A GraphQL escape (\" or \\) inside the JSON string needs each backslash and quote escaped again.
+    private static final byte[] ESCAPED_QUOTE = ascii("\\\"");
+    private static final byte[] ESCAPED_GRAPHQL_QUOTE = ascii("\\\\\\\"");
+    private static final byte[] ESCAPED_GRAPHQL_BACKSLASH = ascii("\\\\\\\\");
+    private static final byte[] ESCAPED_GRAPHQL_UNICODE = ascii("\\\\u00");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final long FRACTION_SCALE = 1_000_000_000L;
+    private static final double MAX_FIXED = 1e9;
+    // Longest formatted number: Double.toString fallback (at most 24 chars) or a 20-char long.
+    private static final int SCRATCH_SIZE = 32;
+
+    private final DataBufferFactory bufferFactory;
+
+    public WeaviateQueryWriter(DataBufferFactory bufferFactory) {
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * Writes one request containing every {@code get}. When {@code aliased} each block is prefixed
+     * with {@code q<index>:} so the response can be matched back to its position.
+     */
+    public DataBuffer write(List<Get> gets, boolean aliased) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(estimateSize(gets));
+        byte[] scratch = new byte[SCRATCH_SIZE];
+        try {
+            buffer.write(PAYLOAD_START);
+            for (int i = 0; i < gets.size(); i++) {
+                if (aliased) {
+                    buffer.write((byte) 'q');
+                    writeLong(buffer, i, scratch);
+                    buffer.write((byte) ':').write((byte) ' ');
+                }
+                writeGet(buffer, gets.get(i), scratch);
+            }
+            buffer.write(PAYLOAD_END);
+            return buffer;
+        } catch (RuntimeException ex) {
+            DataBufferUtils.release(buffer);
+            throw ex;
+        }
+    }
+
+    private void writeGet(DataBuffer buffer, Get get, byte[] scratch) {
+        buffer.write(DOC_LIMIT);
+        writeLong(buffer, get.limit(), scratch);
+        buffer.write(NEAR_VECTOR);
+        float[] vector = get.vector();
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                buffer.write((byte) ',');
+            }
+            writeDouble(buffer, vector[i], scratch);
+        }
+        buffer.write(NEAR_VECTOR_END);
+
+        Map<String, String> filters = get.filters();
+        if (filters != null && !filters.isEmpty()) {
+            buffer.write(WHERE);
+            boolean first = true;
+            for (Map.Entry<String, String> entry : filters.entrySet()) {
+                if (!first) {
+                    buffer.write((byte) ',');
+                }
+                first = false;
+                buffer.write(OPERAND_PATH);
+                writeString(buffer, entry.getKey());
+                buffer.write(OPERAND_VALUE);
+                writeString(buffer, entry.getValue());
+                buffer.write((byte) '}');
+            }
+            buffer.write(WHERE_END);
+        }
+        buffer.write(SELECTION);
+    }
+
+    private static void writeDouble(DataBuffer buffer, double value, byte[] scratch) {
+        buffer.write(scratch, 0, formatDouble(value, scratch));
+    }
+
+    private static void writeLong(DataBuffer buffer, long value, byte[] scratch) {
+        buffer.write(scratch, 0, formatLong(value, scratch, 0));
+    }
+
+    /** Formats {@code value} into {@code out} and returns the number of bytes written. */
+    private static int formatDouble(double value, byte[] out) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Vector component must be finite: " + value);
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude >= MAX_FIXED) {
+            byte[] fallback = ascii(Double.toString(value));
+            System.arraycopy(fallback, 0, out, 0, fallback.length);
+            return fallback.length;
+        }
+        long scaled = Math.round(magnitude * FRACTION_SCALE);
+        int position = 0;
+        if (value < 0 && scaled != 0) {
+            out[position++] = '-';
+        }
+        position = formatLong(scaled / FRACTION_SCALE, out, position);
+        out[position++] = '.';
+        long fraction = scaled % FRACTION_SCALE;
+        if (fraction == 0) {
+            out[position++] = '0';
+            return position;
+        }
+        int digits = 9;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            out[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return position + digits;
+    }
+
+    private static int formatLong(long value, byte[] out, int position) {
+        if (value < 0) {
+            out[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long bound = 10; bound <= value && digits < 19; bound *= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    /** Writes {@code value} as a GraphQL string literal embedded in a JSON string, UTF-8 encoded. */
+    private static void writeString(DataBuffer buffer, String value) {
+        buffer.write(ESCAPED_QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.write(ESCAPED_GRAPHQL_QUOTE);
+            } else if (c == '\\') {
+                buffer.write(ESCAPED_GRAPHQL_BACKSLASH);
+            } else if (c < 0x20) {
+                buffer.write(ESCAPED_GRAPHQL_UNICODE);
+                buffer.write(HEX[c >> 4]).write(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                buffer.write((byte) c);
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6))).write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.write((byte) (0xF0 | (codePoint >> 18)))
+                        .write((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .write((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .write((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.write((byte) '?');
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)))
+                        .write((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.write(ESCAPED_QUOTE);
+    }
+
+    private static int estimateSize(List<Get> gets) {
+        int size = PAYLOAD_START.length + PAYLOAD_END.length;
+        for (Get get : gets) {
+            size += 128 + get.vector().length * 13;
+            if (get.filters() != null) {
+                size += get.filters().size() * 64;
+            }
+        }
+        return size;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public record Get(float[] vector, Map<String, String> filters, int limit) {
+    }
+}
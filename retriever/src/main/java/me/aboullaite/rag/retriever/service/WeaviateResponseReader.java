@@ -0,0 +1,153 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.RetrievedDoc;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.StringUtils;
+
+/**
+ * Streams a Weaviate GraphQL {@code Get} response into {@link RetrievedDoc}s without building a
+ * JSON tree. {@code data.Get.Doc} maps to position 0 and {@code data.Get.q<index>} to its alias
+ * position; positions with no array in the response are {@code null}.
+ */
+public class WeaviateResponseReader {
+
+    private final JsonFactory jsonFactory;
+
+    public WeaviateResponseReader(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public List<List<RetrievedDoc>> read(InputStream body, int count) throws IOException {
+        List<List<RetrievedDoc>> results = new ArrayList<>(Collections.nCopies(count, null));
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return results;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(name) && value == JsonToken.START_OBJECT) {
+                    readData(parser, results);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    private void readData(JsonParser parser, List<List<RetrievedDoc>> results) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("Get".equals(name) && value == JsonToken.START_OBJECT) {
+                readGet(parser, results);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readGet(JsonParser parser, List<List<RetrievedDoc>> results) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int position = position(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && position >= 0 && position < results.size()) {
+                results.set(position, readDocs(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private List<RetrievedDoc> readDocs(JsonParser parser) throws IOException {
+        List<RetrievedDoc> docs = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                docs.add(readDoc(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return docs;
+    }
+
+    private RetrievedDoc readDoc(JsonParser parser) throws IOException {
+        String docId = null;
+        String id = null;
+        String chunk = "";
+        String source = null;
+        String section = null;
+        double distance = 1.0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                if ("_additional".equals(name) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String additional = parser.currentName();
+                        JsonToken additionalValue = parser.nextToken();
+                        if ("id".equals(additional) && additionalValue.isScalarValue()) {
+                            id = parser.getValueAsString();
+                        } else if ("distance".equals(additional) && additionalValue.isScalarValue()) {
+                            distance = parser.getValueAsDouble(1.0);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                continue;
+            }
+            switch (name) {
+                case "docId" -> docId = parser.getValueAsString();
+                case "chunk" -> chunk = parser.getValueAsString("");
+                case "source" -> source = parser.getValueAsString();
+                case "section" -> section = parser.getValueAsString();
+                default -> {
+                }
+            }
+        }
+        Map<String, String> meta = Map.of();
+        if (StringUtils.hasText(source) || StringUtils.hasText(section)) {
+            meta = new HashMap<>(4);
+            if (StringUtils.hasText(source)) {
+                meta.put("source", source);
+            }
+            if (StringUtils.hasText(section)) {
+                meta.put("section", section);
+            }
+        }
+        String resolvedId = id != null ? id : docId != null ? docId : "";
+        return new RetrievedDoc(resolvedId, chunk, 1.0 - distance, meta);
+    }
+
+    private static int position(String field) {
+        if ("Doc".equals(field)) {
+            return 0;
+        }
+        if (field.length() < 2 || field.charAt(0) != 'q') {
+            return -1;
+        }
+        int position = 0;
+        for (int i = 1; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c < '0' || c > '9' || position > 100_000) {
+                return -1;
+            }
+            position = position * 10 + (c - '0');
+        }
+        return position;
+    }
+}
@@ -1,16 +1,24 @@
 package me.aboullaite.rag.retriever.web;
 
+import me.aboullaite.rag.common.dto.DocumentPage;
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import me.aboullaite.rag.retriever.service.DocumentCatalog;
 import me.aboullaite.rag.retriever.service.RetrieverService;
 import jakarta.validation.Valid;
 import java.util.List;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -19,13 +27,40 @@ import reactor.core.publisher.Mono;
 public class RetrieveController {
 
     private final RetrieverService retrieverService;
+    private final DocumentCatalog documentCatalog;
+    private final RetrieverProperties properties;
 
-    public RetrieveController(RetrieverService retrieverService) {
+    public RetrieveController(RetrieverService retrieverService, DocumentCatalog documentCatalog,
+            RetrieverProperties properties) {
         this.retrieverService = retrieverService;
+        this.documentCatalog = documentCatalog;
+        this.properties = properties;
     }
 
     @PostMapping(path = "/retrieve", consumes = MediaType.APPLICATION_JSON_VALUE)
     public Mono<List<RetrievedDoc>> retrieve(@Valid @RequestBody Mono<Query> queryMono) {
         return queryMono.flatMap(retrieverService::retrieve);
     }
+
+    @PostMapping(path = "/retrieve/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<List<RetrievedDoc>>> retrieveBatch(@Valid @RequestBody Mono<List<Query>> queriesMono) {
+        return queriesMono
+                .filter(queries -> queries.size() <= properties.getMaxBatchSize())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Batch size exceeds " + properties.getMaxBatchSize() + " queries")))
+                .flatMap(retrieverService::retrieveBatch);
+    }
+
+    /** A 304 is sent by WebFlux itself when If-None-Match carries the catalog's current ETag. */
+    @GetMapping("/documents")
+    public Mono<ResponseEntity<DocumentPage>> documents(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > properties.getCatalogMaxPageSize()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + properties.getCatalogMaxPageSize()));
+        }
+        return documentCatalog.page(cursor, limit)
+                .map(page -> ResponseEntity.ok().eTag(page.etag()).body(page.page()));
+    }
 }
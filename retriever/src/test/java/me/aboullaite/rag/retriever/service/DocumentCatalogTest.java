@@ -0,0 +1,59 @@
+package me.aboullaite.rag.retriever.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import me.aboullaite.rag.common.dto.DocumentMetadata;
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class DocumentCatalogTest {
+
+    private final VectorSearchGateway gateway = mock(VectorSearchGateway.class);
+
+    @Test
+    void pagesInDocIdOrderAfterTheCursor() {
+        when(gateway.documents()).thenReturn(Mono.just(List.of(document("c"), document("a"), document("b"))));
+        DocumentCatalog catalog = new DocumentCatalog(gateway, new RetrieverProperties());
+
+        DocumentCatalog.Page first = catalog.page(null, 2).block();
+        DocumentCatalog.Page second = catalog.page(first.page().nextCursor(), 2).block();
+
+        assertThat(first.page().documents()).extracting(DocumentMetadata::docId).containsExactly("a", "b");
+        assertThat(first.page().nextCursor()).isEqualTo("b");
+        assertThat(second.page().documents()).extracting(DocumentMetadata::docId).containsExactly("c");
+        assertThat(second.page().nextCursor()).isNull();
+        assertThat(second.etag()).isEqualTo(first.etag());
+        // A cursor between docIds, e.g. one whose document was deleted since, resumes after it.
+        assertThat(catalog.page("aa", 5).block().page().documents()).extracting(DocumentMetadata::docId)
+                .containsExactly("b", "c");
+        verify(gateway, times(1)).documents();
+    }
+
+    @Test
+    void theEtagChangesWithTheCatalogAndFailuresAreNotCached() {
+        RetrieverProperties properties = new RetrieverProperties();
+        properties.setCatalogTtlMs(0);
+        when(gateway.documents())
+                .thenReturn(Mono.just(List.of(document("a"))))
+                .thenReturn(Mono.error(new IllegalStateException("weaviate down")))
+                .thenReturn(Mono.just(List.of(document("a"), document("b"))));
+        DocumentCatalog catalog = new DocumentCatalog(gateway, properties);
+
+        String before = catalog.page(null, 10).block().etag();
+        StepVerifier.create(catalog.page(null, 10)).expectError(IllegalStateException.class).verify();
+        String after = catalog.page(null, 10).block().etag();
+
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    private static DocumentMetadata document(String docId) {
+        return new DocumentMetadata("id-" + docId, docId, docId + ".md", docId, 1);
+    }
+}
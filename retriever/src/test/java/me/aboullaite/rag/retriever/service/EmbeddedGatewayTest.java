@@ -0,0 +1,52 @@
+package me.aboullaite.rag.retriever.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import me.aboullaite.rag.common.dto.Query;
+import me.aboullaite.rag.common.embedding.DeterministicEmbeddingService;
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+class EmbeddedGatewayTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void buildsTheIndexFromDocumentsAndSearchesItInProcess() throws IOException {
+        Path docs = Files.createDirectories(dir.resolve("docs"));
+        Files.writeString(docs.resolve("deploy.md"), "# Deploy\n\nRoll out with kubectl apply.");
+        Files.writeString(docs.resolve("scale.md"), "# Scale\n\nThe HPA scales on request concurrency.");
+        RetrieverProperties properties = new RetrieverProperties();
+        properties.setEmbeddedIndexPath(dir.resolve("index/embedded.bin").toString());
+        properties.setEmbeddedDocsPath(docs.toString());
+
+        EmbeddedGateway gateway = new EmbeddedGateway(properties, new DeterministicEmbeddingService());
+
+        assertThat(dir.resolve("index/embedded.bin")).exists();
+        // The deterministic provider embeds identical text identically, so the chunk itself is the nearest.
+        StepVerifier.create(gateway.search(new Query("# Scale\n\nThe HPA scales on request concurrency.", Map.of(), 1), 1))
+                .assertNext(docsFound -> {
+                    assertThat(docsFound).hasSize(1);
+                    assertThat(docsFound.getFirst().chunk()).contains("HPA");
+                    assertThat(docsFound.getFirst().score()).isGreaterThan(0.99);
+                    assertThat(docsFound.getFirst().meta()).containsEntry("docId", "scale").containsEntry("source", "scale.md");
+                })
+                .verifyComplete();
+        StepVerifier.create(gateway.searchBatch(
+                        List.of(new Query("anything", Map.of("source", "deploy.md"), 5), new Query("anything", Map.of("source", "none.md"), 5)),
+                        List.of(5, 5)))
+                .assertNext(results -> {
+                    assertThat(results.get(0)).extracting(doc -> doc.meta().get("docId")).containsExactly("deploy");
+                    assertThat(results.get(1)).isEmpty();
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,106 @@
+package me.aboullaite.rag.retriever.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import me.aboullaite.rag.retriever.config.RetrieverProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class RequestHedgerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        RetrieverProperties properties = new RetrieverProperties();
+        properties.setHedgeEnabled(true);
+        properties.setHedgeMinDelayMs(20);
+        properties.setHedgeBudgetPercent(5);
+        meterRegistry = new SimpleMeterRegistry();
+        hedger = new RequestHedger(properties, meterRegistry);
+    }
+
+    @Test
+    void hedgeAnswersWhenPrimaryIsSlow() {
+        Mono<String> slow = Mono.just("primary").delayElement(Duration.ofSeconds(2));
+
+        StepVerifier.create(hedger.execute(() -> slow, () -> Mono.just("hedge")))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_fired_total").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_won_total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void fastPrimaryNeverHedges() {
+        AtomicInteger hedges = new AtomicInteger();
+
+        StepVerifier.create(hedger.execute(() -> Mono.just("primary"), () -> {
+                    hedges.incrementAndGet();
+                    return Mono.just("hedge");
+                }))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertThat(hedges).hasValue(0);
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_fired_total").count()).isZero();
+    }
+
+    @Test
+    void budgetCapsHedgesToConfiguredShareOfRequests() {
+        AtomicInteger hedges = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(hedger.execute(
+                            () -> Mono.just("primary").delayElement(Duration.ofMillis(60)),
+                            () -> {
+                                hedges.incrementAndGet();
+                                return Mono.just("primary").delayElement(Duration.ofSeconds(1));
+                            }))
+                    .expectNext("primary")
+                    .verifyComplete();
+        }
+
+        // One token to start with, then 5% of ten requests is not enough for a second hedge.
+        assertThat(hedges).hasValue(1);
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_won_total").count()).isZero();
+    }
+
+    @Test
+    void aFastPrimaryFailureIsReturnedAtOnceWithoutHedging() {
+        AtomicInteger hedges = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("weaviate down");
+
+        StepVerifier.create(hedger.execute(() -> Mono.<String>error(failure), () -> {
+                    hedges.incrementAndGet();
+                    return Mono.just("hedge");
+                }))
+                .expectErrorSatisfies(error -> assertThat(error).isSameAs(failure))
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(hedges).hasValue(0);
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_fired_total").count()).isZero();
+    }
+
+    @Test
+    void aHedgeOutlivingAFailedPrimaryAnswersButIsNotCountedAsWon() {
+        Mono<String> slowFailure = Mono.<String>error(new IllegalStateException("weaviate down"))
+                .delaySubscription(Duration.ofMillis(60));
+
+        StepVerifier.create(hedger.execute(() -> slowFailure,
+                        () -> Mono.just("hedge").delayElement(Duration.ofMillis(100))))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_fired_total").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("rag_retrieval_hedges_won_total").count()).isZero();
+    }
+}
@@ -3,12 +3,16 @@ package me.aboullaite.rag.retriever.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import me.aboullaite.rag.common.dto.Query;
 import me.aboullaite.rag.common.dto.RetrievedDoc;
 import me.aboullaite.rag.retriever.config.RetrieverProperties;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -37,6 +41,20 @@ class RetrieverServiceTest {
         retrieverService = new RetrieverService(
                 weaviateGateway,
                 openSearchGateway,
+                new RequestHedger(properties, new SimpleMeterRegistry()),
+                properties,
+                new SimpleMeterRegistry());
+    }
+
+    private void useHybridMode() {
+        RetrieverProperties properties = new RetrieverProperties();
+        properties.setMode(RetrieverProperties.Mode.HYBRID);
+        properties.setVectorTimeoutMs(100);
+        properties.setLexicalTimeoutMs(100);
+        retrieverService = new RetrieverService(
+                weaviateGateway,
+                openSearchGateway,
+                new RequestHedger(properties, new SimpleMeterRegistry()),
                 properties,
                 new SimpleMeterRegistry());
     }
@@ -64,4 +82,62 @@ class RetrieverServiceTest {
                 .expectNextMatches(result -> result.size() == 1 && result.getFirst().id().equals("lex-1"))
                 .verifyComplete();
     }
+
+    @Test
+    void hybridFusesBothBackendsAndDeduplicates() {
+        useHybridMode();
+        when(weaviateGateway.search(any(Query.class), anyInt())).thenReturn(Mono.just(List.of(
+                new RetrievedDoc("shared", "chunk", 0.9, Map.of()),
+                new RetrievedDoc("vec-only", "chunk", 0.8, Map.of()))));
+        when(openSearchGateway.isEnabled()).thenReturn(true);
+        when(openSearchGateway.search(any(Query.class), anyInt())).thenReturn(Mono.just(List.of(
+                new RetrievedDoc("lex-only", "chunk", 12.0, Map.of()),
+                new RetrievedDoc("shared", "chunk", 7.5, Map.of()))));
+
+        StepVerifier.create(retrieverService.retrieve(new Query("hello", Map.of(), 3)))
+                .assertNext(result -> {
+                    assertThat(result).extracting(RetrievedDoc::id).containsExactly("shared", "lex-only", "vec-only");
+                    assertThat(result.getFirst().meta()).containsEntry(RetrievedDoc.RETRIEVAL_META_KEY, "vector,lexical");
+                    assertThat(result.get(1).meta()).containsEntry(RetrievedDoc.RETRIEVAL_META_KEY, "lexical");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void hybridDropsBackendThatExceedsItsTimeout() {
+        useHybridMode();
+        when(weaviateGateway.search(any(Query.class), anyInt())).thenReturn(Mono.just(
+                        List.of(new RetrievedDoc("doc-1", "chunk", 0.9, Map.of())))
+                .delayElement(Duration.ofSeconds(5)));
+        when(openSearchGateway.isEnabled()).thenReturn(true);
+        when(openSearchGateway.search(any(Query.class), anyInt()))
+                .thenReturn(Mono.just(List.of(new RetrievedDoc("lex-1", "chunk", 3.0, Map.of()))));
+
+        StepVerifier.create(retrieverService.retrieve(new Query("hello", Map.of(), 3)))
+                .assertNext(result -> assertThat(result).extracting(RetrievedDoc::id).containsExactly("lex-1"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void batchFallsBackOnlyForQueriesWeaviateCouldNotAnswer() {
+        List<RetrievedDoc> vectorDocs = List.of(new RetrievedDoc("doc-1", "chunk", 0.9, Map.of()));
+        List<RetrievedDoc> lexicalDocs = List.of(new RetrievedDoc("lex-2", "chunk", 0.5, Map.of()));
+        when(weaviateGateway.searchBatch(anyList(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(vectorDocs, null)));
+        when(openSearchGateway.isEnabled()).thenReturn(true);
+        when(openSearchGateway.multiSearch(anyList(), anyList())).thenReturn(Mono.just(List.of(lexicalDocs)));
+
+        StepVerifier.create(retrieverService.retrieveBatch(List.of(
+                        new Query("first", Map.of(), 3),
+                        new Query("second", Map.of(), 3))))
+                .assertNext(results -> {
+                    assertThat(results).hasSize(2);
+                    assertThat(results.get(0)).extracting(RetrievedDoc::id).containsExactly("doc-1");
+                    assertThat(results.get(1)).extracting(RetrievedDoc::id).containsExactly("lex-2");
+                })
+                .verifyComplete();
+
+        verify(openSearchGateway).multiSearch(List.of(new Query("second", Map.of(), 3)), List.of(3));
+    }
 }
@@ -3,7 +3,10 @@ package me.aboullaite.rag.retriever.service;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import me.aboullaite.rag.common.dto.DocumentMetadata;
 import me.aboullaite.rag.common.dto.Query;
+import me.aboullaite.rag.common.embedding.DeterministicEmbeddingService;
+import me.aboullaite.rag.common.ingest.DocumentChunker;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,7 +32,7 @@ class WeaviateGatewayTest {
         WebClient client = WebClient.builder()
                 .baseUrl(server.url("/").toString())
                 .build();
-        gateway = new WeaviateGateway(client, mapper);
+        gateway = new WeaviateGateway(client, client, mapper, new DeterministicEmbeddingService());
     }
 
     @AfterEach
@@ -73,4 +76,50 @@ class WeaviateGatewayTest {
         assertThat(requestBody).contains("nearVector");
         assertThat(requestBody).contains("Doc(limit: 3");
     }
+
+    @Test
+    void batchesQueriesIntoAliasedGetBlocks() throws InterruptedException {
+        String responseBody = "{\"data\": {\"Get\": {"
+                + "\"q0\": [{\"docId\": \"doc-1\", \"chunk\": \"first\", \"_additional\": {\"id\": \"c-1\", \"distance\": 0.2}}],"
+                + "\"q1\": null"
+                + "}}, \"errors\": [{\"message\": \"shard unavailable\"}]}";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(responseBody));
+
+        List<Query> queries = List.of(
+                new Query("first", Map.of(), 2),
+                new Query("second", Map.of("section", "ops"), 4));
+
+        StepVerifier.create(gateway.searchBatch(queries, List.of(2, 4)))
+                .assertNext(results -> {
+                    assertThat(results).hasSize(2);
+                    assertThat(results.get(0)).extracting(doc -> doc.id()).containsExactly("c-1");
+                    assertThat(results.get(1)).isNull();
+                })
+                .verifyComplete();
+
+        String requestBody = server.takeRequest().getBody().readUtf8();
+        assertThat(requestBody).contains("q0: Doc(limit: 2").contains("q1: Doc(limit: 4");
+    }
+
+    @Test
+    void listsDocumentsFromAGroupedAggregate() throws InterruptedException {
+        String responseBody = "{\"data\": {\"Aggregate\": {\"Doc\": ["
+                + "{\"groupedBy\": {\"value\": \"deploy\"}, \"meta\": {\"count\": 3},"
+                + " \"source\": {\"topOccurrences\": [{\"value\": \"deploy.md\"}]},"
+                + " \"section\": {\"topOccurrences\": [{\"value\": \"# Deploy\"}]}}"
+                + "]}}}";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(responseBody));
+
+        StepVerifier.create(gateway.documents())
+                .assertNext(documents -> assertThat(documents).containsExactly(
+                        new DocumentMetadata(DocumentChunker.chunkId("deploy", 0), "deploy", "deploy.md", "# Deploy", 3)))
+                .verifyComplete();
+
+        String requestBody = server.takeRequest().getBody().readUtf8();
+        assertThat(requestBody).contains("Aggregate").contains("groupBy: [\\\"docId\\\"]");
+    }
 }
@@ -0,0 +1,139 @@
+package me.aboullaite.rag.retriever.service;
+
+import me.aboullaite.rag.common.dto.RetrievedDoc;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Building the Weaviate request and parsing its response. The {@code legacy*} methods are the
+ * previous String/HashMap/JsonNode implementation; run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeaviateQueryBenchmark {
+
+    @Param({"8", "768"})
+    private int dimensions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WeaviateQueryWriter writer =
+            new WeaviateQueryWriter(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+    private final WeaviateResponseReader reader = new WeaviateResponseReader(objectMapper.getFactory());
+    private float[] vector;
+    private Map<String, String> filters;
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextDouble(-1, 1);
+        }
+        filters = Map.of("section", "operations", "source", "runbook");
+        StringBuilder body = new StringBuilder("{\"data\":{\"Get\":{\"Doc\":[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"docId\":\"doc-").append(i)
+                    .append("\",\"chunk\":\"Chunk text for document ").append(i)
+                    .append(" describing how the platform behaves under load.\",\"source\":\"runbook\",")
+                    .append("\"section\":\"operations\",\"_additional\":{\"id\":\"7f1c2a9e-0000-4000-8000-00000000000")
+                    .append(i).append("\",\"distance\":0.").append(100 + i).append("}}");
+        }
+        response = body.append("]}}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int writerBuild() {
+        DataBuffer buffer = writer.write(List.of(new WeaviateQueryWriter.Get(vector, filters, 5)), false);
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+
+    @Benchmark
+    public int legacyBuild() throws JsonProcessingException {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("query", legacyQuery());
+        return objectMapper.writeValueAsBytes(payload).length;
+    }
+
+    @Benchmark
+    public List<List<RetrievedDoc>> readerParse() throws IOException {
+        return reader.read(new ByteArrayInputStream(response), 1);
+    }
+
+    @Benchmark
+    public List<RetrievedDoc> legacyParse() throws IOException {
+        JsonNode dataNode = objectMapper.readTree(response).path("data").path("Get").path("Doc");
+        List<RetrievedDoc> docs = new ArrayList<>();
+        for (JsonNode node : (ArrayNode) dataNode) {
+            String id = node.path("_additional").path("id").asText(node.path("docId").asText());
+            String chunk = node.path("chunk").asText("");
+            double score = 1.0 - node.path("_additional").path("distance").asDouble(1.0);
+            Map<String, String> meta = new HashMap<>();
+            meta.put("source", node.path("source").asText(""));
+            meta.put("section", node.path("section").asText(""));
+            meta.entrySet().removeIf(entry -> !StringUtils.hasText(entry.getValue()));
+            docs.add(new RetrievedDoc(id, chunk, score, meta));
+        }
+        return docs;
+    }
+
+    private String legacyQuery() throws JsonProcessingException {
+        StringBuilder builder = new StringBuilder("{ Get { ");
+        builder.append("Doc(limit: ").append(5);
+        builder.append(", nearVector: { vector: ")
+                .append(objectMapper.writeValueAsString(vector))
+                .append(" }");
+        builder.append(", where: { operator: And operands: [");
+        String where = filters.entrySet().stream()
+                .map(entry -> {
+                    try {
+                        return "{path:[\"" + entry.getKey() + "\"] operator:Equal valueText:"
+                                + objectMapper.writeValueAsString(entry.getValue()) + "}";
+                    } catch (JsonProcessingException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                })
+                .reduce((a, b) -> a + "," + b)
+                .orElse("");
+        builder.append(where).append("] }");
+        builder.append(") { docId chunk source section _additional { id distance } }");
+        return builder.append(" } }").toString();
+    }
+}
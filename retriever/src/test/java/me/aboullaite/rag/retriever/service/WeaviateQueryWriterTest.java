@@ -0,0 +1,70 @@
+package me.aboullaite.rag.retriever.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+class WeaviateQueryWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final WeaviateQueryWriter writer = new WeaviateQueryWriter(DefaultDataBufferFactory.sharedInstance);
+
+    @Test
+    void writesVectorComponentsWithinPrecision() throws Exception {
+        float[] vector = {0.12345679f, -0.5f, 1.0f, -0.0f, 3.0e-12f, -987654.25f, 2.5e12f};
+
+        String query = query(writer.write(List.of(new WeaviateQueryWriter.Get(vector, Map.of(), 3)), false));
+
+        assertThat(query).startsWith("{ Get { Doc(limit: 3, nearVector: { vector: [");
+        String vectorJson = query.substring(query.indexOf('['), query.indexOf(']') + 1);
+        double[] parsed = mapper.readValue(vectorJson, double[].class);
+        assertThat(parsed).hasSameSizeAs(vector);
+        for (int i = 0; i < vector.length; i++) {
+            assertThat(parsed[i]).isCloseTo(vector[i], within(Math.max(5e-10, Math.abs((double) vector[i]) * 1e-15)));
+        }
+    }
+
+    @Test
+    void escapesFilterKeysAndValuesForGraphQlAndJson() throws Exception {
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("sec\"tion\\", "ops\nrunbook");
+        filters.put("source", "café 🚀");
+
+        DataBuffer buffer = writer.write(List.of(
+                new WeaviateQueryWriter.Get(new float[] {0.5f}, filters, 2),
+                new WeaviateQueryWriter.Get(new float[] {0.25f}, Map.of(), 4)), true);
+
+        assertThat(query(buffer))
+                .contains("q0: Doc(limit: 2")
+                .contains("q1: Doc(limit: 4")
+                .contains("{path:[\"sec\\\"tion\\\\\"] operator:Equal valueText:\"ops\\u000arunbook\"}")
+                .contains("{path:[\"source\"] operator:Equal valueText:\"café 🚀\"}")
+                .endsWith("} }");
+    }
+
+    @Test
+    void rejectsNonFiniteComponents() {
+        WeaviateQueryWriter.Get get = new WeaviateQueryWriter.Get(new float[] {Float.NaN}, Map.of(), 1);
+
+        assertThatThrownBy(() -> writer.write(List.of(get), false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String query(DataBuffer buffer) throws Exception {
+        String payload = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        JsonNode root = mapper.readTree(payload);
+        return root.path("query").asText();
+    }
+}
@@ -0,0 +1,69 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+// Compares N single /v1/retrieve calls against one /v1/retrieve/batch call carrying the same N queries.
+// Compare queries_retrieved rate and the *_round_ms trends per scenario in the summary.
+const RETRIEVER_URL = __ENV.RETRIEVER_URL || 'http://localhost:8081';
+const BATCH_SIZE = parseInt(__ENV.BATCH_SIZE || '16', 10);
+const VUS = parseInt(__ENV.VUS || '10', 10);
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+  scenarios: {
+    singles: {
+      executor: 'constant-vus',
+      vus: VUS,
+      duration: DURATION,
+      exec: 'singles',
+    },
+    batch: {
+      executor: 'constant-vus',
+      vus: VUS,
+      duration: DURATION,
+      startTime: DURATION,
+      exec: 'batch',
+    },
+  },
+};
+
+const QUERIES = new Counter('queries_retrieved');
+const SINGLES_ROUND = new Trend('singles_round_ms', true);
+const BATCH_ROUND = new Trend('batch_round_ms', true);
+const HEADERS = { headers: { 'Content-Type': 'application/json' }, timeout: '30s' };
+const TEXTS = [
+  'How does the semantic cache make retrieval faster?',
+  'Describe the autoscaling approach for the retriever service.',
+  'Explain the telemetry pipeline used for observability.',
+  'How is Weaviate populated during ingestion?',
+  'What happens if the LLM becomes unavailable?',
+  'What are the prerequisites for running the KinD demo?',
+];
+
+function queries() {
+  const result = [];
+  for (let i = 0; i < BATCH_SIZE; i++) {
+    result.push({ text: `${TEXTS[i % TEXTS.length]} #${__ITER}-${i}`, topK: 5 });
+  }
+  return result;
+}
+
+export function singles() {
+  const start = Date.now();
+  for (const query of queries()) {
+    const res = http.post(`${RETRIEVER_URL}/v1/retrieve`, JSON.stringify(query), HEADERS);
+    if (check(res, { 'single status is 200': (r) => r.status === 200 })) {
+      QUERIES.add(1, { scenario: 'singles' });
+    }
+  }
+  SINGLES_ROUND.add(Date.now() - start);
+}
+
+export function batch() {
+  const start = Date.now();
+  const res = http.post(`${RETRIEVER_URL}/v1/retrieve/batch`, JSON.stringify(queries()), HEADERS);
+  if (check(res, { 'batch status is 200': (r) => r.status === 200 })) {
+    QUERIES.add(BATCH_SIZE, { scenario: 'batch' });
+  }
+  BATCH_ROUND.add(Date.now() - start);
+}